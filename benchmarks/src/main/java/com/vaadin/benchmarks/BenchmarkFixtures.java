@@ -0,0 +1,245 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockVaadinServletService;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+import com.vaadin.ui.renderers.DateRenderer;
+import com.vaadin.ui.renderers.LocalDateRenderer;
+import com.vaadin.ui.renderers.NumberRenderer;
+import com.vaadin.ui.renderers.ProgressBarRenderer;
+import com.vaadin.ui.renderers.TextRenderer;
+
+/**
+ * Reproducible fixture UIs for the benchmarks. All fixtures are created from
+ * constant data so that results are comparable between commits.
+ * <p>
+ * The created UIs are attached to a session that is locked by the current
+ * thread, so the fixtures should be created in a {@code @Setup} method of a
+ * thread scoped state.
+ *
+ * @author Vaadin Ltd
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * A row of the fixture grid.
+     */
+    public static class Row {
+        private final int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return "Row " + index;
+        }
+
+        public double getProgress() {
+            return (index % 100) / 100.0;
+        }
+
+        public LocalDate getDate() {
+            return LocalDate.of(2000, 1, 1).plusDays(index);
+        }
+    }
+
+    /**
+     * UI used by the fixtures, does nothing on init.
+     */
+    public static class FixtureUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+            // Content is set by the fixture methods
+        }
+    }
+
+    private BenchmarkFixtures() {
+        // Static utils only
+    }
+
+    /**
+     * Creates an initialized UI attached to a new session that is locked by
+     * the current thread.
+     *
+     * @return the created UI
+     */
+    public static UI createUI() {
+        MockVaadinServletService service;
+        try {
+            service = new MockVaadinServletService();
+        } catch (ServiceException e) {
+            throw new RuntimeException(e);
+        }
+        service.init();
+
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+        session.setConfiguration(service.getDeploymentConfiguration());
+        session.setCommunicationManager(
+                new LegacyCommunicationManager(session));
+        session.setLocale(Locale.ENGLISH);
+        VaadinSession.setCurrent(session);
+
+        UI ui = new FixtureUI();
+        ui.doInit(createRequest(service), session.getNextUIid(), null);
+        ui.setSession(session);
+        session.addUI(ui);
+        UI.setCurrent(ui);
+        return ui;
+    }
+
+    /**
+     * Creates a UI containing the given number of form rows, each row
+     * consisting of a label, a text field and a button.
+     *
+     * @param rows
+     *            the number of rows to create
+     * @return the created UI
+     */
+    public static UI createFormUI(int rows) {
+        UI ui = createUI();
+        VerticalLayout layout = new VerticalLayout();
+        for (int i = 0; i < rows; ++i) {
+            HorizontalLayout row = new HorizontalLayout();
+            row.addComponent(new Label("Label " + i));
+            row.addComponent(new TextField("Field " + i, "Value " + i));
+            row.addComponent(new Button("Button " + i));
+            layout.addComponent(row);
+        }
+        ui.setContent(layout);
+        return ui;
+    }
+
+    /**
+     * Creates a UI containing a grid with the given number of columns and
+     * rows. Columns cycle through the commonly used renderers.
+     *
+     * @param columns
+     *            the number of grid columns
+     * @param rows
+     *            the number of items in the grid
+     * @return the created UI, the grid is the content of the UI
+     */
+    public static UI createGridUI(int columns, int rows) {
+        UI ui = createUI();
+        Grid<Row> grid = new Grid<>();
+        configureGrid(grid, columns, rows);
+        ui.setContent(grid);
+        return ui;
+    }
+
+    /**
+     * Adds the given number of columns and rows to a grid. Columns cycle
+     * through the commonly used renderers.
+     *
+     * @param grid
+     *            the grid to configure
+     * @param columns
+     *            the number of grid columns
+     * @param rows
+     *            the number of items in the grid
+     */
+    public static void configureGrid(Grid<Row> grid, int columns, int rows) {
+        for (int i = 0; i < columns; ++i) {
+            switch (i % 5) {
+            case 0:
+                grid.addColumn(Row::getName, new TextRenderer());
+                break;
+            case 1:
+                grid.addColumn(Row::getIndex, new NumberRenderer());
+                break;
+            case 2:
+                grid.addColumn(Row::getProgress, new ProgressBarRenderer());
+                break;
+            case 3:
+                grid.addColumn(Row::getDate, new LocalDateRenderer());
+                break;
+            default:
+                grid.addColumn(row -> Date.valueOf(row.getDate()),
+                        new DateRenderer());
+                break;
+            }
+        }
+        grid.setItems(createRows(rows));
+    }
+
+    /**
+     * Creates the given number of grid rows.
+     *
+     * @param count
+     *            the number of rows
+     * @return a list of rows
+     */
+    public static List<Row> createRows(int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            rows.add(new Row(i));
+        }
+        return rows;
+    }
+
+    /**
+     * Creates a request that only knows its service. All other methods return
+     * <code>null</code>, <code>0</code> or <code>false</code>.
+     *
+     * @param service
+     *            the service of the request
+     * @return a request instance
+     */
+    public static VaadinRequest createRequest(VaadinService service) {
+        return (VaadinRequest) Proxy.newProxyInstance(
+                BenchmarkFixtures.class.getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                (proxy, method, args) -> {
+                    if ("getService".equals(method.getName())) {
+                        return service;
+                    }
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    } else if (returnType == int.class) {
+                        return 0;
+                    } else if (returnType == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.benchmarks.BenchmarkFixtures.Row;
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.ui.Grid;
+
+/**
+ * Benchmarks sending rows of a {@link Grid} to the client through its
+ * {@link DataCommunicator}, including the data generators of all columns.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataCommunicatorBenchmark {
+
+    @Param({ "5", "20" })
+    private int columns;
+
+    @Param({ "40", "200" })
+    private int rows;
+
+    private DataCommunicator<Row> dataCommunicator;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Grid<Row> grid = (Grid<Row>) BenchmarkFixtures
+                .createGridUI(columns, 10000).getContent();
+        dataCommunicator = grid.getDataCommunicator();
+        dataCommunicator.setMinPushSize(rows);
+    }
+
+    @Benchmark
+    public List<ClientMethodInvocation> sendRows() {
+        dataCommunicator.reset();
+        dataCommunicator.beforeClientResponse(false);
+        // Drain the pushed rows so that they don't accumulate
+        return dataCommunicator.retrievePendingRpcCalls();
+    }
+}
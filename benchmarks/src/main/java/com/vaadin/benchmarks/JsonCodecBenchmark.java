@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.benchmarks.BenchmarkFixtures.Row;
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.UI;
+
+import elemental.json.JsonValue;
+
+/**
+ * Benchmarks encoding shared state with {@link JsonCodec}, without a diff
+ * state, against the default state and against an identical state.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonCodecBenchmark {
+
+    /**
+     * Grid that exposes its state for encoding.
+     */
+    public static class StateGrid extends Grid<Row> {
+        public GridState getGridState() {
+            return getState(false);
+        }
+    }
+
+    @Param({ "5", "20" })
+    private int columns;
+
+    private GridState state;
+    private ConnectorTracker connectorTracker;
+    private JsonValue defaultDiffState;
+    private JsonValue unchangedDiffState;
+
+    @Setup
+    public void setup() {
+        UI ui = BenchmarkFixtures.createUI();
+        StateGrid grid = new StateGrid();
+        BenchmarkFixtures.configureGrid(grid, columns, 100);
+        ui.setContent(grid);
+
+        state = grid.getGridState();
+        connectorTracker = ui.getConnectorTracker();
+        defaultDiffState = JsonCodec.encode(new GridState(), null,
+                GridState.class, connectorTracker).getEncodedValue();
+        unchangedDiffState = JsonCodec
+                .encode(state, null, GridState.class, connectorTracker)
+                .getEncodedValue();
+    }
+
+    @Benchmark
+    public EncodeResult encodeWithoutDiffState() {
+        return JsonCodec.encode(state, null, GridState.class,
+                connectorTracker);
+    }
+
+    @Benchmark
+    public EncodeResult encodeAgainstDefaultState() {
+        return JsonCodec.encode(state, defaultDiffState, GridState.class,
+                connectorTracker);
+    }
+
+    @Benchmark
+    public EncodeResult encodeAgainstUnchangedState() {
+        return JsonCodec.encode(state, unchangedDiffState, GridState.class,
+                connectorTracker);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.communication.ConnectorHierarchyWriter;
+import com.vaadin.server.communication.SharedStateWriter;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.UI;
+
+/**
+ * Benchmarks {@link SharedStateWriter} and {@link ConnectorHierarchyWriter}
+ * with all connectors of a UI marked as dirty.
+ * <p>
+ * When {@code initial} is <code>true</code>, the client side of all
+ * connectors is marked uninitialized so that the complete state is written.
+ * Otherwise, states are compared to the previously written ones, either as
+ * JSON diff states or as compact state snapshots.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseWritersBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int rows;
+
+    @Param({ "true", "false" })
+    private boolean initial;
+
+    @Param({ "false", "true" })
+    private boolean compactDiffState;
+
+    private UI ui;
+    private ConnectorTracker connectorTracker;
+    private Set<String> connectorIds;
+
+    @Setup
+    public void setup() throws IOException {
+        ui = BenchmarkFixtures.createFormUI(rows);
+        connectorTracker = ui.getConnectorTracker();
+        connectorTracker.setCompactDiffStateEnabled(compactDiffState);
+        new UidlWriter().write(ui, new StringWriter(), false);
+
+        markDirty();
+        connectorIds = new HashSet<>();
+        for (ClientConnector connector : connectorTracker
+                .getDirtyVisibleConnectors()) {
+            connectorIds.add(connector.getConnectorId());
+        }
+    }
+
+    @Benchmark
+    public String sharedState() throws IOException {
+        markDirty();
+        StringWriter writer = new StringWriter();
+        new SharedStateWriter().write(ui, writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String connectorHierarchy() throws IOException {
+        markDirty();
+        StringWriter writer = new StringWriter();
+        new ConnectorHierarchyWriter().write(ui, writer, connectorIds);
+        return writer.toString();
+    }
+
+    private void markDirty() {
+        connectorTracker.markAllConnectorsDirty();
+        if (initial) {
+            connectorTracker.markAllClientSidesUninitialized();
+        }
+    }
+}
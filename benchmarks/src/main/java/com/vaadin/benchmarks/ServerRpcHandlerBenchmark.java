@@ -0,0 +1,123 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.communication.ServerRpcHandler;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.MouseEventDetails.MouseButton;
+import com.vaadin.shared.ui.button.ButtonServerRpc;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Benchmarks decoding and invoking a client message containing button clicks
+ * with {@link ServerRpcHandler}.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServerRpcHandlerBenchmark {
+
+    @Param({ "1", "50" })
+    private int invocations;
+
+    private UI ui;
+    private VaadinRequest request;
+    private String message;
+    private int clicks;
+
+    @Setup
+    public void setup() {
+        ui = BenchmarkFixtures.createFormUI(invocations);
+        request = BenchmarkFixtures.createRequest(ui.getSession().getService());
+
+        MouseEventDetails details = new MouseEventDetails();
+        details.setButton(MouseButton.LEFT);
+        details.setClientX(10);
+        details.setClientY(20);
+        JsonValue encodedDetails = JsonCodec
+                .encode(details, null, MouseEventDetails.class, null)
+                .getEncodedValue();
+
+        JsonArray rpc = Json.createArray();
+        for (ClientConnector connector : ui.getConnectorTracker()
+                .getDirtyVisibleConnectors()) {
+            if (connector instanceof Button) {
+                ((Button) connector).addClickListener(event -> ++clicks);
+
+                JsonArray parameters = Json.createArray();
+                parameters.set(0, encodedDetails);
+                JsonArray invocation = Json.createArray();
+                invocation.set(0, connector.getConnectorId());
+                invocation.set(1, ButtonServerRpc.class.getName());
+                invocation.set(2, "click");
+                invocation.set(3, parameters);
+                rpc.set(rpc.length(), invocation);
+            }
+        }
+
+        JsonObject json = Json.createObject();
+        json.put(ApplicationConstants.CSRF_TOKEN,
+                ui.getSession().getCsrfToken());
+        json.put(ApplicationConstants.SERVER_SYNC_ID,
+                ui.getConnectorTracker().getCurrentSyncId());
+        json.put(ApplicationConstants.CLIENT_TO_SERVER_ID, 0);
+        json.put(ApplicationConstants.RPC_INVOCATIONS, rpc);
+        message = JsonUtil.stringify(json);
+    }
+
+    @Benchmark
+    public int handleRpc()
+            throws IOException, InvalidUIDLSecurityKeyException {
+        // Accept the same message id on every invocation
+        ui.setLastProcessedClientToServerId(-1);
+        new ServerRpcHandler().handleRpc(ui, new StringReader(message),
+                request);
+        return clicks;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Benchmarks writing complete UIDL responses with {@link UidlWriter}, both
+ * for the initial response and for a response containing a single change.
+ *
+ * @author Vaadin Ltd
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UidlWriterBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int rows;
+
+    private UI ui;
+    private Label label;
+    private int counter;
+
+    @Setup
+    public void setup() throws IOException {
+        ui = BenchmarkFixtures.createFormUI(rows);
+        label = (Label) ((HorizontalLayout) ((VerticalLayout) ui.getContent())
+                .getComponent(0)).getComponent(0);
+        // Initial response so that the UI is in sync with the "client"
+        write();
+    }
+
+    @Benchmark
+    public String repaintAll() throws IOException {
+        ui.getSession().getCommunicationManager().repaintAll(ui);
+        return write();
+    }
+
+    @Benchmark
+    public String singleChange() throws IOException {
+        label.setValue("Changed " + counter++);
+        return write();
+    }
+
+    private String write() throws IOException {
+        StringWriter writer = new StringWriter();
+        writer.write("{");
+        new UidlWriter().write(ui, writer, false);
+        writer.write("}");
+        return writer.toString();
+    }
+}
@@ -27,6 +27,7 @@ import com.vaadin.client.data.DataSource;
 import com.vaadin.client.extensions.AbstractExtensionConnector;
 import com.vaadin.data.provider.DataCommunicator;
 import com.vaadin.shared.Range;
+import com.vaadin.shared.data.ColumnarRows;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
 import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.DataRequestRpc;
@@ -74,6 +75,12 @@ public class DataCommunicatorConnector extends AbstractExtensionConnector {
                             setRowData(firstIndex, rows);
                         }
 
+                        @Override
+                        public void setColumnarData(int firstIndex,
+                                JsonObject data) {
+                            setData(firstIndex, ColumnarRows.decode(data));
+                        }
+
                         @Override
                         public void updateData(JsonArray data) {
                             for (int i = 0; i < data.length(); ++i) {
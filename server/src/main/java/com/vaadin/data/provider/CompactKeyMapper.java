@@ -0,0 +1,396 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.KeyMapper;
+
+/**
+ * A {@link DataKeyMapper} that stores keys as integers in open addressing
+ * tables instead of hash maps of strings.
+ * <p>
+ * Compared to {@link KeyMapper}, no map entries or key strings are kept in
+ * memory for the mapped items. The string form of a key is only created when
+ * {@link #key(Object)} is called, i.e. when the key is written to the client.
+ * This reduces the memory used per row by components with large amounts of
+ * active data, both on the heap and in serialized sessions.
+ * <p>
+ * The keys generated by this mapper are decimal numbers, like the default
+ * keys of {@link KeyMapper}. To use this mapper with a component, override
+ * {@link DataCommunicator#createKeyMapper(ValueProvider)} to return an
+ * instance of this class.
+ *
+ * @param <V>
+ *            the type of mapped objects
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class CompactKeyMapper<V> implements DataKeyMapper<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Marks an empty slot in {@link #keyTable}, keys start from 1. */
+    private static final int NO_KEY = 0;
+
+    private ValueProvider<V, Object> identifierGetter;
+
+    private int lastKey = 0;
+    private int size = 0;
+
+    // Identifier -> key, linear probing. The tables are written as a list of
+    // entries when serialized to avoid writing empty slots.
+    private transient Object[] idTable = new Object[INITIAL_CAPACITY];
+    private transient int[] idKeys = new int[INITIAL_CAPACITY];
+
+    // Key -> object, linear probing
+    private transient int[] keyTable = new int[INITIAL_CAPACITY];
+    private transient Object[] keyObjects = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Constructs a new mapper.
+     *
+     * @param identifierGetter
+     *            has to return a unique key for every bean, and the returned
+     *            key has to follow general {@code hashCode()} and
+     *            {@code equals()} contract, see {@link Object#hashCode()} for
+     *            details.
+     */
+    public CompactKeyMapper(ValueProvider<V, Object> identifierGetter) {
+        this.identifierGetter = Objects.requireNonNull(identifierGetter,
+                "Identifier getter cannot be null");
+    }
+
+    /**
+     * Constructs a new mapper with trivial {@code identifierGetter}.
+     */
+    public CompactKeyMapper() {
+        this(v -> v);
+    }
+
+    @Override
+    public String key(V dataObject) {
+        if (dataObject == null) {
+            return "null";
+        }
+
+        Object id = identifierGetter.apply(dataObject);
+        int slot = findIdSlot(id);
+        if (idTable[slot] != null) {
+            return Integer.toString(idKeys[slot]);
+        }
+
+        int key = ++lastKey;
+        if (key == NO_KEY) {
+            // Wrapped around after 2^32 keys, skip the empty marker
+            key = ++lastKey;
+        }
+        if (size + 1 > idTable.length / 2) {
+            resize(idTable.length * 2);
+            slot = findIdSlot(id);
+        }
+        idTable[slot] = id;
+        idKeys[slot] = key;
+        int keySlot = findKeySlot(key);
+        keyTable[keySlot] = key;
+        keyObjects[keySlot] = dataObject;
+        ++size;
+
+        return Integer.toString(key);
+    }
+
+    @Override
+    public boolean has(V dataObject) {
+        return idTable[findIdSlot(identifierGetter.apply(dataObject))] != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        int intKey = parseKey(key);
+        if (intKey == NO_KEY) {
+            return null;
+        }
+        return (V) keyObjects[findKeySlot(intKey)];
+    }
+
+    /**
+     * Checks if the given key is mapped to an object.
+     *
+     * @param key
+     *            the key to check
+     * @return <code>true</code> if the key is currently mapped,
+     *         <code>false</code> otherwise
+     */
+    public boolean containsKey(String key) {
+        int intKey = parseKey(key);
+        return intKey != NO_KEY && keyTable[findKeySlot(intKey)] != NO_KEY;
+    }
+
+    @Override
+    public void remove(V dataObject) {
+        int slot = findIdSlot(identifierGetter.apply(dataObject));
+        if (idTable[slot] == null) {
+            return;
+        }
+        int key = idKeys[slot];
+        deleteIdSlot(slot);
+        deleteKeySlot(findKeySlot(key));
+        --size;
+    }
+
+    @Override
+    public void removeAll() {
+        // Keep the allocated tables for the next set of items
+        Arrays.fill(idTable, null);
+        Arrays.fill(idKeys, NO_KEY);
+        Arrays.fill(keyTable, NO_KEY);
+        Arrays.fill(keyObjects, null);
+        size = 0;
+    }
+
+    /**
+     * Merges objects into the mapper. The given objects are added to the
+     * mapper if needed, and all other objects are removed from it.
+     *
+     * @param objects
+     *            the objects that should be mapped after merging
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(Set<V> objects) {
+        for (V object : objects) {
+            if (object != null) {
+                key(object);
+            }
+        }
+
+        // Mark the entries to keep, then rebuild both tables once instead of
+        // removing entries one by one
+        boolean[] retained = new boolean[keyTable.length];
+        for (V object : objects) {
+            if (object != null) {
+                int slot = findIdSlot(identifierGetter.apply(object));
+                retained[findKeySlot(idKeys[slot])] = true;
+            }
+        }
+        int[] oldKeyTable = keyTable;
+        Object[] oldKeyObjects = keyObjects;
+        clearTables(idTable.length);
+        for (int i = 0; i < oldKeyTable.length; ++i) {
+            if (retained[i]) {
+                V object = (V) oldKeyObjects[i];
+                insert(identifierGetter.apply(object), oldKeyTable[i], object);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of objects currently in this mapper.
+     *
+     * @return the number of mapped objects
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void refresh(V dataObject) {
+        int slot = findIdSlot(identifierGetter.apply(dataObject));
+        if (idTable[slot] != null) {
+            keyObjects[findKeySlot(idKeys[slot])] = dataObject;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setIdentifierGetter(ValueProvider<V, Object> identifierGetter) {
+        if (this.identifierGetter != identifierGetter) {
+            this.identifierGetter = identifierGetter;
+            Arrays.fill(idTable, null);
+            Arrays.fill(idKeys, NO_KEY);
+            for (int i = 0; i < keyTable.length; ++i) {
+                if (keyTable[i] != NO_KEY) {
+                    Object id = identifierGetter.apply((V) keyObjects[i]);
+                    int slot = findIdSlot(id);
+                    idTable[slot] = id;
+                    idKeys[slot] = keyTable[i];
+                }
+            }
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (int i = 0; i < idTable.length; ++i) {
+            if (idTable[i] != null) {
+                int key = idKeys[i];
+                out.writeInt(key);
+                out.writeObject(idTable[i]);
+                out.writeObject(keyObjects[findKeySlot(key)]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int count = size;
+        int capacity = INITIAL_CAPACITY;
+        while (count > capacity / 2) {
+            capacity *= 2;
+        }
+        clearTables(capacity);
+        for (int i = 0; i < count; ++i) {
+            int key = in.readInt();
+            Object id = in.readObject();
+            insert(id, key, (V) in.readObject());
+        }
+    }
+
+    private static int parseKey(String key) {
+        if (key == null || key.isEmpty() || key.length() > 11) {
+            return NO_KEY;
+        }
+        try {
+            return Integer.parseInt(key);
+        } catch (NumberFormatException e) {
+            return NO_KEY;
+        }
+    }
+
+    private static int mix(int hash) {
+        // Spread the bits since the table size is a power of two
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the slot of the given identifier, or the empty slot where it
+     * should be inserted.
+     */
+    private int findIdSlot(Object id) {
+        int mask = idTable.length - 1;
+        int slot = mix(id.hashCode()) & mask;
+        while (idTable[slot] != null && !idTable[slot].equals(id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Finds the slot of the given key, or the empty slot where it should be
+     * inserted.
+     */
+    private int findKeySlot(int key) {
+        int mask = keyTable.length - 1;
+        int slot = mix(key) & mask;
+        while (keyTable[slot] != NO_KEY && keyTable[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(Object id, int key, V object) {
+        int slot = findIdSlot(id);
+        idTable[slot] = id;
+        idKeys[slot] = key;
+        int keySlot = findKeySlot(key);
+        keyTable[keySlot] = key;
+        keyObjects[keySlot] = object;
+        ++size;
+    }
+
+    private void clearTables(int capacity) {
+        idTable = new Object[capacity];
+        idKeys = new int[capacity];
+        keyTable = new int[capacity];
+        keyObjects = new Object[capacity];
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        int[] oldKeyTable = keyTable;
+        Object[] oldKeyObjects = keyObjects;
+        int[] oldIdKeys = idKeys;
+        Object[] oldIdTable = idTable;
+        clearTables(capacity);
+        for (int i = 0; i < oldIdTable.length; ++i) {
+            if (oldIdTable[i] != null) {
+                int slot = findIdSlot(oldIdTable[i]);
+                idTable[slot] = oldIdTable[i];
+                idKeys[slot] = oldIdKeys[i];
+            }
+            if (oldKeyTable[i] != NO_KEY) {
+                int slot = findKeySlot(oldKeyTable[i]);
+                keyTable[slot] = oldKeyTable[i];
+                keyObjects[slot] = oldKeyObjects[i];
+                ++size;
+            }
+        }
+    }
+
+    /**
+     * Removes the entry in the given slot of the identifier table, shifting
+     * back following entries of the same probe sequence so that no tombstones
+     * are needed.
+     */
+    private void deleteIdSlot(int slot) {
+        int mask = idTable.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (idTable[next] != null) {
+            int home = mix(idTable[next].hashCode()) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                idTable[hole] = idTable[next];
+                idKeys[hole] = idKeys[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        idTable[hole] = null;
+        idKeys[hole] = NO_KEY;
+    }
+
+    /**
+     * Removes the entry in the given slot of the key table, shifting back
+     * following entries of the same probe sequence.
+     */
+    private void deleteKeySlot(int slot) {
+        int mask = keyTable.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keyTable[next] != NO_KEY) {
+            int home = mix(keyTable[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keyTable[hole] = keyTable[next];
+                keyObjects[hole] = keyObjects[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keyTable[hole] = NO_KEY;
+        keyObjects[hole] = null;
+    }
+}
@@ -20,12 +20,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,11 +43,15 @@ import com.vaadin.server.KeyMapper;
 import com.vaadin.server.SerializableConsumer;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.ColumnarRows;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
 import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.DataRequestRpc;
 import com.vaadin.shared.extension.datacommunicator.DataCommunicatorState;
 import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import com.vaadin.util.CurrentInstance;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -59,9 +70,29 @@ import elemental.json.JsonObject;
  */
 public class DataCommunicator<T> extends AbstractExtension {
 
+    /**
+     * Maximum number of row ranges fetched in the background that are kept
+     * while waiting to be pushed to the client.
+     */
+    private static final int MAX_FETCHED_RANGES = 3;
+
+    /**
+     * Minimum number of rows generated by each task when generating data in
+     * parallel.
+     */
+    private static final int MIN_ROWS_PER_TASK = 8;
+
     private Registration dataProviderUpdateRegistration;
     private int maximumAllowedRows = 500;
 
+    private transient Executor fetchExecutor;
+    private transient Map<Range, List<T>> fetchedRows;
+    private transient Set<Range> pendingFetches;
+    private int fetchGeneration = 0;
+    private Range lastRequestedRows;
+    private boolean columnarEncoding = false;
+    private int dataGenerationParallelism = 1;
+
     /**
      * Simple implementation of collection data provider communication. All data
      * is sent by server automatically and no data is requested by client.
@@ -311,8 +342,283 @@ public class DataCommunicator<T> extends AbstractExtension {
             throw new IllegalStateException(
                     "Client tried fetch more rows than allowed. This is denied to prevent denial of service.");
         }
-        setPushRows(Range.withLength(firstRowIndex, numberOfRows));
-        markAsDirty();
+        Range requestedRows = Range.withLength(firstRowIndex, numberOfRows);
+        if (fetchExecutor == null || requestedRows.isEmpty()
+                || getFetchedRows(requestedRows) != null) {
+            setPushRows(requestedRows);
+            markAsDirty();
+        } else {
+            fetchInBackground(requestedRows, true);
+        }
+
+        if (fetchExecutor != null) {
+            prefetchNextRows(requestedRows);
+        }
+        lastRequestedRows = requestedRows;
+    }
+
+    /**
+     * Sets the executor used for fetching rows requested by the client in the
+     * background.
+     * <p>
+     * By default, rows are fetched from the data provider while the session is
+     * locked, right before the response is written. When an executor is set,
+     * the data provider is instead queried in a task run by the executor
+     * without holding the session lock, and the rows are pushed to the client
+     * using {@link UI#access(Runnable)} once they are available. The next page
+     * in the direction the client is scrolling is also fetched in advance.
+     * <p>
+     * The data provider must support being queried from other threads when an
+     * executor is used. Server push should be enabled for the UI so that the
+     * rows are delivered as soon as they have been fetched; otherwise they are
+     * sent with the next response to the client.
+     *
+     * @see com.vaadin.util.ExecutorUtil#createBoundedExecutor(String, int)
+     *
+     * @param fetchExecutor
+     *            the executor to fetch rows with, or {@code null} to fetch rows
+     *            synchronously
+     * @since 8.15
+     */
+    public void setFetchExecutor(Executor fetchExecutor) {
+        this.fetchExecutor = fetchExecutor;
+        invalidateFetchedRows();
+    }
+
+    /**
+     * Gets the executor used for fetching rows in the background.
+     *
+     * @see #setFetchExecutor(Executor)
+     *
+     * @return the executor, or {@code null} if rows are fetched synchronously
+     * @since 8.15
+     */
+    public Executor getFetchExecutor() {
+        return fetchExecutor;
+    }
+
+    /**
+     * Sets whether pages of rows are sent to the client in columnar form.
+     * <p>
+     * In the columnar form, the keys that are present in every row of a page,
+     * such as the values of each column of a grid, are sent once together with
+     * an array of the values of all the rows. This makes the data sent to the
+     * client considerably smaller for components with many columns. The rows
+     * are reassembled by the client before they are used, so data generators
+     * and client-side renderers work the same way in both forms.
+     *
+     * @see ColumnarRows
+     *
+     * @param columnarEncoding
+     *            {@code true} to send rows in columnar form, {@code false} to
+     *            send each row as an object
+     * @since 8.15
+     */
+    public void setColumnarEncoding(boolean columnarEncoding) {
+        this.columnarEncoding = columnarEncoding;
+    }
+
+    /**
+     * Gets whether pages of rows are sent to the client in columnar form.
+     *
+     * @see #setColumnarEncoding(boolean)
+     *
+     * @return {@code true} if rows are sent in columnar form, {@code false}
+     *         otherwise
+     * @since 8.15
+     */
+    public boolean isColumnarEncoding() {
+        return columnarEncoding;
+    }
+
+    /**
+     * Sets the number of threads used for generating the data of the rows
+     * pushed to the client.
+     * <p>
+     * When the parallelism is greater than one, the rows of a page are split
+     * into slices, and the {@link DataGenerator#isThreadSafe() thread-safe}
+     * data generators are run for the slices in parallel in the common
+     * fork-join pool, with the calling thread handling one of the slices. The
+     * other data generators are then run for all the rows on the calling
+     * thread, in the order the generators were added. The rows are sent to the
+     * client in their original order. The first row of a page is always
+     * generated on the calling thread before the other rows so that any state
+     * the generators initialize lazily is set up under the session lock.
+     * <p>
+     * {@link #getDataObject(Object)} is not used for the rows of a page that
+     * is generated in parallel. The default parallelism is 1, which generates
+     * all data on the calling thread.
+     *
+     * @param parallelism
+     *            the maximum number of threads generating data for a page, at
+     *            least 1
+     * @since 8.15
+     */
+    public void setDataGenerationParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "Parallelism must be at least 1");
+        }
+        dataGenerationParallelism = parallelism;
+    }
+
+    /**
+     * Gets the number of threads used for generating the data of the rows
+     * pushed to the client.
+     *
+     * @see #setDataGenerationParallelism(int)
+     *
+     * @return the maximum number of threads generating data for a page
+     * @since 8.15
+     */
+    public int getDataGenerationParallelism() {
+        return dataGenerationParallelism;
+    }
+
+    /**
+     * Starts fetching the page following the given range in the direction the
+     * client is scrolling to.
+     *
+     * @param requestedRows
+     *            the rows most recently requested by the client
+     */
+    private void prefetchNextRows(Range requestedRows) {
+        if (lastRequestedRows == null || requestedRows.isEmpty()) {
+            return;
+        }
+        int length = requestedRows.length();
+        Range nextRows;
+        if (requestedRows.getStart() > lastRequestedRows.getStart()) {
+            nextRows = Range.withLength(requestedRows.getEnd(), length);
+        } else if (requestedRows.getStart() < lastRequestedRows.getStart()
+                && requestedRows.getStart() > 0) {
+            nextRows = Range.between(
+                    Math.max(0, requestedRows.getStart() - length),
+                    requestedRows.getStart());
+        } else {
+            return;
+        }
+        if (getFetchedRows(nextRows) == null) {
+            fetchInBackground(nextRows, false);
+        }
+    }
+
+    /**
+     * Fetches the given rows using the fetch executor. The query is created
+     * while the session is locked, but the data provider is called from the
+     * executor thread.
+     *
+     * @param rows
+     *            the rows to fetch
+     * @param push
+     *            {@code true} if the rows have been requested by the client,
+     *            {@code false} if they are only kept for a later request. The
+     *            rows are pushed once fetched if they are still the latest
+     *            requested rows.
+     */
+    @SuppressWarnings("unchecked")
+    private void fetchInBackground(Range rows, boolean push) {
+        UI ui = getUI();
+        if (ui == null) {
+            if (push) {
+                setPushRows(rows);
+                markAsDirty();
+            }
+            return;
+        }
+        if (pendingFetches == null) {
+            pendingFetches = new HashSet<>();
+        }
+        if (!pendingFetches.add(rows)) {
+            return;
+        }
+
+        int generation = fetchGeneration;
+        DataProvider<T, Object> provider = (DataProvider<T, Object>) getDataProvider();
+        Query<T, Object> query = createQuery(rows.getStart(), rows.length());
+        Runnable task = () -> {
+            List<T> items = null;
+            try {
+                items = provider.fetch(query).collect(Collectors.toList());
+            } catch (RuntimeException e) {
+                getLogger().log(Level.WARNING,
+                        "Fetching rows in the background failed, "
+                                + "rows will be fetched again when responding",
+                        e);
+            }
+            List<T> result = items;
+            try {
+                ui.access(() -> {
+                    // An outdated result is dropped and the rows are fetched
+                    // again when responding. The push rows have already been
+                    // reset in that case.
+                    if (generation != fetchGeneration) {
+                        return;
+                    }
+                    pendingFetches.remove(rows);
+                    if (result != null) {
+                        storeFetchedRows(rows, result);
+                    }
+                    // Only the latest request is answered, fetches may
+                    // complete in any order
+                    if (rows.equals(lastRequestedRows)) {
+                        setPushRows(rows);
+                        markAsDirty();
+                    }
+                });
+            } catch (UIDetachedException e) {
+                // Nothing to push to
+            }
+        };
+        fetchExecutor.execute(task);
+    }
+
+    private void storeFetchedRows(Range rows, List<T> items) {
+        if (fetchedRows == null) {
+            fetchedRows = new LinkedHashMap<Range, List<T>>() {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Range, List<T>> eldest) {
+                    return size() > MAX_FETCHED_RANGES;
+                }
+            };
+        }
+        fetchedRows.put(rows, items);
+    }
+
+    /**
+     * Gets previously fetched rows covering the given range.
+     *
+     * @param rows
+     *            the range of rows to find
+     * @return the fetched items in the given range, or {@code null} if the
+     *         range has not been fetched
+     */
+    private List<T> getFetchedRows(Range rows) {
+        if (fetchedRows == null) {
+            return null;
+        }
+        for (Map.Entry<Range, List<T>> entry : fetchedRows.entrySet()) {
+            Range fetched = entry.getKey();
+            if (rows.isSubsetOf(fetched)) {
+                List<T> items = entry.getValue();
+                int from = Math.min(rows.getStart() - fetched.getStart(),
+                        items.size());
+                int to = Math.min(from + rows.length(), items.size());
+                return items.subList(from, to);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discards rows fetched in the background. Fetches that are still running
+     * will be ignored when they complete.
+     */
+    private void invalidateFetchedRows() {
+        ++fetchGeneration;
+        fetchedRows = null;
+        pendingFetches = null;
     }
 
     /**
@@ -377,6 +683,7 @@ public class DataCommunicator<T> extends AbstractExtension {
         }
 
         if (initial || reset) {
+            invalidateFetchedRows();
             if (reset) {
                 handler.dropAllActiveData();
             }
@@ -399,7 +706,10 @@ public class DataCommunicator<T> extends AbstractExtension {
             int offset = requestedRows.getStart();
             int limit = requestedRows.length();
 
-            List<T> rowsToPush = fetchItemsWithRange(offset, limit);
+            List<T> rowsToPush = getFetchedRows(requestedRows);
+            if (rowsToPush == null) {
+                rowsToPush = fetchItemsWithRange(offset, limit);
+            }
 
             if (!initial && !reset && rowsToPush.isEmpty()) {
                 triggerReset = true;
@@ -424,13 +734,23 @@ public class DataCommunicator<T> extends AbstractExtension {
      *
      * @since 8.1
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @SuppressWarnings("unchecked")
     public List<T> fetchItemsWithRange(int offset, int limit) {
-        return (List<T>) getDataProvider().fetch(new Query(offset, limit,
-                backEndSorting, inMemorySorting, filter))
+        return ((DataProvider<T, Object>) getDataProvider())
+                .fetch(createQuery(offset, limit))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Creates a query for the given range using the current sorting and
+     * filter. The sort orders are copied so that the query can be used
+     * outside of the session lock.
+     */
+    private Query<T, Object> createQuery(int offset, int limit) {
+        return new Query<>(offset, limit, new ArrayList<>(backEndSorting),
+                inMemorySorting, filter);
+    }
+
     /**
      * Adds a data generator to this data communicator. Data generators can be
      * used to insert custom data to the rows sent to the client. If the data
@@ -482,11 +802,22 @@ public class DataCommunicator<T> extends AbstractExtension {
         JsonArray dataArray = Json.createArray();
 
         int i = 0;
-        for (T item : data) {
-            dataArray.set(i++, getDataObject(item));
+        if (dataGenerationParallelism > 1
+                && data.size() > MIN_ROWS_PER_TASK) {
+            for (JsonObject dataObject : generateDataInParallel(data)) {
+                dataArray.set(i++, dataObject);
+            }
+        } else {
+            for (T item : data) {
+                dataArray.set(i++, getDataObject(item));
+            }
         }
 
-        rpc.setData(firstIndex, dataArray);
+        if (columnarEncoding) {
+            rpc.setColumnarData(firstIndex, ColumnarRows.encode(dataArray));
+        } else {
+            rpc.setData(firstIndex, dataArray);
+        }
         handler.addActiveData(data.stream());
         handler.cleanUp(data.stream());
     }
@@ -509,6 +840,86 @@ public class DataCommunicator<T> extends AbstractExtension {
         return dataObject;
     }
 
+    /**
+     * Creates the JsonObjects for the given data objects, running thread-safe
+     * data generators in parallel.
+     *
+     * @param data
+     *            the data objects to be made into json objects
+     * @return json objects representing the data objects, in the same order
+     */
+    private JsonObject[] generateDataInParallel(List<T> data) {
+        List<DataGenerator<T>> parallelGenerators = new ArrayList<>();
+        List<DataGenerator<T>> sequentialGenerators = new ArrayList<>();
+        for (DataGenerator<T> generator : generators) {
+            if (generator.isThreadSafe()) {
+                parallelGenerators.add(generator);
+            } else {
+                sequentialGenerators.add(generator);
+            }
+        }
+
+        JsonObject[] dataObjects = new JsonObject[data.size()];
+        generateData(data, dataObjects, 0, 1, parallelGenerators);
+
+        int remaining = data.size() - 1;
+        int tasks = Math.min(dataGenerationParallelism,
+                (remaining + MIN_ROWS_PER_TASK - 1) / MIN_ROWS_PER_TASK);
+        if (parallelGenerators.isEmpty()) {
+            tasks = 1;
+        }
+        int sliceSize = (remaining + tasks - 1) / tasks;
+        Map<Class<?>, CurrentInstance> instances = CurrentInstance
+                .getInstances();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 1 + sliceSize; from < data.size(); from += sliceSize) {
+            int start = from;
+            int end = Math.min(from + sliceSize, data.size());
+            futures.add(CompletableFuture.runAsync(() -> {
+                Map<Class<?>, CurrentInstance> old = CurrentInstance
+                        .getInstances();
+                CurrentInstance.restoreInstances(instances);
+                try {
+                    generateData(data, dataObjects, start, end,
+                            parallelGenerators);
+                } finally {
+                    CurrentInstance.clearAll();
+                    CurrentInstance.restoreInstances(old);
+                }
+            }, ForkJoinPool.commonPool()));
+        }
+        generateData(data, dataObjects, 1,
+                Math.min(1 + sliceSize, data.size()), parallelGenerators);
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+
+        generateData(data, dataObjects, 0, data.size(), sequentialGenerators);
+        return dataObjects;
+    }
+
+    private static <T> void generateData(List<T> data,
+            JsonObject[] dataObjects, int start, int end,
+            List<DataGenerator<T>> generators) {
+        for (int i = start; i < end; ++i) {
+            if (dataObjects[i] == null) {
+                dataObjects[i] = Json.createObject();
+            }
+            for (DataGenerator<T> generator : generators) {
+                generator.generateData(data.get(i), dataObjects[i]);
+            }
+        }
+    }
+
     /**
      * Returns the active data handler.
      *
@@ -575,6 +986,9 @@ public class DataCommunicator<T> extends AbstractExtension {
                 "DataCommunicator can not refresh null object");
         Object id = getDataProvider().getId(data);
 
+        // Rows fetched in advance may contain an outdated instance
+        invalidateFetchedRows();
+
         // ActiveDataHandler has always the latest data through KeyMapper.
         Map<Object, T> activeData = getActiveDataHandler().getActiveData();
 
@@ -597,6 +1011,28 @@ public class DataCommunicator<T> extends AbstractExtension {
         return updatedData;
     }
 
+    /**
+     * Gets the number of data objects that are currently active on the client
+     * side, i.e. that have a key mapped in the key mapper.
+     *
+     * @return the number of active data objects
+     * @since 8.15
+     */
+    public int getActiveDataCount() {
+        return handler.activeData.size();
+    }
+
+    /**
+     * Gets the number of data objects that have been updated and will be sent
+     * to the client in the next response.
+     *
+     * @return the number of updated data objects
+     * @since 8.15
+     */
+    public int getUpdatedDataCount() {
+        return updatedData.size();
+    }
+
     /**
      * Sets the {@link Comparator} to use with in-memory sorting.
      *
@@ -611,6 +1047,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void setInMemorySorting(Comparator<T> comparator,
             boolean immediateReset) {
         inMemorySorting = comparator;
+        invalidateFetchedRows();
         if (immediateReset) {
             reset();
         }
@@ -651,6 +1088,7 @@ public class DataCommunicator<T> extends AbstractExtension {
             boolean immediateReset) {
         backEndSorting.clear();
         backEndSorting.addAll(sortOrder);
+        invalidateFetchedRows();
         if (immediateReset) {
             reset();
         }
@@ -679,7 +1117,9 @@ public class DataCommunicator<T> extends AbstractExtension {
     /**
      * Creates a {@link DataKeyMapper} to use with this DataCommunicator.
      * <p>
-     * This method is called from the constructor.
+     * This method is called from the constructor. Override to return a
+     * {@link CompactKeyMapper} to reduce the memory used for keys of large
+     * amounts of active data.
      *
      * @param identifierGetter
      *            has to return a unique key for every bean, and the returned
@@ -790,6 +1230,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected <F> void setFilter(F filter) {
         this.filter = filter;
+        invalidateFetchedRows();
     }
 
     /**
@@ -882,7 +1323,12 @@ public class DataCommunicator<T> extends AbstractExtension {
     protected void setDataProvider(DataProvider<T, ?> dataProvider) {
         detachDataProviderListener();
         dropAllData();
+        invalidateFetchedRows();
         this.dataProvider = dataProvider;
         getKeyMapper().setIdentifierGetter(dataProvider::getId);
     }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(DataCommunicator.class.getName());
+    }
 }
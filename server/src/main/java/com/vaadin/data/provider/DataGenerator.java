@@ -72,4 +72,24 @@ public interface DataGenerator<T> extends Serializable {
      */
     public default void refreshData(T item) {
     }
+
+    /**
+     * Gets whether this data generator can generate data for different items
+     * at the same time from threads other than the one holding the session
+     * lock. Thread-safe generators may be run in parallel when the data
+     * communicator is configured to do so, see
+     * {@link DataCommunicator#setDataGenerationParallelism(int)}.
+     * <p>
+     * A thread-safe generator must not modify components or other state of the
+     * session in {@link #generateData(Object, JsonObject)}, and it must not
+     * depend on data added by generators that are not thread-safe. The default
+     * implementation returns {@code false}.
+     *
+     * @return {@code true} if data can be generated concurrently,
+     *         {@code false} otherwise
+     * @since 8.15
+     */
+    public default boolean isThreadSafe() {
+        return false;
+    }
 }
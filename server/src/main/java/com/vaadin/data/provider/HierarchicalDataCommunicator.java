@@ -19,6 +19,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -73,6 +74,31 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Fetching rows in the background is not supported for hierarchical data,
+     * since the expanded hierarchy is maintained while the session is locked.
+     *
+     * @throws UnsupportedOperationException
+     *             if the given executor is not {@code null}
+     */
+    @Override
+    public void setFetchExecutor(Executor fetchExecutor) {
+        if (fetchExecutor != null) {
+            throw new UnsupportedOperationException(
+                    "Background fetching is not supported for hierarchical data");
+        }
+        super.setFetchExecutor(fetchExecutor);
+    }
+
+    @Override
+    protected void sendDataToClient(boolean initial) {
+        if (initial || reset) {
+            // The hierarchy may have changed in the data provider
+            mapper.clearHierarchyCache();
+        }
+        super.sendDataToClient(initial);
+    }
+
     @Override
     public HierarchicalDataProvider<T, ?> getDataProvider() {
         return (HierarchicalDataProvider<T, ?>) super.getDataProvider();
@@ -15,7 +15,8 @@
  */
 package com.vaadin.data.provider;
 
-import java.util.Collections;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -42,6 +43,13 @@ import elemental.json.JsonObject;
  * Keeps track of the expanded nodes, and size of of the subtrees for each
  * expanded node.
  * <p>
+ * The children of each expanded node are cached together with the sizes of
+ * their visible subtrees, so that finding the index of an item, fetching a
+ * range of rows, expanding and collapsing are logarithmic in the size of the
+ * expanded hierarchy. The cache is discarded when the filter or sorting
+ * changes, when {@link #destroyAllData()} is called and when an item in the
+ * hierarchy is refreshed.
+ * <p>
  * This class is framework internal implementation details, and can be changed /
  * moved at any point. This means that you should not directly use this for
  * anything.
@@ -56,6 +64,104 @@ import elemental.json.JsonObject;
  */
 public class HierarchyMapper<T, F> implements DataGenerator<T> {
 
+    /**
+     * Cached direct children of an expanded node. Each child is weighted by
+     * the number of rows it occupies in the flattened hierarchy, i.e. one for
+     * the child itself plus the size of its subtree if it is expanded. The
+     * weights are kept in a Fenwick tree to allow prefix sums and offset
+     * lookups in logarithmic time.
+     */
+    private static class HierarchyNode<T> implements Serializable {
+        private final List<T> children;
+        private final Map<Object, Integer> positions;
+        private final int[] weights;
+        private final int[] tree;
+        private int size;
+
+        private HierarchyNode(List<T> children, List<Object> childIds) {
+            this.children = children;
+            positions = new HashMap<>(childIds.size() * 2);
+            for (int i = 0; i < childIds.size(); ++i) {
+                positions.put(childIds.get(i), i);
+            }
+            weights = new int[children.size()];
+            tree = new int[children.size() + 1];
+        }
+
+        /**
+         * Initializes the weights of all children at once in linear time.
+         */
+        private void setWeights(int[] initialWeights) {
+            size = 0;
+            for (int i = 0; i < weights.length; ++i) {
+                weights[i] = initialWeights[i];
+                tree[i + 1] = initialWeights[i];
+                size += initialWeights[i];
+            }
+            for (int i = 1; i < tree.length; ++i) {
+                int parent = i + (i & -i);
+                if (parent < tree.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        /**
+         * Sets the weight of the child at the given position.
+         *
+         * @return the change in the total size of this node
+         */
+        private int setWeight(int position, int weight) {
+            int delta = weight - weights[position];
+            addWeight(position, delta);
+            return delta;
+        }
+
+        private void addWeight(int position, int delta) {
+            if (delta == 0) {
+                return;
+            }
+            weights[position] += delta;
+            for (int i = position + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+            size += delta;
+        }
+
+        /**
+         * Gets the number of rows preceding the child at the given position.
+         */
+        private int getOffset(int position) {
+            int sum = 0;
+            for (int i = position; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Finds the position of the child whose rows contain the given offset.
+         */
+        private int findPosition(int offset) {
+            int position = 0;
+            int remaining = offset;
+            for (int step = Integer.highestOneBit(
+                    Math.max(1, children.size())); step > 0; step >>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] <= remaining) {
+                    position = next;
+                    remaining -= tree[next];
+                }
+            }
+            return position;
+        }
+
+        private int indexOf(Object childId) {
+            Integer position = positions.get(childId);
+            return position == null ? -1 : position;
+        }
+    }
+
     // childMap is only used for finding parents of items and clean up on
     // removing children of expanded nodes.
     private Map<T, Set<T>> childMap = new HashMap<>();
@@ -69,6 +175,12 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
 
     private Set<Object> expandedItemIds = new HashSet<>();
 
+    /**
+     * Cached hierarchy nodes of expanded items, mapped by item id. The root
+     * node is stored with a {@code null} key.
+     */
+    private transient Map<Object, HierarchyNode<T>> nodeCache;
+
     /**
      * Constructs a new HierarchyMapper.
      *
@@ -85,7 +197,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the amount of available data
      */
     public int getTreeSize() {
-        return (int) getHierarchy(null).count();
+        return getNode(null).size;
     }
 
     /**
@@ -97,9 +209,11 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *
      */
     public Integer getParentIndex(T item) {
-        // TODO: This can be optimized.
-        List<T> flatHierarchy = getHierarchy(null).collect(Collectors.toList());
-        return flatHierarchy.indexOf(getParentOfItem(item));
+        T parent = getParentOfItem(item);
+        if (parent == null) {
+            return -1;
+        }
+        return getIndexOf(parent).orElse(-1);
     }
 
     /**
@@ -127,9 +241,11 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return range of rows added by expanding the item
      */
     public Range expand(T item, Integer position) {
-        if (doExpand(item) && position != null) {
-            return Range.withLength(position + 1,
-                    (int) getHierarchy(item, false).count());
+        if (doExpand(item)) {
+            updateWeight(item);
+            if (position != null) {
+                return Range.withLength(position + 1, getSubtreeSize(item));
+            }
         }
 
         return Range.emptyRange();
@@ -183,9 +299,10 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
         if (isExpanded(item)) {
             if (position != null) {
                 removedRows = Range.withLength(position + 1,
-                        (int) getHierarchy(item, false).count());
+                        getSubtreeSize(item));
             }
             expandedItemIds.remove(getDataProvider().getId(item));
+            updateWeight(item);
         }
         return removedRows;
     }
@@ -275,6 +392,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setInMemorySorting(Comparator<T> inMemorySorting) {
         this.inMemorySorting = inMemorySorting;
+        clearHierarchyCache();
     }
 
     /**
@@ -295,6 +413,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setBackEndSorting(List<QuerySortOrder> backEndSorting) {
         this.backEndSorting = backEndSorting;
+        clearHierarchyCache();
     }
 
     /**
@@ -315,6 +434,18 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setFilter(Object filter) {
         this.filter = (F) filter;
+        clearHierarchyCache();
+    }
+
+    /**
+     * Discards the cached hierarchy. The hierarchy is fetched again from the
+     * data provider when it is needed next time. This should be called when
+     * the contents of the data provider have changed.
+     *
+     * @since 8.15
+     */
+    public void clearHierarchyCache() {
+        nodeCache = null;
     }
 
     /**
@@ -349,7 +480,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(Range range) {
-        return getHierarchy(null).skip(range.getStart()).limit(range.length());
+        return collectItems(getNode(null), range).stream();
     }
 
     /**
@@ -363,8 +494,11 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(T parent, Range range) {
-        return getHierarchy(parent, false).skip(range.getStart())
-                .limit(range.length());
+        HierarchyNode<T> node = getNode(parent);
+        if (node == null) {
+            return Stream.empty();
+        }
+        return collectItems(node, range).stream();
     }
 
     /* Methods for providing information on the hierarchy. */
@@ -430,6 +564,9 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
             }
         }
         expandedItemIds.remove(id);
+        if (nodeCache != null) {
+            nodeCache.remove(id);
+        }
         invalidatedChildren.stream().map(getDataProvider()::getId)
                 .forEach(x -> {
                     removeChildren(x);
@@ -450,89 +587,183 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
             return Optional.empty();
         }
 
-        final List<Object> collect = getHierarchy(null).map(provider::getId)
-                .collect(Collectors.toList());
-        int index = collect.indexOf(getDataProvider().getId(target));
-        return Optional.ofNullable(index < 0 ? null : index);
+        // Make sure the visible hierarchy has been cached
+        getNode(null);
+
+        int index = 0;
+        T item = target;
+        while (true) {
+            T parent = getParentOfItem(item);
+            HierarchyNode<T> node = nodeCache.get(getNodeKey(parent));
+            int position = node == null ? -1
+                    : node.indexOf(getDataProvider().getId(item));
+            if (position < 0) {
+                return Optional.empty();
+            }
+            index += node.getOffset(position);
+            if (parent == null) {
+                return Optional.of(index);
+            }
+            if (!isExpanded(parent)) {
+                return Optional.empty();
+            }
+            // The parent row precedes its children
+            ++index;
+            item = parent;
+        }
     }
 
     /**
-     * Gets the full hierarchy tree starting from given node.
+     * Gets the stream of direct children for given node.
      *
      * @param parent
-     *            the parent node to start from
-     * @return the flattened hierarchy as a stream
+     *            the parent node
+     * @return the stream of direct children
      */
-    private Stream<T> getHierarchy(T parent) {
-        return getHierarchy(parent, true);
+    private Stream<T> getDirectChildren(T parent) {
+        return doFetchDirectChildren(parent, Range.between(0, getDataProvider()
+                .getChildCount(new HierarchicalQuery<>(filter, parent))));
+    }
+
+    private Object getNodeKey(T item) {
+        return item == null ? null : getDataProvider().getId(item);
     }
 
     /**
-     * Getst hte full hierarchy tree starting from given node. The starting node
-     * can be omitted.
+     * Gets the cached node for the given item, fetching its children and
+     * building the nodes of its expanded descendants if needed.
      *
      * @param parent
-     *            the parent node to start from
-     * @param includeParent
-     *            {@code true} to include the parent; {@code false} if not
-     * @return the flattened hierarchy as a stream
+     *            the parent item, or {@code null} for the root
+     * @return the node of the given item, or {@code null} if the item is not
+     *         expanded
      */
-    private Stream<T> getHierarchy(T parent, boolean includeParent) {
-        return Stream.of(parent)
-                .flatMap(node -> getChildrenStream(node, includeParent));
+    private HierarchyNode<T> getNode(T parent) {
+        if (!isExpanded(parent)) {
+            return null;
+        }
+        if (nodeCache == null) {
+            nodeCache = new HashMap<>();
+        }
+        Object key = getNodeKey(parent);
+        HierarchyNode<T> node = nodeCache.get(key);
+        if (node != null) {
+            return node;
+        }
+
+        List<T> childList = getDirectChildren(parent)
+                .collect(Collectors.toList());
+        if (childList.isEmpty()) {
+            removeChildren(key);
+            if (parent != null) {
+                return null;
+            }
+        } else {
+            registerChildren(parent, childList);
+        }
+
+        List<Object> childIds = new ArrayList<>(childList.size());
+        int[] weights = new int[childList.size()];
+        for (int i = 0; i < childList.size(); ++i) {
+            T child = childList.get(i);
+            childIds.add(getDataProvider().getId(child));
+            weights[i] = getWeight(child);
+        }
+        node = new HierarchyNode<>(childList, childIds);
+        node.setWeights(weights);
+        nodeCache.put(key, node);
+        return node;
     }
 
     /**
-     * Gets the stream of direct children for given node.
-     *
-     * @param parent
-     *            the parent node
-     * @return the stream of direct children
+     * Gets the number of rows the given item occupies in the flattened
+     * hierarchy, including the item itself.
      */
-    private Stream<T> getDirectChildren(T parent) {
-        return doFetchDirectChildren(parent, Range.between(0, getDataProvider()
-                .getChildCount(new HierarchicalQuery<>(filter, parent))));
+    private int getWeight(T item) {
+        HierarchyNode<T> node = getNode(item);
+        return node == null ? 1 : 1 + node.size;
+    }
+
+    private int getSubtreeSize(T item) {
+        HierarchyNode<T> node = getNode(item);
+        return node == null ? 0 : node.size;
     }
 
     /**
-     * The method to recursively fetch the children of given parent. Used with
-     * {@link Stream#flatMap} to expand a stream of parent nodes into a
-     * flattened hierarchy.
+     * Updates the weight of the given item in the cached node of its parent
+     * after the item has been expanded or collapsed, and propagates the change
+     * in size to the expanded ancestors.
      *
-     * @param parent
-     *            the parent node
-     * @return the stream of all children under the parent, includes the parent
+     * @param item
+     *            the expanded or collapsed item
      */
-    private Stream<T> getChildrenStream(T parent) {
-        return getChildrenStream(parent, true);
+    private void updateWeight(T item) {
+        if (nodeCache == null) {
+            return;
+        }
+        T child = item;
+        T parent = getParentOfItem(child);
+        HierarchyNode<T> node = nodeCache.get(getNodeKey(parent));
+        int position = node == null ? -1
+                : node.indexOf(getDataProvider().getId(child));
+        if (position < 0) {
+            // Not part of the cached hierarchy
+            return;
+        }
+        int delta = node.setWeight(position, getWeight(child));
+
+        while (delta != 0 && parent != null && isExpanded(parent)) {
+            child = parent;
+            parent = getParentOfItem(child);
+            node = nodeCache.get(getNodeKey(parent));
+            position = node == null ? -1
+                    : node.indexOf(getDataProvider().getId(child));
+            if (position < 0) {
+                return;
+            }
+            node.addWeight(position, delta);
+        }
     }
 
     /**
-     * The method to recursively fetch the children of given parent. Used with
-     * {@link Stream#flatMap} to expand a stream of parent nodes into a
-     * flattened hierarchy.
+     * Collects the items in the given range of the flattened subtree under the
+     * given node.
      *
-     * @param parent
-     *            the parent node
-     * @param includeParent
-     *            {@code true} to include the parent in the stream;
-     *            {@code false} if not
-     * @return the stream of all children under the parent
-     */
-    private Stream<T> getChildrenStream(T parent, boolean includeParent) {
-        List<T> childList = Collections.emptyList();
-        if (isExpanded(parent)) {
-            childList = getDirectChildren(parent).collect(Collectors.toList());
-            if (childList.isEmpty()) {
-                removeChildren(parent == null ? null
-                        : getDataProvider().getId(parent));
-            } else {
-                registerChildren(parent, childList);
+     * @param node
+     *            the node to collect from
+     * @param range
+     *            the range of rows relative to the first child of the node
+     * @return the list of items in the range
+     */
+    private List<T> collectItems(HierarchyNode<T> node, Range range) {
+        List<T> items = new ArrayList<>(Math.min(range.length(),
+                Math.max(0, node.size - range.getStart())));
+        collectItems(node, range.getStart(), range.length(), items);
+        return items;
+    }
+
+    private void collectItems(HierarchyNode<T> node, int offset, int limit,
+            List<T> items) {
+        if (offset >= node.size) {
+            return;
+        }
+        int position = node.findPosition(offset);
+        int offsetInChild = offset - node.getOffset(position);
+        for (int i = position; i < node.children.size()
+                && items.size() < limit; ++i) {
+            T child = node.children.get(i);
+            if (offsetInChild == 0) {
+                items.add(child);
+            }
+            HierarchyNode<T> childNode = isExpanded(child)
+                    ? nodeCache.get(getDataProvider().getId(child))
+                    : null;
+            if (childNode != null && items.size() < limit) {
+                collectItems(childNode, Math.max(0, offsetInChild - 1), limit,
+                        items);
             }
+            offsetInChild = 0;
         }
-        return combineParentAndChildStreams(parent,
-                childList.stream().flatMap(this::getChildrenStream),
-                includeParent);
     }
 
     /**
@@ -550,31 +781,22 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
                 x -> parentIdMap.put(getDataProvider().getId(x), parent));
     }
 
-    /**
-     * Helper method for combining parent and a stream of children into one
-     * stream. {@code null} item is never included, and parent can be skipped by
-     * providing the correct value for {@code includeParent}.
-     *
-     * @param parent
-     *            the parent node
-     * @param children
-     *            the stream of children
-     * @param includeParent
-     *            {@code true} to include the parent in the stream;
-     *            {@code false} if not
-     * @return the combined stream of parent and its children
-     */
-    private Stream<T> combineParentAndChildStreams(T parent, Stream<T> children,
-            boolean includeParent) {
-        boolean parentIncluded = includeParent && parent != null;
-        Stream<T> parentStream = parentIncluded ? Stream.of(parent)
-                : Stream.empty();
-        return Stream.concat(parentStream, children);
-    }
-
     @Override
     public void destroyAllData() {
         childMap.clear();
         parentIdMap.clear();
+        clearHierarchyCache();
+    }
+
+    @Override
+    public void refreshData(T item) {
+        if (nodeCache == null) {
+            return;
+        }
+        Object id = getDataProvider().getId(item);
+        if (nodeCache.containsKey(id) || parentIdMap.containsKey(id)) {
+            // The item may have moved or its children may have changed
+            clearHierarchyCache();
+        }
     }
 }
@@ -15,10 +15,16 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.server.SerializableComparator;
@@ -35,12 +41,52 @@ public class ListDataProvider<T>
         extends AbstractDataProvider<T, SerializablePredicate<T>>
         implements InMemoryDataProvider<T> {
 
+    /**
+     * Maximum number of sorted and filtered views kept in memory when indexing
+     * is enabled.
+     */
+    private static final int MAX_INDEXED_VIEWS = 8;
+
+    /**
+     * Identifies a cached view by the query's in-memory sorting and filter.
+     * Both are compared using their own {@code equals}, which for lambdas means
+     * identity.
+     */
+    private static final class ViewKey implements Serializable {
+        private final Comparator<?> sorting;
+        private final Object filter;
+
+        private ViewKey(Comparator<?> sorting, Object filter) {
+            this.sorting = sorting;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ViewKey)) {
+                return false;
+            }
+            ViewKey other = (ViewKey) obj;
+            return Objects.equals(sorting, other.sorting)
+                    && Objects.equals(filter, other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sorting, filter);
+        }
+    }
+
     private SerializableComparator<T> sortOrder = null;
 
     private SerializablePredicate<T> filter;
 
     private final Collection<T> backend;
 
+    private boolean indexed = false;
+
+    private transient Map<ViewKey, List<T>> indexedViews;
+
     /**
      * Constructs a new ListDataProvider.
      * <p>
@@ -66,8 +112,58 @@ public class ListDataProvider<T>
         return backend;
     }
 
+    /**
+     * Sets whether this data provider should keep indexed views of its items.
+     * <p>
+     * When enabled, the filtered and sorted order of the items is computed once
+     * for each combination of query sorting and query filter, and reused by
+     * subsequent {@link #fetch(Query)} and {@link #size(Query)} calls. This
+     * makes paging through a large collection cheap since only the requested
+     * range is read from the cached view.
+     * <p>
+     * The views are discarded by {@link #refreshAll()} and
+     * {@link #refreshItem(Object)}, as well as when the filter or sort order of
+     * this data provider is changed. When indexing is enabled, changes made to
+     * the backing collection are thus only visible after one of those methods
+     * has been called. Query filters and comparators are matched using
+     * {@code equals}, so reusing the same instances is required to benefit from
+     * the cached views.
+     * <p>
+     * Indexing is disabled by default.
+     *
+     * @param indexed
+     *            {@code true} to cache sorted and filtered views of the items,
+     *            {@code false} to compute them for each query
+     * @since 8.15
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        clearIndexedViews();
+    }
+
+    /**
+     * Gets whether this data provider keeps indexed views of its items.
+     *
+     * @see #setIndexed(boolean)
+     *
+     * @return {@code true} if sorted and filtered views are cached,
+     *         {@code false} otherwise
+     * @since 8.15
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
     @Override
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        if (indexed) {
+            List<T> view = getIndexedView(query.getInMemorySorting(), query);
+            int size = view.size();
+            int from = Math.min(query.getOffset(), size);
+            int to = (int) Math.min((long) from + query.getLimit(), size);
+            return view.subList(from, to).stream();
+        }
+
         Stream<T> stream = getFilteredStream(query);
 
         Optional<Comparator<T>> comparing = Stream
@@ -84,9 +180,78 @@ public class ListDataProvider<T>
 
     @Override
     public int size(Query<T, SerializablePredicate<T>> query) {
+        if (indexed) {
+            return getIndexedSize(query);
+        }
         return (int) getFilteredStream(query).count();
     }
 
+    @Override
+    public void refreshAll() {
+        clearIndexedViews();
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        // The item may have moved or changed whether it passes the filters
+        clearIndexedViews();
+        super.refreshItem(item);
+    }
+
+    private int getIndexedSize(Query<T, SerializablePredicate<T>> query) {
+        Object queryFilter = query.getFilter().orElse(null);
+        synchronized (this) {
+            if (indexedViews != null) {
+                // Any view with the same filter has the same size regardless
+                // of sorting
+                for (Map.Entry<ViewKey, List<T>> entry : indexedViews
+                        .entrySet()) {
+                    if (Objects.equals(entry.getKey().filter, queryFilter)) {
+                        return entry.getValue().size();
+                    }
+                }
+            }
+        }
+        return getIndexedView(null, query).size();
+    }
+
+    private List<T> getIndexedView(Comparator<T> querySorting,
+            Query<T, SerializablePredicate<T>> query) {
+        ViewKey key = new ViewKey(querySorting,
+                query.getFilter().orElse(null));
+        synchronized (this) {
+            if (indexedViews == null) {
+                indexedViews = new LinkedHashMap<ViewKey, List<T>>(16, 0.75f,
+                        true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<ViewKey, List<T>> eldest) {
+                        return size() > MAX_INDEXED_VIEWS;
+                    }
+                };
+            }
+            List<T> view = indexedViews.get(key);
+            if (view == null) {
+                Stream<T> stream = getFilteredStream(query);
+                Optional<Comparator<T>> comparing = Stream
+                        .of(querySorting, sortOrder).filter(c -> c != null)
+                        .reduce((c1, c2) -> c1.thenComparing(c2));
+                if (comparing.isPresent()) {
+                    stream = stream.sorted(comparing.get());
+                }
+                view = Collections.unmodifiableList(
+                        stream.collect(Collectors.toList()));
+                indexedViews.put(key, view);
+            }
+            return view;
+        }
+    }
+
+    private synchronized void clearIndexedViews() {
+        indexedViews = null;
+    }
+
     private Stream<T> getFilteredStream(
             Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = backend.stream();
@@ -425,8 +425,18 @@ public abstract class AbstractClientConnector
     protected void addMethodInvocationToQueue(String interfaceName,
             Method method, Object[] parameters) {
         // add to queue
-        pendingInvocations.add(new ClientMethodInvocation(this, interfaceName,
+        addPendingInvocation(new ClientMethodInvocation(this, interfaceName,
                 method, parameters));
+    }
+
+    /**
+     * Adds an invocation to the pending RPC call queue.
+     *
+     * @param invocation
+     *            the invocation to add
+     */
+    void addPendingInvocation(ClientMethodInvocation invocation) {
+        pendingInvocations.add(invocation);
         // TODO no need to do full repaint if only RPC calls
         requestRepaint();
     }
@@ -40,6 +40,7 @@ public class ClientMethodInvocation
     private final String methodName;
     private transient Object[] parameters;
     private final Type[] parameterTypes;
+    private final String encodedParameters;
 
     // used for sorting calls between different connectors in the same UI
     private final long sequenceNumber;
@@ -53,6 +54,35 @@ public class ClientMethodInvocation
         methodName = method.getName();
         parameterTypes = method.getGenericParameterTypes();
         this.parameters = (null != parameters) ? parameters : new Object[0];
+        encodedParameters = null;
+        sequenceNumber = ++counter;
+    }
+
+    /**
+     * Creates an invocation with parameters that have already been encoded to
+     * JSON, e.g. to send the same invocation to many connectors without
+     * encoding the parameters separately for each of them.
+     *
+     * @param connector
+     *            the connector to invoke the method on
+     * @param interfaceName
+     *            the name of the RPC interface
+     * @param methodName
+     *            the name of the RPC method
+     * @param encodedParameters
+     *            the parameters as a JSON array string, not <code>null</code>
+     * @see ClientRpcBroadcast
+     * @since 8.15
+     */
+    public ClientMethodInvocation(ClientConnector connector,
+            String interfaceName, String methodName,
+            String encodedParameters) {
+        this.connector = connector;
+        this.interfaceName = interfaceName;
+        this.methodName = methodName;
+        parameterTypes = new Type[0];
+        parameters = new Object[0];
+        this.encodedParameters = encodedParameters;
         sequenceNumber = ++counter;
     }
 
@@ -76,6 +106,19 @@ public class ClientMethodInvocation
         return parameters;
     }
 
+    /**
+     * Gets the parameters of this invocation as a pre-encoded JSON array
+     * string. If this returns a non-null value, {@link #getParameters()} and
+     * {@link #getParameterTypes()} are empty.
+     *
+     * @return the encoded parameters, or <code>null</code> if the parameters
+     *         should be encoded from {@link #getParameters()}
+     * @since 8.15
+     */
+    public String getEncodedParameters() {
+        return encodedParameters;
+    }
+
     protected long getSequenceNumber() {
         return sequenceNumber;
     }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * A server to client RPC call that is sent to many connectors, with the
+ * parameters encoded to JSON only once.
+ * <p>
+ * When the same update is pushed to a large number of UIs, e.g. a chat
+ * message or a ticker value, invoking the RPC proxy of each connector
+ * separately encodes the same parameters once per recipient. A broadcast
+ * encodes them when created and shares the encoded form between all
+ * recipients. Each UI still writes its own UIDL message, since the sync id
+ * and connector ids of the message are specific to the UI.
+ * <p>
+ * The parameters are encoded without a connector tracker, so they must not
+ * contain references to connectors.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class ClientRpcBroadcast implements Serializable {
+
+    private final String interfaceName;
+    private final String methodName;
+    private final String encodedParameters;
+
+    private ClientRpcBroadcast(String interfaceName, String methodName,
+            String encodedParameters) {
+        this.interfaceName = interfaceName;
+        this.methodName = methodName;
+        this.encodedParameters = encodedParameters;
+    }
+
+    /**
+     * Creates a broadcast by recording a single method call on the given RPC
+     * interface. For instance
+     * {@code ClientRpcBroadcast.create(MyRpc.class, rpc -> rpc.update(value))}
+     * .
+     *
+     * @param rpcInterface
+     *            the RPC interface type, not <code>null</code>
+     * @param invocation
+     *            a callback that calls exactly one method of the given proxy,
+     *            not <code>null</code>
+     * @return a new broadcast, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the callback does not call exactly one RPC method
+     */
+    public static <T extends ClientRpc> ClientRpcBroadcast create(
+            Class<T> rpcInterface, SerializableConsumer<T> invocation) {
+        Objects.requireNonNull(rpcInterface, "RPC interface cannot be null");
+        Objects.requireNonNull(invocation, "Invocation cannot be null");
+
+        List<Method> methods = new ArrayList<>(1);
+        List<Object[]> arguments = new ArrayList<>(1);
+        T recorder = rpcInterface.cast(Proxy.newProxyInstance(
+                rpcInterface.getClassLoader(), new Class<?>[] { rpcInterface },
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(methods, args);
+                    }
+                    methods.add(method);
+                    arguments.add(args == null ? new Object[0] : args);
+                    return null;
+                }));
+        invocation.accept(recorder);
+        if (methods.size() != 1) {
+            throw new IllegalArgumentException(
+                    "The invocation must call exactly one method of "
+                            + rpcInterface.getName() + ", got "
+                            + methods.size());
+        }
+
+        Method method = methods.get(0);
+        Object[] args = arguments.get(0);
+        Type[] parameterTypes = method.getGenericParameterTypes();
+        JsonArray parameters = Json.createArray();
+        for (int i = 0; i < parameterTypes.length; ++i) {
+            parameters.set(i, JsonCodec
+                    .encode(args[i], null, parameterTypes[i], null)
+                    .getEncodedValue());
+        }
+        return new ClientRpcBroadcast(
+                rpcInterface.getName().replaceAll("\\$", "."),
+                method.getName(), JsonUtil.stringify(parameters));
+    }
+
+    /**
+     * Queues this RPC call to be sent to the given connector with the next
+     * response of its UI. The session of the connector must be locked.
+     *
+     * @param connector
+     *            the connector to send the call to, not <code>null</code>
+     */
+    public void addTo(AbstractClientConnector connector) {
+        VaadinSession session = connector.getSession();
+        assert session == null
+                || session.hasLock() : "Session must be locked when a connector is updated";
+        connector.addPendingInvocation(new ClientMethodInvocation(connector,
+                interfaceName, methodName, encodedParameters));
+    }
+
+    /**
+     * Sends this RPC call to all the given connectors. The connectors are
+     * grouped by UI, and the calls are added and pushed using
+     * {@link UI#access(Runnable)} once per UI. Connectors that are not
+     * attached to a UI are ignored.
+     * <p>
+     * The session of the caller should not be locked, as the UIs may belong
+     * to different sessions.
+     *
+     * @param connectors
+     *            the connectors to send the call to, not <code>null</code>
+     */
+    public void sendTo(Iterable<? extends AbstractClientConnector> connectors) {
+        Map<UI, List<AbstractClientConnector>> byUI = new LinkedHashMap<>();
+        for (AbstractClientConnector connector : connectors) {
+            UI ui = connector.getUI();
+            if (ui != null) {
+                byUI.computeIfAbsent(ui, key -> new ArrayList<>())
+                        .add(connector);
+            }
+        }
+
+        byUI.forEach((ui, uiConnectors) -> ui.access(() -> {
+            for (AbstractClientConnector connector : uiConnectors) {
+                // Might have been detached before the access task was run
+                if (connector.getUI() == ui) {
+                    addTo(connector);
+                }
+            }
+            if (ui.getPushConfiguration()
+                    .getPushMode() == PushMode.MANUAL) {
+                ui.push();
+            }
+        }));
+    }
+
+    /**
+     * Gets the name of the RPC interface of this call.
+     *
+     * @return the RPC interface name
+     */
+    public String getInterfaceName() {
+        return interfaceName;
+    }
+
+    /**
+     * Gets the name of the RPC method of this call.
+     *
+     * @return the RPC method name
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * Gets the parameters of this call, encoded as a JSON array.
+     *
+     * @return the encoded parameters
+     */
+    public String getEncodedParameters() {
+        return encodedParameters;
+    }
+}
@@ -62,7 +62,16 @@ public class ConnectorResourceHandler implements RequestHandler {
         String cid = matcher.group(2);
         String key = matcher.group(3);
 
-        session.lock();
+        // Only looks up the connector, the request is handled without a lock.
+        // Looking up the drag and drop service may create it, which changes
+        // the session and needs the exclusive lock.
+        boolean exclusive = ApplicationConstants.DRAG_AND_DROP_CONNECTOR_ID
+                .equals(cid);
+        if (exclusive) {
+            session.lock();
+        } else {
+            session.lockForReading();
+        }
         UI ui;
         ClientConnector connector;
         try {
@@ -81,7 +90,11 @@ public class ConnectorResourceHandler implements RequestHandler {
             }
 
         } finally {
-            session.unlock();
+            if (exclusive) {
+                session.unlock();
+            } else {
+                session.unlockForReading();
+            }
         }
 
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
@@ -126,6 +126,57 @@ public interface Constants {
      */
     static final String SERVLET_PARAMETER_LEGACY_DESIGN_PREFIX = "legacyDesignPrefix";
 
+    /**
+     * Name of the parameter for the number of seconds after the last request
+     * until an idle session is passivated to the session store, if a store is
+     * used.
+     *
+     * @see VaadinService#createSessionStore()
+     * @since 8.15
+     */
+    static final String SERVLET_PARAMETER_SESSION_PASSIVATION_DELAY = "sessionPassivationDelay";
+
+    /**
+     * Name of the parameter for the number of threads used for running tasks
+     * queued with {@link VaadinSession#access(Runnable)}. By default, 0, which
+     * means that the tasks are run by the threads that lock the sessions.
+     *
+     * @see SessionAccessExecutor
+     * @since 8.15
+     */
+    static final String SERVLET_PARAMETER_SESSION_ACCESS_THREADS = "sessionAccessThreads";
+
+    /**
+     * Name of the boolean parameter for closing inactive UIs and sessions in
+     * the background, instead of only at the end of requests to the same
+     * session. By default, <code>false</code>.
+     *
+     * @see VaadinService#cleanupSession(VaadinSession)
+     * @since 8.15
+     */
+    static final String SERVLET_PARAMETER_BACKGROUND_SESSION_CLEANUP = "backgroundSessionCleanup";
+
+    /**
+     * Name of the boolean parameter for compressing UIDL responses with gzip
+     * when the browser accepts it. By default, <code>false</code>.
+     *
+     * @see VaadinService#isUidlCompressionEnabled()
+     * @since 8.15
+     */
+    static final String SERVLET_PARAMETER_COMPRESS_UIDL_RESPONSES = "compressUidlResponses";
+
+    /**
+     * Name of the parameter for the maximum size in kilobytes of the in-memory
+     * cache of static resources served from the VAADIN directory. The cache is
+     * only used in production mode. By default, 0, which disables the cache.
+     *
+     * @see VaadinServlet#serveStaticResourcesInVAADIN(String,
+     *      javax.servlet.http.HttpServletRequest,
+     *      javax.servlet.http.HttpServletResponse)
+     * @since 8.15
+     */
+    static final String SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE = "staticResourceCacheSize";
+
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
 
@@ -137,6 +188,8 @@ public interface Constants {
 
     static final int DEFAULT_THEME_CACHETIME = 1000 * 60 * 60 * 24;
 
+    static final int DEFAULT_SESSION_PASSIVATION_DELAY = 120;
+
     static final String WIDGETSET_DIR_PATH = "VAADIN/widgetsets";
 
     // Name of the default widget set, used if not specified in web.xml
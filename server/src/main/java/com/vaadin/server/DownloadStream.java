@@ -238,6 +238,12 @@ public class DownloadStream implements Serializable {
      * response. If there's is a parameter named <code>Location</code>, a
      * redirect (302 Moved temporarily) is sent instead of the contents of this
      * stream.
+     * <p>
+     * If the length of the stream is known from a <code>Content-Length</code>
+     * parameter, a request for a single byte range is answered with only that
+     * part of the stream (206 Partial Content). An <code>If-Range</code>
+     * request header is compared with the <code>ETag</code> and
+     * <code>Last-Modified</code> parameters.
      *
      * @param request
      *            the request for which the response should be written
@@ -293,25 +299,40 @@ public class DownloadStream implements Serializable {
 
                 response.setHeader(CONTENT_DISPOSITION, contentDisposition);
 
-                int bufferSize = getBufferSize();
-                if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
-                    bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+                long start = 0;
+                long count = -1;
+                long length = getContentLength();
+                if (length >= 0) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    String range = request != null
+                            ? request.getHeader("Range")
+                            : null;
+                    long[] bounds = range != null && isIfRangeMatching(request)
+                            ? parseByteRange(range, length)
+                            : null;
+                    if (bounds != null && bounds.length == 0) {
+                        response.setHeader("Content-Range",
+                                "bytes */" + length);
+                        response.setHeader("Content-Length", "0");
+                        response.setStatus(
+                                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                        return;
+                    } else if (bounds != null) {
+                        start = bounds[0];
+                        count = bounds[1] - bounds[0] + 1;
+                        response.setStatus(
+                                HttpServletResponse.SC_PARTIAL_CONTENT);
+                        response.setHeader("Content-Range", "bytes "
+                                + bounds[0] + "-" + bounds[1] + "/" + length);
+                        response.setHeader("Content-Length",
+                                String.valueOf(count));
+                    }
                 }
-                final byte[] buffer = new byte[bufferSize];
-                int bytesRead = 0;
 
                 out = response.getOutputStream();
 
-                long totalWritten = 0;
-                while ((bytesRead = data.read(buffer)) > 0) {
-                    out.write(buffer, 0, bytesRead);
-
-                    totalWritten += bytesRead;
-                    if (totalWritten >= buffer.length) {
-                        // Avoid chunked encoding for small resources
-                        out.flush();
-                    }
-                }
+                skipFully(data, start);
+                copy(data, out, count);
             } finally {
                 tryToCloseStream(out);
                 tryToCloseStream(data);
@@ -319,6 +340,116 @@ public class DownloadStream implements Serializable {
         }
     }
 
+    private long getContentLength() {
+        String contentLength = getParameter("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private boolean isIfRangeMatching(VaadinRequest request) {
+        String ifRange = request.getHeader("If-Range");
+        // Without a validator, the range cannot be known to be from the same
+        // version of the content
+        return ifRange == null || ifRange.equals(getParameter("ETag"))
+                || ifRange.equals(getParameter("Last-Modified"));
+    }
+
+    private void copy(InputStream data, OutputStream out, long count)
+            throws IOException {
+        int bufferSize = getBufferSize();
+        if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
+            bufferSize = Constants.DEFAULT_BUFFER_SIZE;
+        }
+        final byte[] buffer = new byte[bufferSize];
+        int bytesRead = 0;
+
+        long remaining = count >= 0 ? count : Long.MAX_VALUE;
+        long totalWritten = 0;
+        while (remaining > 0 && (bytesRead = data.read(buffer, 0,
+                (int) Math.min(buffer.length, remaining))) > 0) {
+            out.write(buffer, 0, bytesRead);
+            remaining -= bytesRead;
+
+            totalWritten += bytesRead;
+            if (totalWritten >= buffer.length) {
+                // Avoid chunked encoding for small resources
+                out.flush();
+            }
+        }
+    }
+
+    private static void skipFully(InputStream data, long count)
+            throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = data.skip(remaining);
+            if (skipped <= 0) {
+                if (data.read() < 0) {
+                    return;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Parses the value of a Range header with a single byte range.
+     *
+     * @param range
+     *            the value of the Range header, not <code>null</code>
+     * @param length
+     *            the length of the content
+     * @return the first and last byte position, an empty array if the range
+     *         cannot be satisfied, or <code>null</code> if the header is not a
+     *         single valid byte range
+     */
+    static long[] parseByteRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix < 0) {
+                    return null;
+                } else if (suffix == 0) {
+                    return new long[0];
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? length - 1
+                        : Math.min(Long.parseLong(spec.substring(dash + 1)),
+                                length - 1);
+                if (end < start && start < length) {
+                    return null;
+                }
+            }
+            if (start < 0 || start >= length) {
+                return new long[0];
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Returns the filename formatted for inclusion in a Content-Disposition
      * header. Includes both a plain version of the name and a UTF-8 version
@@ -71,6 +71,11 @@ public class FileResource implements ConnectorResource {
                     getFilename());
             ds.setParameter("Content-Length",
                     String.valueOf(sourceFile.length()));
+            // Lets browsers resume interrupted downloads with If-Range
+            ds.setParameter("ETag",
+                    "\"" + Long.toHexString(sourceFile.length()) + "-"
+                            + Long.toHexString(sourceFile.lastModified())
+                            + "\"");
 
             ds.setBufferSize(getBufferSize());
             ds.setCacheTime(getCacheTime());
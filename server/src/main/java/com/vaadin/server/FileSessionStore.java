@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link SessionStore} that stores each passivated session in a file in a
+ * local directory.
+ * <p>
+ * The stored sessions are kept outside the Java heap. Recently written
+ * sessions are typically served from the operating system file cache, so
+ * loading a session back does not necessarily require reading the disk.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class FileSessionStore implements SessionStore {
+
+    private static final Pattern KEY_PATTERN = Pattern
+            .compile("[a-zA-Z0-9-]+");
+
+    private static final String FILE_SUFFIX = ".session";
+
+    private final File directory;
+
+    /**
+     * Creates a new store that keeps sessions in the given directory. The
+     * directory is created if it does not exist.
+     *
+     * @param directory
+     *            the directory to store sessions in, not <code>null</code>
+     */
+    public FileSessionStore(File directory) {
+        this.directory = Objects.requireNonNull(directory,
+                "Directory cannot be null");
+    }
+
+    /**
+     * Gets the directory where sessions are stored.
+     *
+     * @return the directory, not <code>null</code>
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void store(String key, SessionData data) throws IOException {
+        Path target = getPath(key);
+        Files.createDirectories(target.getParent());
+
+        // Write to a temporary file first so that a partially written file
+        // is never loaded
+        Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(
+                    Files.newOutputStream(temp))) {
+                data.writeTo(out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream load(String key) throws IOException {
+        try {
+            return new BufferedInputStream(
+                    Files.newInputStream(getPath(key)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        Files.deleteIfExists(getPath(key));
+    }
+
+    private Path getPath(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid session key: " + key);
+        }
+        return directory.toPath().resolve(key + FILE_SUFFIX);
+    }
+}
@@ -20,6 +20,9 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -111,29 +114,45 @@ public class JsonCodec implements Serializable {
 
     private static class FieldProperty implements BeanProperty {
         private final Field field;
+        private final String name;
+        private final Type type;
+
+        // Method handles are not serializable, created lazily
+        private transient MethodHandle getter;
+        private transient MethodHandle setter;
 
         public FieldProperty(Field field) {
             this.field = field;
+            name = field.getName();
+            type = field.getGenericType();
+            getter = createFieldGetter(field);
+            setter = createFieldSetter(field);
         }
 
         @Override
         public Object getValue(Object bean) throws Exception {
-            return field.get(bean);
+            if (getter == null) {
+                getter = createFieldGetter(field);
+            }
+            return invokeGetter(getter, bean);
         }
 
         @Override
         public void setValue(Object bean, Object value) throws Exception {
-            field.set(bean, value);
+            if (setter == null) {
+                setter = createFieldSetter(field);
+            }
+            invokeSetter(setter, bean, value);
         }
 
         @Override
         public String getName() {
-            return field.getName();
+            return name;
         }
 
         @Override
         public Type getType() {
-            return field.getGenericType();
+            return type;
         }
 
         public static Collection<FieldProperty> find(Class<?> type)
@@ -154,28 +173,42 @@ public class JsonCodec implements Serializable {
 
     private static class MethodProperty implements BeanProperty {
         private final PropertyDescriptor pd;
+        private final String name;
+        private final Type type;
+
+        // Method handles are not serializable, created lazily
+        private transient MethodHandle getter;
+        private transient MethodHandle setter;
 
         public MethodProperty(PropertyDescriptor pd) {
             this.pd = pd;
+            String fieldName = pd.getWriteMethod().getName().substring(3);
+            name = Character.toLowerCase(fieldName.charAt(0))
+                    + fieldName.substring(1);
+            type = pd.getReadMethod().getGenericReturnType();
+            getter = createMethodHandle(pd.getReadMethod(), GETTER_TYPE);
+            setter = createMethodHandle(pd.getWriteMethod(), SETTER_TYPE);
         }
 
         @Override
         public Object getValue(Object bean) throws Exception {
-            Method readMethod = pd.getReadMethod();
-            return readMethod.invoke(bean);
+            if (getter == null) {
+                getter = createMethodHandle(pd.getReadMethod(), GETTER_TYPE);
+            }
+            return invokeGetter(getter, bean);
         }
 
         @Override
         public void setValue(Object bean, Object value) throws Exception {
-            pd.getWriteMethod().invoke(bean, value);
+            if (setter == null) {
+                setter = createMethodHandle(pd.getWriteMethod(), SETTER_TYPE);
+            }
+            invokeSetter(setter, bean, value);
         }
 
         @Override
         public String getName() {
-            String fieldName = pd.getWriteMethod().getName().substring(3);
-            fieldName = Character.toLowerCase(fieldName.charAt(0))
-                    + fieldName.substring(1);
-            return fieldName;
+            return name;
         }
 
         public static Collection<MethodProperty> find(Class<?> type)
@@ -195,11 +228,91 @@ public class JsonCodec implements Serializable {
 
         @Override
         public Type getType() {
-            return pd.getReadMethod().getGenericReturnType();
+            return type;
         }
 
     }
 
+    private static final MethodType GETTER_TYPE = MethodType
+            .methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType
+            .methodType(void.class, Object.class, Object.class);
+
+    // Reflective fallbacks for members that method handles cannot access
+    private static final MethodHandle FIELD_GET;
+    private static final MethodHandle FIELD_SET;
+    private static final MethodHandle METHOD_INVOKE;
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            FIELD_GET = lookup.findVirtual(Field.class, "get",
+                    MethodType.methodType(Object.class, Object.class));
+            FIELD_SET = lookup.findVirtual(Field.class, "set", MethodType
+                    .methodType(void.class, Object.class, Object.class));
+            METHOD_INVOKE = lookup.findVirtual(Method.class, "invoke",
+                    MethodType.methodType(Object.class, Object.class,
+                            Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle createFieldGetter(Field field) {
+        try {
+            return MethodHandles.lookup().unreflectGetter(field)
+                    .asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            // Let Field.get report the problem when the value is read
+            return FIELD_GET.bindTo(field);
+        }
+    }
+
+    private static MethodHandle createFieldSetter(Field field) {
+        try {
+            return MethodHandles.lookup().unreflectSetter(field)
+                    .asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            // Let Field.set report the problem when the value is written,
+            // e.g. for final fields
+            return FIELD_SET.bindTo(field);
+        }
+    }
+
+    private static MethodHandle createMethodHandle(Method method,
+            MethodType type) {
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            // Let Method.invoke report the problem when the method is called
+            return METHOD_INVOKE.bindTo(method)
+                    .asCollector(Object[].class, type.parameterCount() - 1)
+                    .asType(type);
+        }
+    }
+
+    private static Object invokeGetter(MethodHandle getter, Object bean)
+            throws Exception {
+        try {
+            return (Object) getter.invokeExact(bean);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    private static void invokeSetter(MethodHandle setter, Object bean,
+            Object value) throws Exception {
+        try {
+            setter.invokeExact(bean, value);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
     /**
      * Cache the collection of bean properties for a given type to avoid doing a
      * quite expensive lookup multiple times. Will be used from any thread that
@@ -93,6 +93,15 @@ public class LegacyCommunicationManager implements Serializable {
         UI uI = connector.getUI();
         ConnectorTracker connectorTracker = uI.getConnectorTracker();
         Class<? extends SharedState> stateType = connector.getStateType();
+        boolean compact = connectorTracker.isCompactDiffStateEnabled();
+        if (compact) {
+            StateSnapshot snapshot = connectorTracker
+                    .getStateSnapshot(connector);
+            if (snapshot != null && snapshot.getStateType() == stateType) {
+                return snapshot.encodeChanges(state, connectorTracker);
+            }
+        }
+
         JsonValue diffState = connectorTracker.getDiffState(connector);
 
         if (diffState == null) {
@@ -106,8 +115,13 @@ public class LegacyCommunicationManager implements Serializable {
         }
         EncodeResult encodeResult = JsonCodec.encode(state, diffState,
                 stateType, uI.getConnectorTracker());
-        connectorTracker.setDiffState(connector,
-                (JsonObject) encodeResult.getEncodedValue());
+        JsonObject encodedState = (JsonObject) encodeResult.getEncodedValue();
+        if (compact) {
+            connectorTracker.setStateSnapshot(connector,
+                    StateSnapshot.create(state, stateType, encodedState));
+        } else {
+            connectorTracker.setDiffState(connector, encodedState);
+        }
 
         return (JsonObject) encodeResult.getDiff();
     }
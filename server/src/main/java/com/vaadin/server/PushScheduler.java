@@ -0,0 +1,106 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.ui.PushConfiguration;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import com.vaadin.util.TimerWheel;
+
+/**
+ * Coalesces automatic pushes of UIs that have a
+ * {@link PushConfiguration#setPushInterval(int) push interval}. Changes made
+ * within the interval after the previous push are pushed together when the
+ * interval has passed, using a timer shared by all UIs of the service. The
+ * timer thread only hands the delayed pushes over to an executor, so that
+ * slow access tasks or pushes of one UI do not delay the timer.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+final class PushScheduler {
+
+    private final TimerWheel timerWheel;
+    private final Executor flushExecutor;
+
+    // UIs that have a delayed push waiting in the timer or the executor
+    private final Set<UI> scheduled = ConcurrentHashMap.newKeySet();
+
+    PushScheduler(TimerWheel timerWheel, Executor flushExecutor) {
+        this.timerWheel = timerWheel;
+        this.flushExecutor = flushExecutor;
+    }
+
+    /**
+     * Pushes the pending changes of the given UI if its push interval has
+     * passed since the previous push, or schedules a push for when the
+     * interval has passed otherwise. The session of the UI must be locked.
+     *
+     * @param ui
+     *            the UI to push, not <code>null</code>
+     */
+    void push(UI ui) {
+        assert ui.getSession().hasLock();
+
+        if (scheduled.contains(ui)) {
+            // The changes will be included in the scheduled push
+            return;
+        }
+        long delay = ui.getLastPushTimestamp()
+                + ui.getPushConfiguration().getPushInterval()
+                - System.currentTimeMillis();
+        if (delay <= 0) {
+            ui.push();
+        } else if (ui.getConnectorTracker().hasDirtyConnectors()) {
+            scheduled.add(ui);
+            try {
+                timerWheel.schedule(() -> handOff(ui), delay,
+                        TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException e) {
+                // The service is being destroyed, the UI must not be left
+                // waiting for a push that never happens
+                scheduled.remove(ui);
+            }
+        }
+    }
+
+    private void handOff(UI ui) {
+        try {
+            flushExecutor.execute(() -> flush(ui));
+        } catch (RejectedExecutionException e) {
+            // Shut down
+            scheduled.remove(ui);
+        }
+    }
+
+    private void flush(UI ui) {
+        scheduled.remove(ui);
+        try {
+            // The changes are pushed when the session is unlocked after
+            // running the task
+            ui.access(() -> {
+            });
+        } catch (UIDetachedException e) {
+            // Nothing to push to a detached UI
+        }
+    }
+}
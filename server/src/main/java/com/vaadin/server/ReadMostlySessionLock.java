@@ -0,0 +1,203 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A session lock that, in addition to the normal exclusive lock, supports a
+ * shared lock for handlers that only read the session.
+ * <p>
+ * With the default {@link ReentrantLock}, all requests of a session are
+ * handled one at a time, so heartbeats and connector resource downloads from
+ * other browser tabs wait for each other and for UIDL requests, and each of
+ * them runs the pending access tasks and pushes when releasing the lock. With
+ * this lock, such read-only handlers use {@link VaadinSession#lockForReading()}
+ * and can run concurrently with each other. The session of a heartbeat or
+ * connector resource request is also found and the request ended with the
+ * shared lock, unless the session needs to be loaded or cleaned up. The
+ * duration of those requests is then not recorded in the session.
+ * <p>
+ * Read-only requests still wait while the exclusive lock is held, e.g. by a
+ * UIDL request, so that they never see the session in the middle of a change.
+ * <p>
+ * The exclusive lock behaves like a {@link ReentrantLock}. The shared lock is
+ * reentrant, and a thread holding it must not acquire the exclusive lock.
+ * If the exclusive lock is already held by the current thread, locking for
+ * reading does nothing.
+ * <p>
+ * To use this lock, override {@link VaadinService#createSessionLock()}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class ReadMostlySessionLock extends ReentrantLock {
+
+    private final StampedLock stampedLock = new StampedLock();
+
+    // Only accessed by the thread holding the exclusive lock
+    private transient long writeStamp;
+
+    // Number of shared lock holds of each thread, only set while held
+    private transient ThreadLocal<int[]> readHolds = new ThreadLocal<>();
+
+    @Override
+    public void lock() {
+        super.lock();
+        if (getHoldCount() == 1) {
+            writeStamp = stampedLock.writeLock();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        super.lockInterruptibly();
+        if (getHoldCount() == 1) {
+            try {
+                writeStamp = stampedLock.writeLockInterruptibly();
+            } catch (InterruptedException e) {
+                super.unlock();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!super.tryLock()) {
+            return false;
+        }
+        if (getHoldCount() == 1) {
+            long stamp = stampedLock.tryWriteLock();
+            if (stamp == 0) {
+                super.unlock();
+                return false;
+            }
+            writeStamp = stamp;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!super.tryLock(timeout, unit)) {
+            return false;
+        }
+        if (getHoldCount() == 1) {
+            long stamp;
+            try {
+                stamp = stampedLock.tryWriteLock(
+                        Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                super.unlock();
+                throw e;
+            }
+            if (stamp == 0) {
+                super.unlock();
+                return false;
+            }
+            writeStamp = stamp;
+        }
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (isHeldByCurrentThread() && getHoldCount() == 1) {
+            stampedLock.unlockWrite(writeStamp);
+        }
+        super.unlock();
+    }
+
+    /**
+     * Not supported, since waiting for a condition would not release the
+     * shared lock for other threads.
+     *
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException(
+                "Conditions are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Acquires the shared lock, waiting while another thread holds the
+     * exclusive lock. Does nothing if the current thread holds the exclusive
+     * lock.
+     */
+    public void lockRead() {
+        if (isHeldByCurrentThread()) {
+            return;
+        }
+        int[] holds = readHolds.get();
+        if (holds == null) {
+            stampedLock.readLock();
+            readHolds.set(new int[] { 1 });
+        } else {
+            // Nested holds do not take the lock again, which could also block
+            // behind a thread waiting for the exclusive lock
+            ++holds[0];
+        }
+    }
+
+    /**
+     * Releases the shared lock acquired with {@link #lockRead()}. Does nothing
+     * if the current thread holds the exclusive lock.
+     *
+     * @throws IllegalMonitorStateException
+     *             if the shared lock is not held
+     */
+    public void unlockRead() {
+        if (isHeldByCurrentThread()) {
+            return;
+        }
+        int[] holds = readHolds.get();
+        if (holds == null) {
+            throw new IllegalMonitorStateException(
+                    "The shared lock is not held by the current thread");
+        }
+        if (--holds[0] == 0) {
+            readHolds.remove();
+            stampedLock.tryUnlockRead();
+        }
+    }
+
+    /**
+     * Checks whether the current thread holds the shared lock.
+     *
+     * @return <code>true</code> if the current thread holds the shared lock,
+     *         <code>false</code> otherwise
+     */
+    public boolean isReadLockedByCurrentThread() {
+        return readHolds.get() != null;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        readHolds = new ThreadLocal<>();
+    }
+}
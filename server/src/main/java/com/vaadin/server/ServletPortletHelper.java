@@ -149,6 +149,11 @@ public class ServletPortletHelper implements Serializable {
                 ApplicationConstants.HEARTBEAT_PATH + '/');
     }
 
+    static boolean isConnectorResourceRequest(VaadinRequest request) {
+        return hasPathPrefix(request, ApplicationConstants.APP_PATH + '/'
+                + ConnectorResource.CONNECTOR_PATH + '/');
+    }
+
     public static boolean isPushRequest(VaadinRequest request) {
         return isPathInfo(request, ApplicationConstants.PUSH_PATH);
     }
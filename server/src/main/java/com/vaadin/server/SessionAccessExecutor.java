@@ -0,0 +1,204 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vaadin.util.ExecutorUtil;
+
+/**
+ * Runs the tasks queued with {@link VaadinSession#access(Runnable)} on
+ * dedicated threads instead of request threads.
+ * <p>
+ * Without an executor, queued tasks are run by the thread that queued them if
+ * the session is not locked, and otherwise by whichever thread unlocks the
+ * session next, typically a thread handling an unrelated request. With an
+ * executor, the tasks of a session are always run by a thread of the
+ * executor, which locks the session, runs the tasks, pushes the changes and
+ * unlocks the session. The executor uses virtual threads on Java versions
+ * that support them.
+ * <p>
+ * To share the threads fairly between sessions, at most
+ * {@value #BATCH_SIZE} tasks of one session are run at a time. If more tasks
+ * are queued, the session is put back at the end of the queue of the
+ * executor. A thread of the executor never waits for a session lock. If the
+ * session is locked by another thread, that thread schedules the session
+ * again when it unlocks the session.
+ *
+ * @see Constants#SERVLET_PARAMETER_SESSION_ACCESS_THREADS
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public final class SessionAccessExecutor {
+
+    /**
+     * The maximum number of tasks of one session to run before letting other
+     * sessions run their tasks.
+     */
+    public static final int BATCH_SIZE = 16;
+
+    /**
+     * Delay in milliseconds before checking again a session that was locked
+     * by another thread, in case that thread had already checked for queued
+     * tasks before the session was scheduled.
+     */
+    private static final long RETRY_DELAY_MS = 50;
+
+    private final VaadinService service;
+    private final ExecutorService executor;
+
+    // Sessions waiting for a thread. A session is removed when a thread
+    // starts running its tasks, so that tasks queued after that schedule a
+    // new run.
+    private final Set<VaadinSession> scheduledSessions = ConcurrentHashMap
+            .newKeySet();
+
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    SessionAccessExecutor(VaadinService service, int maxThreads) {
+        this.service = service;
+        executor = ExecutorUtil.createBoundedExecutor("vaadin-access-",
+                maxThreads);
+    }
+
+    /**
+     * Makes sure the queued tasks of the given session will be run by the
+     * executor.
+     *
+     * @param session
+     *            the session with queued tasks
+     */
+    void schedule(VaadinSession session) {
+        if (scheduledSessions.add(session)) {
+            try {
+                executor.execute(() -> runTasks(session));
+            } catch (RejectedExecutionException e) {
+                // Shut down
+                scheduledSessions.remove(session);
+            }
+        }
+    }
+
+    private void runTasks(VaadinSession session) {
+        // Tasks queued after this point schedule a new run
+        scheduledSessions.remove(session);
+        if (!session.getLockInstance().tryLock()) {
+            // Busy sessions must not hold up the threads for other sessions.
+            // The thread holding the lock schedules the session again when
+            // unlocking, the retry covers the case where it already checked
+            // the queue.
+            try {
+                service.getTimerWheel().schedule(() -> schedule(session),
+                        RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException e) {
+                // Shut down
+            }
+            return;
+        }
+        try {
+            service.runPendingAccessTasks(session, BATCH_SIZE);
+        } finally {
+            // Pushes the changes and schedules the session again if there are
+            // tasks left
+            session.unlock();
+        }
+    }
+
+    void taskQueued() {
+        queuedTasks.incrementAndGet();
+    }
+
+    void taskDequeued(long waitNanos) {
+        queuedTasks.decrementAndGet();
+        completedTasks.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Gets the number of tasks currently queued and waiting to be run.
+     *
+     * @return the number of queued tasks
+     */
+    public int getQueuedTaskCount() {
+        return queuedTasks.get();
+    }
+
+    /**
+     * Gets the number of sessions currently waiting for a thread of the
+     * executor.
+     *
+     * @return the number of waiting sessions
+     */
+    public int getWaitingSessionCount() {
+        return scheduledSessions.size();
+    }
+
+    /**
+     * Gets the number of tasks that have been taken from the queue to be run
+     * or discarded as cancelled.
+     *
+     * @return the number of completed tasks
+     */
+    public long getCompletedTaskCount() {
+        return completedTasks.sum();
+    }
+
+    /**
+     * Gets the average time completed tasks have waited in the queue.
+     *
+     * @param unit
+     *            the unit of the returned time, not <code>null</code>
+     * @return the average wait time, or 0 if no tasks have been completed
+     */
+    public long getAverageWaitTime(TimeUnit unit) {
+        long count = completedTasks.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return unit.convert(totalWaitNanos.sum() / count,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the longest time a completed task has waited in the queue.
+     *
+     * @param unit
+     *            the unit of the returned time, not <code>null</code>
+     * @return the maximum wait time, or 0 if no tasks have been completed
+     */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops accepting new sessions. Tasks that are already running are
+     * completed.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+}
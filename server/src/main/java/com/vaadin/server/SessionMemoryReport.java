@@ -0,0 +1,437 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.data.provider.DataCommunicator;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.UI;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * An estimate of the heap memory used by the UIs of a {@link VaadinSession}.
+ * Reports are created using {@link VaadinSession#getMemoryReport()}.
+ * <p>
+ * The sizes are rough estimates that are cheap to compute, not exact retained
+ * sizes. For each connector attached to a UI, the estimate includes the
+ * connector and shared state objects, the registration of the connector in
+ * the {@link ConnectorTracker} and the diff state or state snapshot kept for
+ * it. For {@link DataCommunicator}s, the bookkeeping of active and updated
+ * data is included. Objects that are typically shared with other sessions or
+ * owned by the application, such as data items and resources, are not
+ * included. The sizes assume a 64-bit JVM.
+ * <p>
+ * The estimates are mainly intended for comparing sessions with each other,
+ * for example to find sessions to limit or close when the server runs low on
+ * memory. The values can be exported to a monitoring system using
+ * {@link #getMetrics()}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class SessionMemoryReport implements Serializable {
+
+    /**
+     * The prefix of the names returned by {@link #getMetrics()}.
+     */
+    public static final String METRIC_PREFIX = "vaadin.session.memory.";
+
+    static final int OBJECT_HEADER = 16;
+    static final int REFERENCE = 8;
+    static final int MAP_ENTRY = 48;
+    static final int MAP = 64;
+
+    // Active keys are stored in the active data set and in both directions
+    // of the key mapper, the key string itself is typically short
+    private static final int ACTIVE_KEY = 3 * MAP_ENTRY + 48;
+
+    private static final Map<Class<?>, Long> SHALLOW_SIZE_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The memory used by the bookkeeping of a {@link DataCommunicator}.
+     */
+    public static class DataCommunicatorUsage implements Serializable {
+        private final int uiId;
+        private final String connectorId;
+        private final String type;
+        private final int activeDataCount;
+        private final int updatedDataCount;
+        private final long estimate;
+
+        private DataCommunicatorUsage(int uiId, String connectorId,
+                String type, int activeDataCount, int updatedDataCount,
+                long estimate) {
+            this.uiId = uiId;
+            this.connectorId = connectorId;
+            this.type = type;
+            this.activeDataCount = activeDataCount;
+            this.updatedDataCount = updatedDataCount;
+            this.estimate = estimate;
+        }
+
+        /**
+         * Gets the id of the UI the data communicator belongs to.
+         *
+         * @return the UI id
+         */
+        public int getUIId() {
+            return uiId;
+        }
+
+        /**
+         * Gets the connector id of the data communicator.
+         *
+         * @return the connector id
+         */
+        public String getConnectorId() {
+            return connectorId;
+        }
+
+        /**
+         * Gets the fully qualified class name of the component the data
+         * communicator is attached to.
+         *
+         * @return the class name of the parent component, or the class name
+         *         of the data communicator if it has no parent
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Gets the number of data objects that are active on the client side.
+         *
+         * @return the number of active data objects
+         * @see DataCommunicator#getActiveDataCount()
+         */
+        public int getActiveDataCount() {
+            return activeDataCount;
+        }
+
+        /**
+         * Gets the number of data objects that have been updated but not yet
+         * sent to the client.
+         *
+         * @return the number of updated data objects
+         * @see DataCommunicator#getUpdatedDataCount()
+         */
+        public int getUpdatedDataCount() {
+            return updatedDataCount;
+        }
+
+        /**
+         * Gets the estimated size of the data bookkeeping, excluding the data
+         * objects themselves.
+         *
+         * @return the estimated size in bytes
+         */
+        public long getEstimate() {
+            return estimate;
+        }
+    }
+
+    private final Map<Integer, Long> uiEstimates = new LinkedHashMap<>();
+    private final Map<String, Long> connectorTypeEstimates = new TreeMap<>();
+    private final Map<String, Integer> connectorTypeCounts = new TreeMap<>();
+    private final List<DataCommunicatorUsage> dataCommunicators = new ArrayList<>();
+    private int connectorCount;
+    private int diffStateCount;
+    private long diffStateEstimate;
+    private long totalEstimate;
+
+    private SessionMemoryReport() {
+        // Created using create(VaadinSession)
+    }
+
+    /**
+     * Creates a report of the given session. The session must be locked.
+     *
+     * @param session
+     *            the session to report, not <code>null</code>
+     * @return a new report, not <code>null</code>
+     */
+    static SessionMemoryReport create(VaadinSession session) {
+        SessionMemoryReport report = new SessionMemoryReport();
+        for (UI ui : session.getUIs()) {
+            report.addUI(ui);
+        }
+        return report;
+    }
+
+    private void addUI(UI ui) {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        long uiEstimate = shallowSize(ConnectorTracker.class);
+
+        Deque<ClientConnector> connectors = new ArrayDeque<>();
+        connectors.push(ui);
+        while (!connectors.isEmpty()) {
+            ClientConnector connector = connectors.pop();
+            for (ClientConnector child : AbstractClientConnector
+                    .getAllChildrenIterable(connector)) {
+                connectors.push(child);
+            }
+            if (tracker.getConnector(connector.getConnectorId()) != connector) {
+                // Not registered yet, nothing has been sent for it
+                continue;
+            }
+            uiEstimate += addConnector(ui, tracker, connector);
+        }
+
+        uiEstimates.put(ui.getUIId(), uiEstimate);
+        totalEstimate += uiEstimate;
+    }
+
+    private long addConnector(UI ui, ConnectorTracker tracker,
+            ClientConnector connector) {
+        String connectorId = connector.getConnectorId();
+        long estimate = shallowSize(connector.getClass())
+                + shallowSize(connector.getStateType()) + MAP_ENTRY
+                + stringSize(connectorId);
+
+        StateSnapshot snapshot = tracker.getStateSnapshot(connector);
+        long diffState = 0;
+        if (snapshot != null) {
+            diffState = snapshot.estimateSize();
+        } else {
+            // No snapshot, so this does not convert anything
+            JsonObject diffStateJson = tracker.getDiffState(connector);
+            if (diffStateJson != null) {
+                diffState = MAP_ENTRY + jsonSize(diffStateJson);
+            }
+        }
+        if (diffState > 0) {
+            diffStateCount++;
+            diffStateEstimate += diffState;
+            estimate += diffState;
+        }
+
+        if (connector instanceof DataCommunicator) {
+            DataCommunicator<?> dataCommunicator = (DataCommunicator<?>) connector;
+            int active = dataCommunicator.getActiveDataCount();
+            int updated = dataCommunicator.getUpdatedDataCount();
+            long dataEstimate = (long) active * ACTIVE_KEY
+                    + (long) updated * MAP_ENTRY;
+            ClientConnector parent = connector.getParent();
+            String type = (parent != null ? parent : connector).getClass()
+                    .getName();
+            dataCommunicators.add(new DataCommunicatorUsage(ui.getUIId(),
+                    connectorId, type, active, updated, dataEstimate));
+            estimate += dataEstimate;
+        }
+
+        String type = connector.getClass().getName();
+        connectorTypeEstimates.merge(type, estimate, Long::sum);
+        connectorTypeCounts.merge(type, 1, Integer::sum);
+        connectorCount++;
+        return estimate;
+    }
+
+    /**
+     * Gets the estimated total size of all UIs in the session.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getTotalEstimate() {
+        return totalEstimate;
+    }
+
+    /**
+     * Gets the estimated size of each UI in the session.
+     *
+     * @return an unmodifiable map from UI id to estimated size in bytes
+     */
+    public Map<Integer, Long> getUIEstimates() {
+        return Collections.unmodifiableMap(uiEstimates);
+    }
+
+    /**
+     * Gets the estimated size of all connectors of each type, including their
+     * diff states and data bookkeeping.
+     *
+     * @return an unmodifiable map from fully qualified class name to estimated
+     *         size in bytes
+     */
+    public Map<String, Long> getConnectorTypeEstimates() {
+        return Collections.unmodifiableMap(connectorTypeEstimates);
+    }
+
+    /**
+     * Gets the number of connectors of each type.
+     *
+     * @return an unmodifiable map from fully qualified class name to the
+     *         number of connectors
+     */
+    public Map<String, Integer> getConnectorTypeCounts() {
+        return Collections.unmodifiableMap(connectorTypeCounts);
+    }
+
+    /**
+     * Gets the total number of connectors in the session.
+     *
+     * @return the number of connectors
+     */
+    public int getConnectorCount() {
+        return connectorCount;
+    }
+
+    /**
+     * Gets the number of diff states and state snapshots kept for the
+     * connectors in the session.
+     *
+     * @return the number of diff states
+     */
+    public int getDiffStateCount() {
+        return diffStateCount;
+    }
+
+    /**
+     * Gets the estimated size of all diff states and state snapshots kept for
+     * the connectors in the session.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getDiffStateEstimate() {
+        return diffStateEstimate;
+    }
+
+    /**
+     * Gets the memory usage of the data communicators in the session.
+     *
+     * @return an unmodifiable list of data communicator usages
+     */
+    public List<DataCommunicatorUsage> getDataCommunicators() {
+        return Collections.unmodifiableList(dataCommunicators);
+    }
+
+    /**
+     * Gets the aggregate values of this report as named metrics, suitable for
+     * exporting as gauges to a monitoring system. All names start with
+     * {@value #METRIC_PREFIX}.
+     *
+     * @return an unmodifiable map from metric name to value
+     */
+    public Map<String, Long> getMetrics() {
+        long activeData = 0;
+        long updatedData = 0;
+        long dataEstimate = 0;
+        for (DataCommunicatorUsage usage : dataCommunicators) {
+            activeData += usage.getActiveDataCount();
+            updatedData += usage.getUpdatedDataCount();
+            dataEstimate += usage.getEstimate();
+        }
+
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put(METRIC_PREFIX + "bytes", totalEstimate);
+        metrics.put(METRIC_PREFIX + "uis", (long) uiEstimates.size());
+        metrics.put(METRIC_PREFIX + "connectors", (long) connectorCount);
+        metrics.put(METRIC_PREFIX + "diffstates", (long) diffStateCount);
+        metrics.put(METRIC_PREFIX + "diffstates.bytes", diffStateEstimate);
+        metrics.put(METRIC_PREFIX + "datacommunicators",
+                (long) dataCommunicators.size());
+        metrics.put(METRIC_PREFIX + "datacommunicators.bytes", dataEstimate);
+        metrics.put(METRIC_PREFIX + "datacommunicators.active", activeData);
+        metrics.put(METRIC_PREFIX + "datacommunicators.updated", updatedData);
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Estimates the size of an instance of the given class, excluding any
+     * referenced objects.
+     */
+    static long shallowSize(Class<?> type) {
+        return SHALLOW_SIZE_CACHE.computeIfAbsent(type, t -> {
+            long size = OBJECT_HEADER;
+            for (Class<?> c = t; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        size += fieldSize(field.getType());
+                    }
+                }
+            }
+            // Objects are aligned to 8 bytes
+            return (size + 7) & ~7L;
+        });
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        } else {
+            return REFERENCE;
+        }
+    }
+
+    /**
+     * Estimates the size of a string, including its character array.
+     */
+    static long stringSize(String string) {
+        if (string == null) {
+            return 0;
+        }
+        return 24 + ((OBJECT_HEADER + 2L * string.length() + 7) & ~7L);
+    }
+
+    /**
+     * Estimates the size of a JSON value, including all nested values.
+     */
+    static long jsonSize(JsonValue value) {
+        if (value == null) {
+            return 0;
+        }
+        JsonType type = value.getType();
+        if (type == JsonType.OBJECT) {
+            JsonObject object = (JsonObject) value;
+            long size = OBJECT_HEADER + MAP;
+            for (String key : object.keys()) {
+                size += MAP_ENTRY + stringSize(key) + jsonSize(object.get(key));
+            }
+            return size;
+        } else if (type == JsonType.ARRAY) {
+            JsonArray array = (JsonArray) value;
+            long size = OBJECT_HEADER + 40;
+            for (int i = 0; i < array.length(); i++) {
+                size += REFERENCE + jsonSize(array.get(i));
+            }
+            return size;
+        } else if (type == JsonType.STRING) {
+            return OBJECT_HEADER + stringSize(value.asString());
+        } else {
+            return 24;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+
+import com.vaadin.server.VaadinSession.State;
+import com.vaadin.ui.UI;
+import com.vaadin.util.ExecutorUtil;
+
+/**
+ * Moves idle sessions of a {@link VaadinService} to a {@link SessionStore}
+ * and back.
+ * <p>
+ * Sessions are tracked based on the requests handled by the service. A
+ * background task periodically passivates sessions that have had no requests
+ * for the configured delay, if they are not locked and are not using push.
+ * Passivated sessions are activated again by
+ * {@link VaadinService#loadSession(WrappedSession)}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+class SessionPassivator {
+
+    private static final String TRACKED_SESSION_ATTRIBUTE = SessionPassivator.class
+            .getName() + ".trackedSession";
+
+    // The passivators of running services by session attribute name, used
+    // for placeholders that have been serialized with the HTTP session
+    private static final Map<String, SessionPassivator> RUNNING_PASSIVATORS = new ConcurrentHashMap<>();
+
+    /**
+     * Stored in the HTTP session in place of a passivated VaadinSession.
+     */
+    static class PassivatedSession
+            implements HttpSessionBindingListener, Serializable {
+        private final String key;
+        // Looked up using the attribute name after deserialization
+        private transient SessionStore store;
+
+        private PassivatedSession(String key, SessionStore store) {
+            this.key = key;
+            this.store = store;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        @Override
+        public void valueBound(HttpSessionBindingEvent event) {
+            // Nothing to do
+        }
+
+        @Override
+        public void valueUnbound(HttpSessionBindingEvent event) {
+            // Either activated or the HTTP session is closing. No session
+            // destroy events are fired in the latter case since the session
+            // is not deserialized.
+            SessionStore sessionStore = store;
+            if (sessionStore == null) {
+                SessionPassivator passivator = RUNNING_PASSIVATORS
+                        .get(event.getName());
+                sessionStore = passivator != null ? passivator.getStore()
+                        : null;
+            }
+            if (sessionStore == null) {
+                getLogger().warning("No session store found for removing "
+                        + "passivated session " + key);
+                return;
+            }
+            try {
+                sessionStore.remove(key);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING,
+                        "Could not remove passivated session " + key, e);
+            }
+        }
+    }
+
+    private static class TrackedSession {
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile WrappedSession wrappedSession;
+        private volatile long lastAccess = System.currentTimeMillis();
+    }
+
+    /**
+     * Resolves classes using the class loader of the service.
+     */
+    private static class ServiceObjectInputStream extends ObjectInputStream {
+        private final ClassLoader classLoader;
+
+        private ServiceObjectInputStream(InputStream in,
+                ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // Fall back to the default, e.g. for primitive types
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+    private final VaadinService service;
+    private final SessionStore store;
+    private final long passivationDelay;
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a new passivator. The background task is started using
+     * {@link #start()}.
+     *
+     * @param service
+     *            the service whose sessions to passivate
+     * @param store
+     *            the store to passivate sessions to
+     * @param passivationDelay
+     *            the time in milliseconds after the last request until a
+     *            session is passivated
+     */
+    SessionPassivator(VaadinService service, SessionStore store,
+            long passivationDelay) {
+        this.service = service;
+        this.store = store;
+        this.passivationDelay = passivationDelay;
+        executor = Executors.newSingleThreadScheduledExecutor(
+                ExecutorUtil.createThreadFactory("vaadin-session-passivator-"));
+    }
+
+    /**
+     * Starts the background task that passivates idle sessions.
+     */
+    void start() {
+        RUNNING_PASSIVATORS.put(service.getSessionAttributeName(), this);
+        long interval = Math.max(1000, passivationDelay / 2);
+        executor.scheduleWithFixedDelay(
+                () -> passivateIdleSessions(System.currentTimeMillis()),
+                interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    SessionStore getStore() {
+        return store;
+    }
+
+    /**
+     * Called when the service starts handling a request. Prevents the session
+     * of the request from being passivated until the request has been
+     * handled.
+     *
+     * @param request
+     *            the request
+     */
+    void requestStart(VaadinRequest request) {
+        WrappedSession wrappedSession = request.getWrappedSession(false);
+        if (wrappedSession == null) {
+            return;
+        }
+        try {
+            TrackedSession tracked = track(wrappedSession);
+            tracked.requests.incrementAndGet();
+            request.setAttribute(TRACKED_SESSION_ATTRIBUTE, tracked);
+        } catch (IllegalStateException e) {
+            // Invalidated session, nothing to track
+        }
+    }
+
+    /**
+     * Called when the service has handled a request.
+     *
+     * @param request
+     *            the request
+     */
+    void requestEnd(VaadinRequest request) {
+        TrackedSession started = (TrackedSession) request
+                .getAttribute(TRACKED_SESSION_ATTRIBUTE);
+        if (started != null) {
+            started.lastAccess = System.currentTimeMillis();
+            started.requests.decrementAndGet();
+        }
+        WrappedSession wrappedSession = request.getWrappedSession(false);
+        if (wrappedSession == null) {
+            return;
+        }
+        try {
+            // The session may have been created or replaced by the request
+            track(wrappedSession).lastAccess = System.currentTimeMillis();
+        } catch (IllegalStateException e) {
+            // Invalidated during the request
+        }
+    }
+
+    private TrackedSession track(WrappedSession wrappedSession) {
+        TrackedSession tracked = sessions.computeIfAbsent(
+                wrappedSession.getId(), id -> new TrackedSession());
+        tracked.wrappedSession = wrappedSession;
+        return tracked;
+    }
+
+    /**
+     * Passivates all sessions that have been idle for the passivation delay.
+     * Sessions of invalidated HTTP sessions are no longer tracked.
+     *
+     * @param now
+     *            the current time in milliseconds
+     */
+    void passivateIdleSessions(long now) {
+        sessions.forEach((id, tracked) -> {
+            try {
+                if (tracked.requests.get() == 0
+                        && now - tracked.lastAccess >= passivationDelay) {
+                    passivate(tracked);
+                } else {
+                    // Throws if the session has been invalidated
+                    tracked.wrappedSession.getId();
+                }
+            } catch (IllegalStateException e) {
+                sessions.remove(id, tracked);
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING,
+                        "Could not passivate session " + id, e);
+            }
+        });
+    }
+
+    private void passivate(TrackedSession tracked) throws IOException {
+        WrappedSession wrappedSession = tracked.wrappedSession;
+        String attributeName = service.getSessionAttributeName();
+        if (!(wrappedSession
+                .getAttribute(attributeName) instanceof VaadinSession)) {
+            // Already passivated or not yet created
+            return;
+        }
+
+        Lock lock = service.getSessionLock(wrappedSession);
+        if (lock == null || !lock.tryLock()) {
+            // In use, try again later
+            return;
+        }
+        try {
+            Object attribute = wrappedSession.getAttribute(attributeName);
+            if (tracked.requests.get() != 0
+                    || !(attribute instanceof VaadinSession)) {
+                return;
+            }
+            VaadinSession session = (VaadinSession) attribute;
+            if (!canPassivate(session)) {
+                return;
+            }
+
+            String key = UUID.randomUUID().toString();
+            store.store(key, out -> {
+                ObjectOutputStream objectOut = new ObjectOutputStream(out);
+                objectOut.writeObject(session);
+                objectOut.flush();
+            });
+
+            // The instance in memory is discarded, it should not be closed
+            // when it is unbound from the HTTP session
+            session.setPassivated();
+            wrappedSession.setAttribute(attributeName,
+                    new PassivatedSession(key, store));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean canPassivate(VaadinSession session) {
+        if (session.getState() != State.OPEN
+                || !session.getPendingAccessQueue().isEmpty()) {
+            return false;
+        }
+        for (UI ui : session.getUIs()) {
+            // A push connection cannot be moved with the session
+            if (ui.getPushConfiguration().getPushMode().isEnabled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Loads a passivated session from the store and puts it back into the
+     * HTTP session. Assumes the session is locked.
+     *
+     * @param wrappedSession
+     *            the HTTP session
+     * @param passivatedSession
+     *            the placeholder stored in the HTTP session
+     * @return the activated session, or <code>null</code> if the session
+     *         could not be loaded
+     */
+    VaadinSession activate(WrappedSession wrappedSession,
+            PassivatedSession passivatedSession) {
+        String key = passivatedSession.getKey();
+        VaadinSession session = null;
+        try (InputStream in = store.load(key)) {
+            if (in != null) {
+                session = (VaadinSession) new ServiceObjectInputStream(in,
+                        service.getClassLoader()).readObject();
+            } else {
+                getLogger().warning("Passivated session " + key
+                        + " was not found in the session store");
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not load passivated session " + key, e);
+        }
+
+        if (session == null) {
+            service.removeFromHttpSession(wrappedSession);
+        } else {
+            service.writeToHttpSession(wrappedSession, session);
+        }
+        try {
+            store.remove(key);
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not remove passivated session " + key, e);
+        }
+        return session;
+    }
+
+    /**
+     * Stops the background task. Sessions that have already been passivated
+     * stay in the store.
+     */
+    void shutdown() {
+        RUNNING_PASSIVATORS.remove(service.getSessionAttributeName(), this);
+        executor.shutdownNow();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(SessionPassivator.class.getName());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.server.VaadinSession.State;
+import com.vaadin.util.ExecutorUtil;
+import com.vaadin.util.TimerWheel;
+
+/**
+ * Closes inactive UIs and sessions in the background, instead of only at the
+ * end of requests to the same session.
+ * <p>
+ * Each session has at most one pending check in the timer of the service. The
+ * check is scheduled for when the first UI of the session would miss its
+ * heartbeat timeout, or the session would reach its UIDL request timeout,
+ * whichever comes first. Requests only mark the session as tracked, so the
+ * bookkeeping cost per request is constant. When the check runs, the session
+ * is cleaned up with {@link VaadinService#cleanupSession(VaadinSession)} and
+ * the next check is scheduled based on the current timestamps.
+ * <p>
+ * The pending checks only refer to the sessions weakly, so sessions that are
+ * removed from the HTTP session can be garbage collected before their check
+ * runs.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+final class SessionReaper {
+
+    /**
+     * The minimum delay between two checks of the same session, for sessions
+     * that cannot be cleaned up right away, e.g. because a thread is waiting
+     * for their lock.
+     */
+    private static final long MIN_CHECK_DELAY = 1000;
+
+    private final VaadinService service;
+    private final TimerWheel timerWheel;
+    private final ExecutorService executor;
+
+    private final Set<VaadinSession> scheduledSessions = Collections
+            .synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    SessionReaper(VaadinService service, TimerWheel timerWheel) {
+        this.service = service;
+        this.timerWheel = timerWheel;
+        // Cleanup may run listeners, so it is not run on the timer thread
+        executor = ExecutorUtil.createBoundedExecutor("vaadin-cleanup-", 1);
+    }
+
+    /**
+     * Makes sure the given session is checked for inactivity. Called at the
+     * end of each request with the session locked, possibly only for reading
+     * by several threads at once.
+     *
+     * @param session
+     *            the session to track, not <code>null</code>
+     */
+    void track(VaadinSession session) {
+        if (!scheduledSessions.add(session)) {
+            return;
+        }
+        // The UIs of the session are not iterated here, so a UI that has
+        // missed heartbeats for longer may be closed at the first check
+        long delay = service.getInitialCleanupDelay(session);
+        if (delay >= 0) {
+            schedule(session, delay);
+        } else {
+            scheduledSessions.remove(session);
+        }
+    }
+
+    private void schedule(VaadinSession session, long delay) {
+        WeakReference<VaadinSession> reference = new WeakReference<>(session);
+        try {
+            timerWheel.schedule(() -> submitCheck(reference),
+                    Math.max(delay, MIN_CHECK_DELAY), TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // The service is being destroyed
+            scheduledSessions.remove(session);
+        }
+    }
+
+    private void submitCheck(WeakReference<VaadinSession> reference) {
+        try {
+            executor.execute(() -> {
+                VaadinSession session = reference.get();
+                if (session != null) {
+                    session.access(() -> check(session));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The service is being destroyed
+        }
+    }
+
+    void check(VaadinSession session) {
+        scheduledSessions.remove(session);
+        if (session.getState() != State.OPEN || session.isPassivated()
+                || !isCurrent(session)) {
+            // A passivated instance has been replaced by a copy that is
+            // tracked separately once it is activated
+            return;
+        }
+
+        service.cleanupSession(session);
+
+        if (session.getState() == State.OPEN) {
+            long next = service.getNextCleanupTime(session);
+            if (next != Long.MAX_VALUE) {
+                scheduledSessions.add(session);
+                schedule(session, next - System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given session is still the one stored in its HTTP
+     * session. The stored session is not loaded, so a passivated session is
+     * not activated by the check.
+     */
+    private boolean isCurrent(VaadinSession session) {
+        WrappedSession wrappedSession = session.getSession();
+        if (wrappedSession == null) {
+            return false;
+        }
+        try {
+            return wrappedSession.getAttribute(
+                    service.getSessionAttributeName()) == session;
+        } catch (IllegalStateException e) {
+            // Invalidated HTTP session
+            return false;
+        }
+    }
+
+    /**
+     * Stops running checks. Pending checks are discarded.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * Storage for serialized {@link VaadinSession}s that have been passivated to
+ * reduce the heap used by idle sessions.
+ * <p>
+ * When a session store is provided by
+ * {@link VaadinService#createSessionStore()}, sessions that have not been used
+ * for a while are serialized into the store and the VaadinSession in the HTTP
+ * session is replaced by a small placeholder. The session is deserialized
+ * from the store when the next request for it arrives.
+ * <p>
+ * Implementations must be thread safe. Keys are generated by the framework and
+ * only contain letters, digits and dashes.
+ *
+ * @see FileSessionStore
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public interface SessionStore extends Serializable {
+
+    /**
+     * Writes the serialized form of a session to a stream.
+     *
+     * @since 8.15
+     */
+    @FunctionalInterface
+    public interface SessionData extends Serializable {
+        /**
+         * Writes the session data to the given stream.
+         *
+         * @param outputStream
+         *            the stream to write to, not <code>null</code>
+         * @throws IOException
+         *             if writing fails
+         */
+        public void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Stores session data with the given key, replacing any data previously
+     * stored with the same key.
+     *
+     * @param key
+     *            the key of the session data, not <code>null</code>
+     * @param data
+     *            the session data to store, not <code>null</code>
+     * @throws IOException
+     *             if storing the data fails
+     */
+    public void store(String key, SessionData data) throws IOException;
+
+    /**
+     * Opens a stream for reading the session data stored with the given key.
+     *
+     * @param key
+     *            the key of the session data, not <code>null</code>
+     * @return a stream for reading the session data, or <code>null</code> if
+     *         there is no data for the key
+     * @throws IOException
+     *             if opening the stream fails
+     */
+    public InputStream load(String key) throws IOException;
+
+    /**
+     * Removes the session data stored with the given key. Does nothing if
+     * there is no data for the key.
+     *
+     * @param key
+     *            the key of the session data, not <code>null</code>
+     * @throws IOException
+     *             if removing the data fails
+     */
+    public void remove(String key) throws IOException;
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.beans.IntrospectionException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Objects;
+
+import com.vaadin.server.JsonCodec.BeanProperty;
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.ui.ConnectorTracker;
+
+import elemental.json.Json;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * A compact record of the shared state last sent to the client for a
+ * connector, used instead of a full JSON diff state when
+ * {@link ConnectorTracker#setCompactDiffStateEnabled(boolean)} is enabled.
+ * <p>
+ * Property values that are immutable ({@code null}, strings, primitive
+ * wrappers and enums) are stored as references to the values themselves, so
+ * they take no additional memory and unchanged values are detected without
+ * encoding them. Other values, such as collections and nested beans, may be
+ * modified in place and are stored in encoded form, just like in a regular
+ * diff state.
+ * <p>
+ * This class is intended for internal use by the framework.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public final class StateSnapshot implements Serializable {
+
+    private final Class<? extends SharedState> stateType;
+
+    /*
+     * One entry per property of the state type, in the order returned by
+     * JsonCodec.getProperties. Immutable values are never JsonValues, so a
+     * JsonValue entry always means an encoded value.
+     */
+    private final Object[] values;
+
+    private StateSnapshot(Class<? extends SharedState> stateType,
+            Object[] values) {
+        this.stateType = stateType;
+        this.values = values;
+    }
+
+    /**
+     * Creates a snapshot of the given state, which has just been encoded to
+     * the given JSON.
+     *
+     * @param state
+     *            the state object, not <code>null</code>
+     * @param stateType
+     *            the type of the state, not <code>null</code>
+     * @param encodedState
+     *            the full encoded state, not <code>null</code>
+     * @return a new snapshot, not <code>null</code>
+     */
+    public static StateSnapshot create(SharedState state,
+            Class<? extends SharedState> stateType, JsonObject encodedState) {
+        Collection<BeanProperty> properties = getProperties(stateType);
+        Object[] values = new Object[properties.size()];
+        int i = 0;
+        for (BeanProperty property : properties) {
+            Object value = getValue(property, state);
+            if (isImmutable(value)) {
+                values[i] = value;
+            } else {
+                values[i] = encodedState.get(property.getName());
+            }
+            i++;
+        }
+        return new StateSnapshot(stateType, values);
+    }
+
+    /**
+     * Gets the state type of this snapshot.
+     *
+     * @return the state type, not <code>null</code>
+     */
+    public Class<? extends SharedState> getStateType() {
+        return stateType;
+    }
+
+    /**
+     * Encodes the properties of the given state that differ from this
+     * snapshot, and updates the snapshot to match the state.
+     *
+     * @param state
+     *            the state to encode, not <code>null</code>
+     * @param connectorTracker
+     *            the connector tracker to use for encoding connector
+     *            references
+     * @return a JSON object with the changed properties, not
+     *         <code>null</code>
+     */
+    public JsonObject encodeChanges(SharedState state,
+            ConnectorTracker connectorTracker) {
+        JsonObject diff = Json.createObject();
+        int i = 0;
+        for (BeanProperty property : getProperties(stateType)) {
+            Object value = getValue(property, state);
+            Object previous = values[i];
+
+            if (isImmutable(value) && !(previous instanceof JsonValue)) {
+                if (!Objects.equals(value, previous)) {
+                    diff.put(property.getName(),
+                            JsonCodec.encode(value, null, property.getType(),
+                                    connectorTracker).getEncodedValue());
+                    values[i] = value;
+                }
+            } else {
+                JsonValue reference = toJson(previous, property,
+                        connectorTracker);
+                if (reference instanceof JsonNull) {
+                    reference = null;
+                }
+                EncodeResult encodeResult = JsonCodec.encode(value, reference,
+                        property.getType(), connectorTracker);
+                JsonValue encodedValue = encodeResult.getEncodedValue();
+                if (valueChanged(encodedValue, reference)) {
+                    diff.put(property.getName(),
+                            encodeResult.getDiffOrValue());
+                }
+                values[i] = isImmutable(value) ? value : encodedValue;
+            }
+            i++;
+        }
+        return diff;
+    }
+
+    /**
+     * Converts this snapshot to a full JSON diff state.
+     *
+     * @param connectorTracker
+     *            the connector tracker to use for encoding connector
+     *            references
+     * @return a JSON object with all properties of the snapshot, not
+     *         <code>null</code>
+     */
+    public JsonObject toJson(ConnectorTracker connectorTracker) {
+        JsonObject json = Json.createObject();
+        int i = 0;
+        for (BeanProperty property : getProperties(stateType)) {
+            json.put(property.getName(),
+                    toJson(values[i++], property, connectorTracker));
+        }
+        return json;
+    }
+
+    /**
+     * Estimates the memory used by this snapshot. Immutable values are shared
+     * with the state object and are not counted.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimateSize() {
+        long size = SessionMemoryReport.shallowSize(StateSnapshot.class)
+                + SessionMemoryReport.MAP_ENTRY
+                + SessionMemoryReport.OBJECT_HEADER
+                + (long) values.length * SessionMemoryReport.REFERENCE;
+        for (Object value : values) {
+            if (value instanceof JsonValue) {
+                size += SessionMemoryReport.jsonSize((JsonValue) value);
+            }
+        }
+        return size;
+    }
+
+    private static JsonValue toJson(Object value, BeanProperty property,
+            ConnectorTracker connectorTracker) {
+        if (value instanceof JsonValue) {
+            return (JsonValue) value;
+        }
+        return JsonCodec
+                .encode(value, null, property.getType(), connectorTracker)
+                .getEncodedValue();
+    }
+
+    private static boolean valueChanged(JsonValue value,
+            JsonValue reference) {
+        if (value instanceof JsonNull) {
+            value = null;
+        }
+        if (value == reference) {
+            return false;
+        } else if (value == null || reference == null) {
+            return true;
+        } else {
+            return !JsonCodec.jsonEquals(value, reference);
+        }
+    }
+
+    private static boolean isImmutable(Object value) {
+        if (value == null || value instanceof String || value instanceof Enum) {
+            return true;
+        }
+        Class<?> type = value.getClass();
+        return type == Boolean.class || type == Integer.class
+                || type == Long.class || type == Double.class
+                || type == Float.class || type == Short.class
+                || type == Byte.class || type == Character.class;
+    }
+
+    private static Collection<BeanProperty> getProperties(Class<?> type) {
+        try {
+            return JsonCodec.getProperties(type);
+        } catch (IntrospectionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Object getValue(BeanProperty property, Object bean) {
+        try {
+            return property.getValue(bean);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
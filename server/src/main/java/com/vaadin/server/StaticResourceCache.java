@@ -0,0 +1,489 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.vaadin.util.EncodeUtil;
+
+/**
+ * In-memory cache of static resources served by {@link VaadinServlet} from
+ * the VAADIN directory.
+ * <p>
+ * The content of a cached resource is read once and then written to the
+ * response directly from memory. A gzip compressed variant is created the
+ * first time a client accepting gzip requests the resource, unless a
+ * precompressed <code>.gz</code> file exists. A precompressed
+ * <code>.br</code> file is served to clients accepting brotli. Each variant
+ * has a strong ETag based on the content, and single byte range requests are
+ * supported for the uncompressed variant.
+ * <p>
+ * Cached resources are not checked for modifications, so the cache is only
+ * used in production mode. The least recently used resources are evicted when
+ * the total size exceeds the configured maximum. Resources that are too large
+ * to be cached are remembered, so that they are not read again for each
+ * request.
+ *
+ * @see Constants#SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+final class StaticResourceCache {
+
+    private static final int MIN_COMPRESSED_LENGTH = 1024;
+
+    /**
+     * A cached resource with its compressed variants.
+     */
+    static final class Entry {
+        private final String filename;
+        private final String url;
+        private final byte[] content;
+        private final byte[] brotliContent;
+        private final String etag;
+        private final long lastModified;
+        private final String mimeType;
+        private volatile byte[] gzipContent;
+        // Set when compressing did not make the content smaller
+        private volatile boolean gzipUseless;
+
+        private Entry(String filename, String url, byte[] content,
+                byte[] gzipContent, byte[] brotliContent, long lastModified,
+                String mimeType) {
+            this.filename = filename;
+            this.url = url;
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.brotliContent = brotliContent;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            etag = createETag(content);
+        }
+
+        /**
+         * Gets the URL the resource was read from.
+         *
+         * @return the URL in external form, not <code>null</code>
+         */
+        String getUrl() {
+            return url;
+        }
+
+        /**
+         * Gets the uncompressed content of the resource.
+         *
+         * @return the content, not <code>null</code>
+         */
+        byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Gets the strong ETag of the uncompressed content.
+         *
+         * @return the quoted ETag, not <code>null</code>
+         */
+        String getETag() {
+            return etag;
+        }
+
+        private int getSize() {
+            return content.length
+                    + (gzipContent != null ? gzipContent.length : 0)
+                    + (brotliContent != null ? brotliContent.length : 0);
+        }
+    }
+
+    /**
+     * Thrown when a resource and its variants do not fit in a single entry.
+     */
+    private static final class TooLargeException extends IOException {
+        private TooLargeException() {
+            super("Too large to be cached");
+        }
+    }
+
+    private final long maxSize;
+    private final long maxEntrySize;
+
+    // Guarded by itself, in access order for LRU eviction
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f,
+            true);
+    private long size = 0;
+    // Guarded by entries
+    private final Set<String> tooLarge = new HashSet<>();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize
+     *            the maximum total size of the cached content in bytes
+     */
+    StaticResourceCache(long maxSize) {
+        this.maxSize = maxSize;
+        // Avoid a single resource evicting everything else
+        maxEntrySize = maxSize / 4;
+    }
+
+    /**
+     * Gets the cached entry for the given file.
+     *
+     * @param filename
+     *            the file name, starting with <code>/VAADIN/</code>
+     * @return the cached entry, or <code>null</code> if the file is not cached
+     */
+    Entry get(String filename) {
+        synchronized (entries) {
+            return entries.get(filename);
+        }
+    }
+
+    /**
+     * Reads the given resource into the cache. The resource must have been
+     * validated to be an allowed static resource.
+     *
+     * @param filename
+     *            the file name, starting with <code>/VAADIN/</code>
+     * @param resourceUrl
+     *            the URL of the resource, not <code>null</code>
+     * @param mimeType
+     *            the mime type of the resource, or <code>null</code> if not
+     *            known
+     * @return the cached entry, or <code>null</code> if the resource is too
+     *         large to be cached
+     * @throws IOException
+     *             if reading the resource fails
+     */
+    Entry load(String filename, URL resourceUrl, String mimeType)
+            throws IOException {
+        synchronized (entries) {
+            if (tooLarge.contains(filename)) {
+                return null;
+            }
+        }
+
+        Entry entry;
+        try {
+            entry = read(filename, resourceUrl, mimeType);
+        } catch (TooLargeException e) {
+            synchronized (entries) {
+                tooLarge.add(filename);
+            }
+            return null;
+        }
+
+        synchronized (entries) {
+            Entry previous = entries.put(filename, entry);
+            if (previous != null) {
+                size -= previous.getSize();
+            }
+            size += entry.getSize();
+            evict();
+        }
+        return entry;
+    }
+
+    private Entry read(String filename, URL resourceUrl, String mimeType)
+            throws IOException {
+        URLConnection connection = resourceUrl.openConnection();
+        long lastModified = connection.getLastModified();
+        // Browsers do not send milliseconds in If-Modified-Since
+        lastModified -= lastModified % 1000;
+        int contentLength = connection.getContentLength();
+        if (contentLength > maxEntrySize) {
+            throw new TooLargeException();
+        }
+        byte[] content;
+        try (InputStream is = connection.getInputStream()) {
+            content = read(is, contentLength, maxEntrySize);
+        }
+
+        // The variants are only read if the content fits, and only up to the
+        // space left in the entry
+        String urlStr = resourceUrl.toExternalForm();
+        long remaining = maxEntrySize - content.length;
+        byte[] gzipContent = readVariant(urlStr + ".gz", remaining);
+        if (gzipContent != null) {
+            remaining -= gzipContent.length;
+        }
+        byte[] brotliContent = readVariant(urlStr + ".br", remaining);
+        return new Entry(filename, urlStr, content, gzipContent,
+                brotliContent, lastModified, mimeType);
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+            tooLarge.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Gets the total size of the cached content.
+     *
+     * @return the size in bytes
+     */
+    long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getSize();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Writes the given cached resource to the response. The caching headers
+     * should already have been set.
+     *
+     * @param entry
+     *            the cached entry, not <code>null</code>
+     * @param request
+     *            the request, not <code>null</code>
+     * @param response
+     *            the response, not <code>null</code>
+     * @param allowCompressed
+     *            whether a compressed variant may be served
+     * @throws IOException
+     *             if writing the response fails
+     */
+    void write(Entry entry, HttpServletRequest request,
+            HttpServletResponse response, boolean allowCompressed)
+            throws IOException {
+        if (entry.mimeType != null) {
+            response.setContentType(entry.mimeType);
+        }
+        if (entry.lastModified > 0) {
+            response.setDateHeader("Last-Modified", entry.lastModified);
+        }
+        response.setHeader("Accept-Ranges", "bytes");
+
+        String range = request.getHeader("Range");
+        if (range != null && !isIfRangeMatching(entry, request)) {
+            range = null;
+        }
+
+        byte[] content = entry.content;
+        String etag = entry.etag;
+        if (allowCompressed) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        String accept = request.getHeader("Accept-Encoding");
+        // Ranges always refer to the uncompressed content
+        if (allowCompressed && range == null && accept != null) {
+            if (entry.brotliContent != null
+                    && EncodeUtil.isContentEncodingAccepted(accept, "br")) {
+                content = entry.brotliContent;
+                etag = withSuffix(etag, "br");
+                response.setHeader("Content-Encoding", "br");
+            } else if (EncodeUtil.isContentEncodingAccepted(accept, "gzip")) {
+                byte[] gzipContent = getGzipContent(entry);
+                if (gzipContent != null) {
+                    content = gzipContent;
+                    etag = withSuffix(etag, "gzip");
+                    response.setHeader("Content-Encoding", "gzip");
+                }
+            }
+        }
+        response.setHeader("ETag", etag);
+
+        if (isNotModified(request, etag, entry.lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (range != null && writeRange(entry, range, request, response)) {
+            return;
+        }
+
+        response.setContentLength(content.length);
+        if (!"HEAD".equals(request.getMethod())) {
+            // Written as a single chunk without copying through a buffer
+            response.getOutputStream().write(content);
+        }
+    }
+
+    private byte[] getGzipContent(Entry entry) throws IOException {
+        byte[] gzipContent = entry.gzipContent;
+        if (gzipContent != null || entry.gzipUseless
+                || entry.content.length < MIN_COMPRESSED_LENGTH) {
+            return gzipContent;
+        }
+
+        // Compressed on first use, concurrent requests may both do it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                entry.content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(entry.content);
+        }
+        if (bytes.size() >= entry.content.length) {
+            entry.gzipUseless = true;
+            return null;
+        }
+        gzipContent = bytes.toByteArray();
+        synchronized (entries) {
+            if (entry.gzipContent == null) {
+                entry.gzipContent = gzipContent;
+                if (entries.get(entry.filename) == entry) {
+                    size += gzipContent.length;
+                    evict();
+                }
+            }
+        }
+        return entry.gzipContent;
+    }
+
+    private boolean writeRange(Entry entry, String range,
+            HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        long length = entry.content.length;
+        long[] bounds = DownloadStream.parseByteRange(range, length);
+        if (bounds == null) {
+            // Multiple or malformed ranges, send the whole content
+            return false;
+        }
+        if (bounds.length == 0) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setStatus(
+                    HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return true;
+        }
+        int start = (int) bounds[0];
+        int count = (int) (bounds[1] - bounds[0] + 1);
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range",
+                "bytes " + bounds[0] + "-" + bounds[1] + "/" + length);
+        response.setContentLength(count);
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(entry.content, start, count);
+        }
+        return true;
+    }
+
+    private static boolean isIfRangeMatching(Entry entry,
+            HttpServletRequest request) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(entry.etag);
+        }
+        try {
+            return entry.lastModified > 0 && request
+                    .getDateHeader("If-Range") == entry.lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isNotModified(HttpServletRequest request,
+            String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (lastModified > 0) {
+            try {
+                return request
+                        .getDateHeader("If-Modified-Since") >= lastModified;
+            } catch (IllegalArgumentException e) {
+                // Unparseable date, send the content
+            }
+        }
+        return false;
+    }
+
+    private static String withSuffix(String etag, String suffix) {
+        return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+    }
+
+    private static String createETag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(content);
+            return '"' + Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(digest) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(
+                    "SHA-256 should be supported by all JVMs", e);
+        }
+    }
+
+    private static byte[] readVariant(String url, long limit)
+            throws TooLargeException {
+        try (InputStream is = new URL(url).openStream()) {
+            return read(is, -1, limit);
+        } catch (TooLargeException e) {
+            throw e;
+        } catch (IOException e) {
+            // Not available, only the uncompressed content will be used
+            return null;
+        }
+    }
+
+    private static byte[] read(InputStream is, int expectedLength,
+            long limit) throws IOException {
+        if (expectedLength > limit) {
+            throw new TooLargeException();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                expectedLength > 0 ? expectedLength : 8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) >= 0) {
+            bytes.write(buffer, 0, read);
+            if (bytes.size() > limit) {
+                throw new TooLargeException();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
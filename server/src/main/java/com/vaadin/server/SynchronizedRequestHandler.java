@@ -35,11 +35,32 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
-        session.lock();
+        boolean readOnly = isReadOnlyRequest(request);
+        UidlTimingEvent timingEvent = UidlTimingEvent.get(request);
+        if (timingEvent != null) {
+            long start = System.nanoTime();
+            lock(session, readOnly);
+            timingEvent.addTime(UidlTimingEvent.Phase.LOCK_WAIT,
+                    System.nanoTime() - start);
+        } else {
+            lock(session, readOnly);
+        }
         try {
             return synchronizedHandleRequest(session, request, response);
         } finally {
-            session.unlock();
+            if (readOnly) {
+                session.unlockForReading();
+            } else {
+                session.unlock();
+            }
+        }
+    }
+
+    private static void lock(VaadinSession session, boolean readOnly) {
+        if (readOnly) {
+            session.lockForReading();
+        } else {
+            session.lock();
         }
     }
 
@@ -86,4 +107,22 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         return true;
     }
 
+    /**
+     * Checks whether handling the given request only reads the session. Such
+     * requests are handled with the session locked using
+     * {@link VaadinSession#lockForReading()} instead of
+     * {@link VaadinSession#lock()}, so that they can be handled concurrently
+     * with each other if the session uses a {@link ReadMostlySessionLock}. The
+     * default implementation returns <code>false</code>.
+     *
+     * @since 8.15
+     * @param request
+     *            the request to handle
+     * @return <code>true</code> if the request only reads the session;
+     *         <code>false</code> if the session needs to be locked exclusively
+     */
+    protected boolean isReadOnlyRequest(VaadinRequest request) {
+        return false;
+    }
+
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event with the time spent in the different phases of handling a UIDL
+ * request. Fired to the {@link UidlTimingListener}s of the service after the
+ * response has been written.
+ * <p>
+ * The timings are only recorded if at least one listener has been added with
+ * {@link VaadinService#addUidlTimingListener(UidlTimingListener)} when the
+ * request starts. The methods for recording the timings are only meant to be
+ * used by the framework.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class UidlTimingEvent extends EventObject {
+
+    /**
+     * The phases of handling a UIDL request.
+     */
+    public enum Phase {
+        /**
+         * Waiting for the session lock.
+         */
+        LOCK_WAIT,
+        /**
+         * Reading and parsing the message from the client.
+         */
+        RPC_DECODE,
+        /**
+         * Running the RPC invocations of the message, including the listeners
+         * triggered by them.
+         */
+        RPC_INVOKE,
+        /**
+         * Calling {@link ClientConnector#beforeClientResponse(boolean)} for
+         * the dirty connectors, e.g. fetching data for data communicators.
+         */
+        BEFORE_CLIENT_RESPONSE,
+        /**
+         * Writing the changes to the response.
+         */
+        WRITE
+    }
+
+    private final long[] phaseTimes = new long[Phase.values().length];
+    private final Map<Class<? extends ClientConnector>, Long> beforeClientResponseTimes = new HashMap<>();
+    private long totalTime;
+
+    /**
+     * Creates a new event for recording the timings of a request.
+     *
+     * @param service
+     *            the service handling the request, not <code>null</code>
+     */
+    public UidlTimingEvent(VaadinService service) {
+        super(service);
+    }
+
+    @Override
+    public VaadinService getSource() {
+        return (VaadinService) super.getSource();
+    }
+
+    /**
+     * Gets the event recording the timings of the given request.
+     *
+     * @param request
+     *            the request, not <code>null</code>
+     * @return the timing event, or <code>null</code> if timings are not
+     *         recorded for the request
+     */
+    public static UidlTimingEvent get(VaadinRequest request) {
+        return (UidlTimingEvent) request
+                .getAttribute(UidlTimingEvent.class.getName());
+    }
+
+    /**
+     * Gets the event recording the timings of the current request.
+     *
+     * @see VaadinRequest#getCurrent()
+     *
+     * @return the timing event, or <code>null</code> if there is no current
+     *         request or timings are not recorded for it
+     */
+    public static UidlTimingEvent getCurrent() {
+        VaadinRequest request = VaadinRequest.getCurrent();
+        return request != null ? get(request) : null;
+    }
+
+    /**
+     * Adds time spent in the given phase.
+     *
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @param nanos
+     *            the time to add, in nanoseconds
+     */
+    public void addTime(Phase phase, long nanos) {
+        phaseTimes[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Adds time spent in
+     * {@link ClientConnector#beforeClientResponse(boolean)} of a connector.
+     * The time is also added to the {@link Phase#BEFORE_CLIENT_RESPONSE}
+     * phase.
+     *
+     * @param connectorType
+     *            the class of the connector, not <code>null</code>
+     * @param nanos
+     *            the time to add, in nanoseconds
+     */
+    public void addBeforeClientResponseTime(
+            Class<? extends ClientConnector> connectorType, long nanos) {
+        addTime(Phase.BEFORE_CLIENT_RESPONSE, nanos);
+        beforeClientResponseTimes.merge(connectorType, nanos, Long::sum);
+    }
+
+    /**
+     * Gets the time spent in the given phase.
+     *
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @param unit
+     *            the unit of the returned time, not <code>null</code>
+     * @return the time spent in the phase
+     */
+    public long getTime(Phase phase, TimeUnit unit) {
+        return unit.convert(phaseTimes[phase.ordinal()],
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time spent in
+     * {@link ClientConnector#beforeClientResponse(boolean)} for each connector
+     * class.
+     *
+     * @return an unmodifiable map from connector class to time in
+     *         nanoseconds, not <code>null</code>
+     */
+    public Map<Class<? extends ClientConnector>, Long> getBeforeClientResponseTimes() {
+        return Collections.unmodifiableMap(beforeClientResponseTimes);
+    }
+
+    /**
+     * Gets the total time spent handling the request, from the start of the
+     * request until the response has been written and the session has been
+     * cleaned up.
+     *
+     * @param unit
+     *            the unit of the returned time, not <code>null</code>
+     * @return the total time
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(totalTime, TimeUnit.NANOSECONDS);
+    }
+
+    void setTotalTime(long nanos) {
+        totalTime = nanos;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.vaadin.server.UidlTimingEvent.Phase;
+
+/**
+ * A {@link UidlTimingListener} that collects the timings of UIDL requests into
+ * histograms, one for each {@link Phase} and one for the total request time.
+ * <p>
+ * Each histogram has {@value #BUCKET_COUNT} buckets with exponentially growing
+ * bounds: bucket <code>i</code> counts times less than
+ * <code>2<sup>i</sup></code> microseconds, and the last bucket counts all
+ * longer times. Recording a request only increments counters, so the
+ * histogram can be used in production and read at any time, e.g. by
+ * exporting the counts to a metrics system.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class UidlTimingHistogram implements UidlTimingListener {
+
+    /**
+     * The number of buckets in each histogram.
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    private static final int TOTAL = Phase.values().length;
+
+    // One row of buckets per phase, followed by the total times
+    private final AtomicLongArray counts = new AtomicLongArray(
+            (TOTAL + 1) * BUCKET_COUNT);
+
+    @Override
+    public void uidlRequestHandled(UidlTimingEvent event) {
+        for (Phase phase : Phase.values()) {
+            record(phase.ordinal(),
+                    event.getTime(phase, TimeUnit.MICROSECONDS));
+        }
+        record(TOTAL, event.getTotalTime(TimeUnit.MICROSECONDS));
+    }
+
+    private void record(int row, long micros) {
+        counts.incrementAndGet(row * BUCKET_COUNT + getBucket(micros));
+    }
+
+    private static int getBucket(long micros) {
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Gets the upper bound of the given bucket. Times less than the bound and
+     * not less than the bound of the previous bucket are counted in the
+     * bucket. The last bucket has no upper bound.
+     *
+     * @param bucket
+     *            the index of the bucket, between 0 and
+     *            {@value #BUCKET_COUNT} - 1
+     * @param unit
+     *            the unit of the returned bound, not <code>null</code>
+     * @return the exclusive upper bound of the bucket, or
+     *         {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long getBucketUpperBound(int bucket, TimeUnit unit) {
+        if (bucket < 0 || bucket >= BUCKET_COUNT) {
+            throw new IllegalArgumentException(
+                    "Bucket must be between 0 and " + (BUCKET_COUNT - 1));
+        }
+        if (bucket == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(1L << bucket, TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Gets the bucket counts of the given phase.
+     *
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @return a new array with the number of requests in each bucket
+     */
+    public long[] getCounts(Phase phase) {
+        return getRow(phase.ordinal());
+    }
+
+    /**
+     * Gets the bucket counts of the total request times.
+     *
+     * @return a new array with the number of requests in each bucket
+     */
+    public long[] getTotalCounts() {
+        return getRow(TOTAL);
+    }
+
+    /**
+     * Gets the number of recorded requests.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        long count = 0;
+        for (long bucketCount : getTotalCounts()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Resets all counts to zero.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); ++i) {
+            counts.set(i, 0);
+        }
+    }
+
+    private long[] getRow(int row) {
+        long[] result = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            result[i] = counts.get(row * BUCKET_COUNT + i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Listener for the timings of handled UIDL requests.
+ *
+ * @see VaadinService#addUidlTimingListener(UidlTimingListener)
+ * @see UidlTimingHistogram
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+@FunctionalInterface
+public interface UidlTimingListener extends Serializable {
+
+    /**
+     * Called after a UIDL request has been handled and the response has been
+     * written. Called on the request thread, so implementations should be
+     * fast.
+     *
+     * @param event
+     *            the timings of the request, not <code>null</code>
+     */
+    public void uidlRequestHandled(UidlTimingEvent event);
+}
@@ -43,6 +43,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -71,6 +73,8 @@ import com.vaadin.shared.Registration;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
 import com.vaadin.util.CurrentInstance;
+import com.vaadin.util.ExecutorUtil;
+import com.vaadin.util.TimerWheel;
 
 import elemental.json.Json;
 import elemental.json.JsonException;
@@ -119,6 +123,12 @@ public abstract class VaadinService implements Serializable {
 
     private static final String REQUEST_START_TIME_ATTRIBUTE = "requestStartTime";
 
+    /**
+     * Maximum number of threads used for delayed pushes when no session
+     * access executor is configured.
+     */
+    private static final int PUSH_THREADS = 4;
+
     /**
      * Should never be used directly, always use
      * {@link #getDeploymentConfiguration()}
@@ -138,6 +148,8 @@ public abstract class VaadinService implements Serializable {
 
     private final List<SessionDestroyListener> sessionDestroyListeners = new CopyOnWriteArrayList<>();
 
+    private final List<UidlTimingListener> uidlTimingListeners = new CopyOnWriteArrayList<>();
+
     private SystemMessagesProvider systemMessagesProvider = DefaultSystemMessagesProvider
             .get();
 
@@ -161,6 +173,20 @@ public abstract class VaadinService implements Serializable {
      */
     private boolean initialized = false;
 
+    private transient SessionPassivator sessionPassivator;
+
+    private transient SessionAccessExecutor accessExecutor;
+
+    private transient SessionReaper sessionReaper;
+
+    private boolean uidlCompressionEnabled = false;
+
+    private transient TimerWheel timerWheel;
+
+    private transient PushScheduler pushScheduler;
+
+    private transient ExecutorService pushExecutor;
+
     /**
      * Creates a new vaadin service based on a deployment configuration.
      *
@@ -238,9 +264,128 @@ public abstract class VaadinService implements Serializable {
                 event.getAddedConnectorIdGenerators());
         assert connectorIdGenerator != null;
 
+        SessionStore sessionStore = createSessionStore();
+        if (sessionStore != null) {
+            sessionPassivator = new SessionPassivator(this, sessionStore,
+                    TimeUnit.SECONDS.toMillis(getSessionPassivationDelay()));
+            sessionPassivator.start();
+        }
+
+        int accessThreads = getIntParameter(
+                Constants.SERVLET_PARAMETER_SESSION_ACCESS_THREADS, 0);
+        if (accessThreads > 0) {
+            accessExecutor = new SessionAccessExecutor(this, accessThreads);
+        }
+
+        if (Boolean.parseBoolean(getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_BACKGROUND_SESSION_CLEANUP,
+                        "false"))) {
+            sessionReaper = new SessionReaper(this, getTimerWheel());
+        }
+
+        uidlCompressionEnabled = Boolean.parseBoolean(
+                getDeploymentConfiguration().getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_COMPRESS_UIDL_RESPONSES,
+                        "false"));
+
         initialized = true;
     }
 
+    /**
+     * Creates the store used for passivating idle sessions, or returns
+     * <code>null</code> to keep all sessions in the HTTP session. Called once
+     * during initialization. By default, returns <code>null</code>.
+     * <p>
+     * If a store is returned, sessions are passivated after receiving no
+     * requests for the number of seconds configured by the
+     * {@value Constants#SERVLET_PARAMETER_SESSION_PASSIVATION_DELAY}
+     * parameter, 120 seconds by default. A passivated session is serialized
+     * into the store, and the VaadinSession in the HTTP session is replaced by
+     * a small placeholder. The session is deserialized on the next request.
+     * This reduces the heap used by idle sessions, but sessions with frequent
+     * heartbeat or poll requests are not passivated.
+     * <p>
+     * Sessions using push are never passivated. Background threads should not
+     * hold references to UIs of sessions that may be passivated, since
+     * changes made through such references are lost. If a session expires
+     * while passivated, it is removed from the store without being
+     * deserialized, so no session destroy events are fired for it.
+     *
+     * @return the session store to use, or <code>null</code> to not
+     *         passivate sessions
+     * @throws ServiceException
+     *             if the store cannot be created
+     * @see FileSessionStore
+     * @since 8.15
+     */
+    protected SessionStore createSessionStore() throws ServiceException {
+        return null;
+    }
+
+    /**
+     * Gets the store used for passivating idle sessions.
+     *
+     * @return the session store, or <code>null</code> if sessions are not
+     *         passivated
+     * @see #createSessionStore()
+     * @since 8.15
+     */
+    public SessionStore getSessionStore() {
+        return sessionPassivator != null ? sessionPassivator.getStore() : null;
+    }
+
+    /**
+     * Gets the executor that runs the tasks queued with
+     * {@link VaadinSession#access(Runnable)}, if one is configured with the
+     * {@value Constants#SERVLET_PARAMETER_SESSION_ACCESS_THREADS} parameter.
+     *
+     * @return the access executor, or <code>null</code> if queued tasks are
+     *         run by the threads that lock the sessions
+     * @since 8.15
+     */
+    public SessionAccessExecutor getSessionAccessExecutor() {
+        return accessExecutor;
+    }
+
+    /**
+     * Checks whether UIDL responses are compressed with gzip for browsers that
+     * accept it, as configured with the
+     * {@value Constants#SERVLET_PARAMETER_COMPRESS_UIDL_RESPONSES} parameter.
+     * The browser decompresses the responses before they are handled by the
+     * client-side engine, so no client-side changes are needed.
+     * <p>
+     * Push messages sent over websockets are not affected, as their
+     * compression is negotiated by the server and the browser using the
+     * permessage-deflate extension.
+     *
+     * @return <code>true</code> if UIDL responses are compressed,
+     *         <code>false</code> otherwise
+     * @since 8.15
+     */
+    public boolean isUidlCompressionEnabled() {
+        return uidlCompressionEnabled;
+    }
+
+    private int getSessionPassivationDelay() {
+        return getIntParameter(
+                Constants.SERVLET_PARAMETER_SESSION_PASSIVATION_DELAY,
+                Constants.DEFAULT_SESSION_PASSIVATION_DELAY);
+    }
+
+    int getIntParameter(String name, int defaultValue) {
+        String value = getDeploymentConfiguration()
+                .getApplicationOrSystemProperty(name,
+                        Integer.toString(defaultValue));
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            getLogger().warning("Invalid value for " + name + ": " + value
+                    + ", using the default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Gets all available service init listeners. A custom Vaadin service
      * implementation can override this method to discover init listeners in
@@ -519,6 +664,26 @@ public abstract class VaadinService implements Serializable {
         return () -> sessionDestroyListeners.remove(listener);
     }
 
+    /**
+     * Adds a listener that gets notified with the time spent in the different
+     * phases of each handled UIDL request.
+     * <p>
+     * The timings are only recorded while at least one listener is
+     * registered. The listeners are called on the request thread after the
+     * response has been written, without holding the session lock.
+     *
+     * @see UidlTimingHistogram
+     *
+     * @param listener
+     *            the UIDL timing listener, not <code>null</code>
+     * @return a registration object for removing the listener
+     * @since 8.15
+     */
+    public Registration addUidlTimingListener(UidlTimingListener listener) {
+        uidlTimingListeners.add(listener);
+        return () -> uidlTimingListeners.remove(listener);
+    }
+
     /**
      * Handles destruction of the given session. Internally ensures proper
      * locking is done.
@@ -674,6 +839,23 @@ public abstract class VaadinService implements Serializable {
                         + getLockAttributeName() + " in the session");
     }
 
+    /**
+     * Creates the lock for a new session. The lock is stored in the session
+     * using {@link #setSessionLock(WrappedSession, Lock)}. By default, creates
+     * a {@link ReentrantLock}.
+     * <p>
+     * Return a {@link ReadMostlySessionLock} to let read-only requests, such
+     * as heartbeats and connector resource requests, of the same session be
+     * handled concurrently with each other. Such requests still wait while
+     * another request, e.g. a UIDL request, holds the exclusive lock.
+     *
+     * @return a new session lock, not <code>null</code>
+     * @since 8.15
+     */
+    protected ReentrantLock createSessionLock() {
+        return new ReentrantLock();
+    }
+
     /**
      * Locks the given session for this service instance. Typically you want to
      * call {@link VaadinSession#lock()} instead of this method.
@@ -706,7 +888,7 @@ public abstract class VaadinService implements Serializable {
             synchronized (VaadinService.class) {
                 lock = getSessionLock(wrappedSession);
                 if (lock == null) {
-                    lock = new ReentrantLock();
+                    lock = createSessionLock();
                     setSessionLock(wrappedSession, lock);
                 }
             }
@@ -755,6 +937,14 @@ public abstract class VaadinService implements Serializable {
         WrappedSession wrappedSession = getWrappedSession(request,
                 requestCanCreateSession);
 
+        if (isReadOnlyRequest(request)) {
+            VaadinSession session = findVaadinSessionForReading(request,
+                    wrappedSession);
+            if (session != null) {
+                return session;
+            }
+        }
+
         final Lock lock;
         try {
             lock = lockSession(wrappedSession);
@@ -771,6 +961,62 @@ public abstract class VaadinService implements Serializable {
 
     }
 
+    /**
+     * Checks whether the given request only reads the session, so that the
+     * session can be found and the request ended with the shared lock of a
+     * {@link ReadMostlySessionLock}.
+     */
+    private static boolean isReadOnlyRequest(VaadinRequest request) {
+        return ServletPortletHelper.isHeartbeatRequest(request)
+                || ServletPortletHelper.isConnectorResourceRequest(request);
+    }
+
+    /**
+     * Finds the session of a read-only request with the shared lock of a
+     * {@link ReadMostlySessionLock}. Returns <code>null</code> if the session
+     * needs to be found with the exclusive lock, e.g. because the session has
+     * not been loaded in this service or has been passivated.
+     */
+    private VaadinSession findVaadinSessionForReading(VaadinRequest request,
+            WrappedSession wrappedSession) throws SessionExpiredException {
+        if (hasParameter(request, URL_PARAMETER_RESTART_APPLICATION)
+                || hasParameter(request, URL_PARAMETER_CLOSE_APPLICATION)) {
+            return null;
+        }
+        ReadMostlySessionLock lock;
+        try {
+            Lock sessionLock = getSessionLock(wrappedSession);
+            if (!(sessionLock instanceof ReadMostlySessionLock)) {
+                return null;
+            }
+            lock = (ReadMostlySessionLock) sessionLock;
+        } catch (IllegalStateException e) {
+            throw new SessionExpiredException();
+        }
+
+        lock.lockRead();
+        try {
+            Object attribute = wrappedSession
+                    .getAttribute(getSessionAttributeName());
+            if (!(attribute instanceof VaadinSession)) {
+                return null;
+            }
+            VaadinSession session = (VaadinSession) attribute;
+            // The transient fields of a deserialized session are refreshed
+            // with the exclusive lock
+            if (session.getService() != this
+                    || session.getSession() == null) {
+                return null;
+            }
+            return session;
+        } catch (IllegalStateException e) {
+            // Invalidated after fetching the lock
+            throw new SessionExpiredException();
+        } finally {
+            lock.unlockRead();
+        }
+    }
+
     /**
      * Finds or creates a Vaadin session. Assumes necessary synchronization has
      * been done by the caller to ensure this is not called simultaneously by
@@ -1261,6 +1507,12 @@ public abstract class VaadinService implements Serializable {
      * session, and closes the session if it is itself inactive. This operation
      * should not be performed without first acquiring the session lock. By
      * default called at the end of each request, after sending the response.
+     * <p>
+     * If the
+     * {@value Constants#SERVLET_PARAMETER_BACKGROUND_SESSION_CLEANUP}
+     * parameter is set, this is instead called in the background when a UI or
+     * the session may have become inactive, and at the end of requests where
+     * the session has been closed.
      *
      * @param session
      *            the session to clean up
@@ -1444,6 +1696,51 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    /**
+     * Gets the delay until a session that has just received a request should
+     * be checked for inactivity.
+     *
+     * @param session
+     *            the session to check
+     * @return the delay in milliseconds, or a negative number if neither UIs
+     *         nor the session time out
+     */
+    long getInitialCleanupDelay(VaadinSession session) {
+        long delay = 1000L * getHeartbeatTimeout();
+        long uidlRequestTimeout = 1000L * getUidlRequestTimeout(session);
+        if (uidlRequestTimeout >= 0
+                && (delay < 0 || uidlRequestTimeout < delay)) {
+            delay = uidlRequestTimeout;
+        }
+        return delay;
+    }
+
+    /**
+     * Gets the time when the first UI of the given session times out, or the
+     * session itself times out, whichever comes first.
+     *
+     * @param session
+     *            the session to check
+     * @return the time in milliseconds since the epoch, or
+     *         {@link Long#MAX_VALUE} if neither UIs nor the session time out
+     */
+    long getNextCleanupTime(VaadinSession session) {
+        long next = Long.MAX_VALUE;
+        long heartbeatTimeout = 1000L * getHeartbeatTimeout();
+        if (heartbeatTimeout >= 0) {
+            for (UI ui : session.getUIs()) {
+                next = Math.min(next,
+                        ui.getLastHeartbeatTimestamp() + heartbeatTimeout);
+            }
+        }
+        long uidlRequestTimeout = 1000L * getUidlRequestTimeout(session);
+        if (uidlRequestTimeout >= 0) {
+            next = Math.min(next,
+                    session.getLastRequestTimestamp() + uidlRequestTimeout);
+        }
+        return next;
+    }
+
     private static final Logger getLogger() {
         return Logger.getLogger(VaadinService.class.getName());
     }
@@ -1463,6 +1760,14 @@ public abstract class VaadinService implements Serializable {
         }
         setCurrentInstances(request, response);
         request.setAttribute(REQUEST_START_TIME_ATTRIBUTE, System.nanoTime());
+        if (!uidlTimingListeners.isEmpty()
+                && ServletPortletHelper.isUIDLRequest(request)) {
+            request.setAttribute(UidlTimingEvent.class.getName(),
+                    new UidlTimingEvent(this));
+        }
+        if (sessionPassivator != null) {
+            sessionPassivator.requestStart(request);
+        }
     }
 
     /**
@@ -1479,11 +1784,20 @@ public abstract class VaadinService implements Serializable {
      */
     public void requestEnd(VaadinRequest request, VaadinResponse response,
             VaadinSession session) {
-        if (session != null) {
+        if (session != null && !requestEndForReading(request, session)) {
             assert VaadinSession.getCurrent() == session;
             session.lock();
             try {
-                cleanupSession(session);
+                if (sessionReaper == null) {
+                    cleanupSession(session);
+                } else if (isSessionActive(session)) {
+                    // Inactive UIs are closed by the reaper, only UIs closed
+                    // during the request are removed here
+                    removeClosedUIs(session);
+                    sessionReaper.track(session);
+                } else {
+                    cleanupSession(session);
+                }
                 final long duration = (System.nanoTime() - (Long) request
                         .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
                 session.setLastRequestDuration(duration);
@@ -1491,9 +1805,66 @@ public abstract class VaadinService implements Serializable {
                 session.unlock();
             }
         }
+        if (sessionPassivator != null) {
+            sessionPassivator.requestEnd(request);
+        }
+        UidlTimingEvent timingEvent = UidlTimingEvent.get(request);
+        if (timingEvent != null) {
+            timingEvent.setTotalTime(System.nanoTime()
+                    - (Long) request.getAttribute(REQUEST_START_TIME_ATTRIBUTE));
+            fireUidlTiming(timingEvent);
+        }
         CurrentInstance.clearAll();
     }
 
+    /**
+     * Ends a read-only request with the shared lock of a
+     * {@link ReadMostlySessionLock}. The session is only checked or tracked
+     * for inactivity, the duration of the request is not recorded since that
+     * would modify the session.
+     *
+     * @return <code>true</code> if the request has been ended,
+     *         <code>false</code> if the session needs the exclusive lock to be
+     *         cleaned up
+     */
+    private boolean requestEndForReading(VaadinRequest request,
+            VaadinSession session) {
+        if (!isReadOnlyRequest(request)
+                || !(session.getLockInstance() instanceof ReadMostlySessionLock)) {
+            return false;
+        }
+        assert VaadinSession.getCurrent() == session;
+        session.lockForReading();
+        try {
+            if (!isSessionActive(session)) {
+                return false;
+            }
+            if (sessionReaper != null) {
+                sessionReaper.track(session);
+                return true;
+            }
+            for (UI ui : session.getUIs()) {
+                if (!isUIActive(ui)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            session.unlockForReading();
+        }
+    }
+
+    private void fireUidlTiming(UidlTimingEvent event) {
+        for (UidlTimingListener listener : uidlTimingListeners) {
+            try {
+                listener.uidlRequestHandled(event);
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING,
+                        "UIDL timing listener threw an exception", e);
+            }
+        }
+    }
+
     /**
      * Returns the request handlers that are registered with this service. The
      * iteration order of the returned collection is the same as the order in
@@ -2022,6 +2393,9 @@ public abstract class VaadinService implements Serializable {
             Runnable runnable) {
         FutureAccess future = new FutureAccess(session, runnable);
         session.getPendingAccessQueue().add(future);
+        if (accessExecutor != null) {
+            accessExecutor.taskQueued();
+        }
 
         ensureAccessQueuePurged(session);
 
@@ -2034,12 +2408,19 @@ public abstract class VaadinService implements Serializable {
      * thread, the queue will be purged when the session is unlocked. If the
      * lock is not held by any thread, it is acquired and the queue is purged
      * right away.
+     * <p>
+     * If a {@link #getSessionAccessExecutor() session access executor} is
+     * used, the queue is instead purged by a thread of the executor.
      *
      * @since 7.1.2
      * @param session
      *            the session for which the access queue should be purged
      */
     public void ensureAccessQueuePurged(VaadinSession session) {
+        if (accessExecutor != null) {
+            accessExecutor.schedule(session);
+            return;
+        }
         /*
          * If no thread is currently holding the lock, pending changes for UIs
          * with automatic push would not be processed and pushed until the next
@@ -2070,6 +2451,10 @@ public abstract class VaadinService implements Serializable {
      * <p>
      * This method is automatically run by the framework at appropriate
      * situations and is not intended to be used by application developers.
+     * <p>
+     * If a {@link #getSessionAccessExecutor() session access executor} is
+     * used, the tasks are not run by the calling thread, but by a thread of
+     * the executor.
      *
      * @param session
      *            the vaadin session to purge the queue for
@@ -2082,6 +2467,25 @@ public abstract class VaadinService implements Serializable {
             return;
         }
 
+        if (accessExecutor != null) {
+            accessExecutor.schedule(session);
+        } else {
+            runPendingAccessTasks(session, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Runs at most the given number of tasks from the queue of pending access
+     * invocations.
+     *
+     * @param session
+     *            the vaadin session to run the tasks for
+     * @param maxTasks
+     *            the maximum number of tasks to run
+     */
+    void runPendingAccessTasks(VaadinSession session, int maxTasks) {
+        assert session.hasLock();
+
         FutureAccess pendingAccess;
 
         // Dump all current instances, not only the ones dumped by setCurrent
@@ -2089,8 +2493,13 @@ public abstract class VaadinService implements Serializable {
                 .getInstances();
         CurrentInstance.setCurrent(session);
         try {
-            while ((pendingAccess = session.getPendingAccessQueue()
-                    .poll()) != null) {
+            int taskCount = 0;
+            while (taskCount++ < maxTasks && (pendingAccess = session
+                    .getPendingAccessQueue().poll()) != null) {
+                if (accessExecutor != null) {
+                    accessExecutor.taskDequeued(
+                            System.nanoTime() - pendingAccess.getQueueTime());
+                }
                 if (!pendingAccess.isCancelled()) {
                     pendingAccess.run();
 
@@ -2167,6 +2576,59 @@ public abstract class VaadinService implements Serializable {
         ServiceDestroyEvent event = new ServiceDestroyEvent(this);
         serviceDestroyListeners
                 .forEach(listener -> listener.serviceDestroy(event));
+        if (sessionPassivator != null) {
+            sessionPassivator.shutdown();
+        }
+        if (accessExecutor != null) {
+            accessExecutor.shutdown();
+        }
+        if (sessionReaper != null) {
+            sessionReaper.shutdown();
+        }
+        synchronized (this) {
+            if (timerWheel != null) {
+                timerWheel.stop();
+            }
+            if (pushExecutor != null) {
+                pushExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Gets the timer shared by the background tasks of this service, such as
+     * delayed pushes. The timer is created on first use.
+     *
+     * @return the timer wheel, not <code>null</code>
+     */
+    synchronized TimerWheel getTimerWheel() {
+        if (timerWheel == null) {
+            timerWheel = new TimerWheel("vaadin-timer-", 10,
+                    TimeUnit.MILLISECONDS, 512);
+        }
+        return timerWheel;
+    }
+
+    /**
+     * Gets the scheduler for automatic pushes of UIs that have a push
+     * interval.
+     *
+     * @return the push scheduler, not <code>null</code>
+     */
+    synchronized PushScheduler getPushScheduler() {
+        if (pushScheduler == null) {
+            Executor flushExecutor;
+            if (accessExecutor != null) {
+                // Accessing the UI only queues a task for the access executor
+                flushExecutor = Runnable::run;
+            } else {
+                pushExecutor = ExecutorUtil.createBoundedExecutor(
+                        "vaadin-push-", PUSH_THREADS);
+                flushExecutor = pushExecutor;
+            }
+            pushScheduler = new PushScheduler(getTimerWheel(), flushExecutor);
+        }
+        return pushScheduler;
     }
 
     /**
@@ -2258,8 +2720,16 @@ public abstract class VaadinService implements Serializable {
      * @return the VaadinSession or null if no session was found
      */
     protected VaadinSession readFromHttpSession(WrappedSession wrappedSession) {
-        return (VaadinSession) wrappedSession
-                .getAttribute(getSessionAttributeName());
+        Object session = wrappedSession.getAttribute(getSessionAttributeName());
+        if (session instanceof SessionPassivator.PassivatedSession) {
+            if (sessionPassivator == null) {
+                // Passivated with a store that is no longer in use
+                return null;
+            }
+            return sessionPassivator.activate(wrappedSession,
+                    (SessionPassivator.PassivatedSession) session);
+        }
+        return (VaadinSession) session;
     }
 
     /**
@@ -54,6 +54,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -82,7 +85,7 @@ import elemental.json.JsonObject;
 @SuppressWarnings({ "deprecation", "serial" })
 public class VaadinServlet extends HttpServlet implements Constants {
 
-    private class ScssCacheEntry implements Serializable {
+    class ScssCacheEntry implements Serializable {
 
         private final String css;
         private final List<String> sourceUris;
@@ -198,6 +201,8 @@ public class VaadinServlet extends HttpServlet implements Constants {
 
     private VaadinServletService servletService;
 
+    private transient StaticResourceCache staticResourceCache;
+
     /**
      * Mapped uri is for the jar file.
      * <p>
@@ -230,6 +235,13 @@ public class VaadinServlet extends HttpServlet implements Constants {
         // Sets current service even though there are no request and response
         servletService.setCurrentInstances(null, null);
 
+        int cacheSize = servletService.getIntParameter(
+                SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE, 0);
+        if (cacheSize > 0 && servletService.getDeploymentConfiguration()
+                .isProductionMode()) {
+            staticResourceCache = new StaticResourceCache(cacheSize * 1024L);
+        }
+
         servletInitialized();
 
         CurrentInstance.clearAll();
@@ -761,15 +773,21 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * This is a workaround needed as the scss compiler currently is not thread
      * safe (#10292).
      * <p>
-     * In addition, this is also used to protect the cached compilation results.
+     * Only held while compiling, the cached results can be read concurrently.
      */
     private static final Object SCSS_MUTEX = new Object();
 
     /**
-     * Global cache of scss compilation results. This map is protected from
-     * concurrent access by {@link #SCSS_MUTEX}.
+     * Global cache of scss compilation results.
      */
-    private final Map<String, ScssCacheEntry> scssCache = new HashMap<>();
+    private final Map<String, ScssCacheEntry> scssCache = new ConcurrentHashMap<>();
+
+    /**
+     * Ongoing scss compilations, shared by the requests for the same file.
+     * Created lazily since the field is not restored when the servlet is
+     * deserialized.
+     */
+    private transient volatile Map<String, CompletableFuture<ScssCacheEntry>> scssCompilations;
 
     /**
      * Keeps track of whether a warning about not being able to persist cache
@@ -823,6 +841,13 @@ public class VaadinServlet extends HttpServlet implements Constants {
 
     /**
      * Serve resources from VAADIN directory.
+     * <p>
+     * If the static resource cache is enabled with
+     * {@link Constants#SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE} in
+     * production mode, resources are served from memory after the first
+     * request and
+     * {@link #writeStaticResourceResponse(HttpServletRequest, HttpServletResponse, URL)}
+     * is not called for them.
      *
      * @param filename
      *            The filename to serve. Should always start with /VAADIN/.
@@ -842,6 +867,15 @@ public class VaadinServlet extends HttpServlet implements Constants {
             throws IOException, ServletException {
 
         final ServletContext sc = getServletContext();
+        StaticResourceCache cache = staticResourceCache;
+        StaticResourceCache.Entry cacheEntry = cache != null
+                ? cache.get(filename)
+                : null;
+        if (cacheEntry != null) {
+            writeCachedStaticResource(filename, cacheEntry, request, response);
+            return;
+        }
+
         URL resourceUrl = findResourceURL(filename);
 
         if (resourceUrl == null) {
@@ -872,14 +906,17 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return;
         }
 
-        String cacheControl = "public, max-age=0, must-revalidate";
-        int resourceCacheTime = getCacheTime(filename);
-        if (resourceCacheTime > 0) {
-            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        if (cache != null) {
+            cacheEntry = cache.load(filename, resourceUrl,
+                    sc.getMimeType(filename));
+            if (cacheEntry != null) {
+                writeCachedStaticResource(filename, cacheEntry, request,
+                        response);
+                return;
+            }
         }
-        response.setHeader("Cache-Control", cacheControl);
-        response.setDateHeader("Expires",
-                System.currentTimeMillis() + resourceCacheTime * 1000);
+
+        setCacheHeaders(filename, response);
 
         // Find the modification timestamp
         long lastModifiedTime = 0;
@@ -928,6 +965,26 @@ public class VaadinServlet extends HttpServlet implements Constants {
         writeStaticResourceResponse(request, response, resourceUrl);
     }
 
+    private void writeCachedStaticResource(String filename,
+            StaticResourceCache.Entry cacheEntry, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        setCacheHeaders(filename, response);
+        staticResourceCache.write(cacheEntry, request, response,
+                allowServePrecompressedResource(request, cacheEntry.getUrl()));
+    }
+
+    private void setCacheHeaders(String filename,
+            HttpServletResponse response) {
+        String cacheControl = "public, max-age=0, must-revalidate";
+        int resourceCacheTime = getCacheTime(filename);
+        if (resourceCacheTime > 0) {
+            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        }
+        response.setHeader("Cache-Control", cacheControl);
+        response.setDateHeader("Expires",
+                System.currentTimeMillis() + resourceCacheTime * 1000);
+    }
+
     /**
      * Calculates the cache lifetime for the given filename in seconds. By
      * default filenames containing ".nocache." return 0, filenames containing
@@ -1135,36 +1192,116 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return true;
         }
 
-        synchronized (SCSS_MUTEX) {
-            ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+        ScssCacheEntry cacheEntry = getScssCacheEntry(filename, scssFilename,
+                sc);
+        if (cacheEntry == null) {
+            // compilation did not produce any result, but logged a message
+            return false;
+        }
 
-            if (cacheEntry == null) {
-                try {
-                    cacheEntry = loadPersistedScssCache(scssFilename, sc);
-                } catch (Exception e) {
-                    getLogger().log(Level.WARNING,
-                            "Could not read persisted scss cache", e);
+        // This is for development mode only so instruct the browser to
+        // never cache it
+        response.setHeader("Cache-Control", "no-cache");
+        final String mimetype = getService().getMimeType(filename);
+        writeResponse(response, mimetype, cacheEntry.getCss());
+
+        return true;
+    }
+
+    /**
+     * Gets the compiled css for the given scss file, compiling it if the
+     * cached result is missing or outdated. Concurrent requests for the same
+     * file share one compilation, and requests that have an outdated result
+     * are served that result while another request recompiles.
+     */
+    ScssCacheEntry getScssCacheEntry(String filename, String scssFilename,
+            ServletContext sc) throws IOException {
+        ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+        if (cacheEntry != null && cacheEntry.isStillValid()) {
+            return cacheEntry;
+        }
+
+        CompletableFuture<ScssCacheEntry> compilation = new CompletableFuture<>();
+        Map<String, CompletableFuture<ScssCacheEntry>> compilations = getScssCompilations();
+        CompletableFuture<ScssCacheEntry> ongoing = compilations
+                .putIfAbsent(scssFilename, compilation);
+        if (ongoing != null) {
+            if (cacheEntry != null) {
+                // Serve the previous result until the new one is ready
+                return cacheEntry;
+            }
+            try {
+                return ongoing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
                 }
+                throw e;
             }
+        }
 
-            if (cacheEntry == null || !cacheEntry.isStillValid()) {
-                cacheEntry = compileScssOnTheFly(filename, scssFilename, sc);
-                persistCacheEntry(cacheEntry);
+        try {
+            ScssCacheEntry current = scssCache.get(scssFilename);
+            if (current != null && current != cacheEntry
+                    && current.isStillValid()) {
+                // Compiled by another request after the first check
+                compilation.complete(current);
+                return current;
             }
-            scssCache.put(scssFilename, cacheEntry);
 
-            if (cacheEntry == null) {
-                // compilation did not produce any result, but logged a message
-                return false;
+            ScssCacheEntry result = loadOrCompileScss(filename, scssFilename,
+                    sc, cacheEntry == null);
+            if (result != null) {
+                scssCache.put(scssFilename, result);
+            } else {
+                scssCache.remove(scssFilename);
             }
+            compilation.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            compilation.completeExceptionally(e);
+            throw e;
+        } finally {
+            compilations.remove(scssFilename, compilation);
+        }
+    }
 
-            // This is for development mode only so instruct the browser to
-            // never cache it
-            response.setHeader("Cache-Control", "no-cache");
-            final String mimetype = getService().getMimeType(filename);
-            writeResponse(response, mimetype, cacheEntry.getCss());
+    private Map<String, CompletableFuture<ScssCacheEntry>> getScssCompilations() {
+        Map<String, CompletableFuture<ScssCacheEntry>> compilations = scssCompilations;
+        if (compilations == null) {
+            synchronized (scssCache) {
+                compilations = scssCompilations;
+                if (compilations == null) {
+                    compilations = new ConcurrentHashMap<>();
+                    scssCompilations = compilations;
+                }
+            }
+        }
+        return compilations;
+    }
 
-            return true;
+    ScssCacheEntry loadOrCompileScss(String filename, String scssFilename,
+            ServletContext sc, boolean loadPersisted) throws IOException {
+        if (loadPersisted) {
+            try {
+                ScssCacheEntry cacheEntry = loadPersistedScssCache(
+                        scssFilename, sc);
+                if (cacheEntry != null && cacheEntry.isStillValid()) {
+                    return cacheEntry;
+                }
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING,
+                        "Could not read persisted scss cache", e);
+            }
+        }
+
+        synchronized (SCSS_MUTEX) {
+            ScssCacheEntry cacheEntry = compileScssOnTheFly(filename,
+                    scssFilename, sc);
+            if (cacheEntry != null) {
+                persistCacheEntry(cacheEntry);
+            }
+            return cacheEntry;
         }
     }
 
@@ -1650,6 +1787,9 @@ public class VaadinServlet extends HttpServlet implements Constants {
         if (getService() != null) {
             getService().destroy();
         }
+        if (staticResourceCache != null) {
+            staticResourceCache.clear();
+        }
     }
 
     private static void persistCacheEntry(ScssCacheEntry cacheEntry) {
@@ -81,6 +81,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     public static class FutureAccess extends FutureTask<Void> {
         private final VaadinSession session;
         private final Runnable runnable;
+        private final long queueTime = System.nanoTime();
 
         /**
          * Creates an instance for the given runnable.
@@ -114,6 +115,17 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
             return super.get();
         }
 
+        /**
+         * Gets the time this task was created, for measuring how long it has
+         * waited in the queue.
+         *
+         * @return the creation time in nanoseconds, as given by
+         *         {@link System#nanoTime()}
+         */
+        long getQueueTime() {
+            return queueTime;
+        }
+
         /**
          * Handles exceptions thrown during the execution of this task.
          *
@@ -250,6 +262,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<>();
 
+    private transient boolean passivated = false;
+
     /**
      * Creates a new VaadinSession tied to a VaadinService.
      *
@@ -284,6 +298,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Override
     public void valueUnbound(HttpSessionBindingEvent event) {
+        if (passivated) {
+            // Moved to a session store, not closing
+            return;
+        }
         // If we are going to be unbound from the session, the session must be
         // closing
         // Notify the service
@@ -729,10 +747,26 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<UI> getUIs() {
-        assert hasLock();
+        assert hasReadLock();
         return Collections.unmodifiableCollection(uIs.values());
     }
 
+    /**
+     * Creates a report estimating the memory used by the UIs of this session,
+     * e.g. for finding the sessions that use the most memory. The report is
+     * computed when this method is called, so calling it frequently for all
+     * sessions should be avoided.
+     * <p>
+     * The session must be locked when calling this method.
+     *
+     * @return a new memory report, not <code>null</code>
+     * @since 8.15
+     */
+    public SessionMemoryReport getMemoryReport() {
+        assert hasLock();
+        return SessionMemoryReport.create(this);
+    }
+
     private int connectorIdSequence = 0;
 
     /*
@@ -791,7 +825,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return The UI with the given id or null if not found
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
+        assert hasReadLock();
         return uIs.get(uiId);
     }
 
@@ -806,6 +840,56 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return l.isHeldByCurrentThread();
     }
 
+    /**
+     * Checks if the current thread has at least read access to this
+     * VaadinSession, i.e. if it holds either the exclusive lock or the shared
+     * lock acquired with {@link #lockForReading()}.
+     *
+     * @return true if this thread has read access, false otherwise
+     * @since 8.15
+     */
+    public boolean hasReadLock() {
+        Lock l = getLockInstance();
+        return hasLock() || (l instanceof ReadMostlySessionLock
+                && ((ReadMostlySessionLock) l).isReadLockedByCurrentThread());
+    }
+
+    /**
+     * Locks this session for reading only. If the session uses a
+     * {@link ReadMostlySessionLock}, a shared lock is acquired, so that other
+     * threads can read the session at the same time. Otherwise, this is the
+     * same as {@link #lock()}.
+     * <p>
+     * The session must not be modified while holding only the shared lock,
+     * and the exclusive lock must not be acquired before the shared lock has
+     * been released with {@link #unlockForReading()}.
+     *
+     * @see ReadMostlySessionLock
+     * @since 8.15
+     */
+    public void lockForReading() {
+        Lock l = getLockInstance();
+        if (l instanceof ReadMostlySessionLock) {
+            ((ReadMostlySessionLock) l).lockRead();
+        } else {
+            lock();
+        }
+    }
+
+    /**
+     * Releases the lock acquired with {@link #lockForReading()}.
+     *
+     * @since 8.15
+     */
+    public void unlockForReading() {
+        Lock l = getLockInstance();
+        if (l instanceof ReadMostlySessionLock) {
+            ((ReadMostlySessionLock) l).unlockRead();
+        } else {
+            unlock();
+        }
+    }
+
     /**
      * Checks if the current thread has exclusive access to the given
      * WrappedSession.
@@ -1004,7 +1088,9 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * <p>
      * For UIs in this session that have its push mode set to
      * {@link PushMode#AUTOMATIC automatic}, pending changes will be pushed to
-     * their respective clients.
+     * their respective clients, or scheduled to be pushed later if the
+     * {@link com.vaadin.ui.PushConfiguration#setPushInterval(int) push
+     * interval} of the UI has not yet passed since the previous push.
      *
      * @see #lock()
      * @see UI#push()
@@ -1027,7 +1113,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                         Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
                                 .setCurrent(ui);
                         try {
-                            ui.push();
+                            if (ui.getPushConfiguration()
+                                    .getPushInterval() > 0) {
+                                getService().getPushScheduler().push(ui);
+                            } else {
+                                ui.push();
+                            }
                         } finally {
                             CurrentInstance.restoreInstances(oldCurrent);
                         }
@@ -1494,6 +1585,26 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         }
     }
 
+    /**
+     * Marks this instance as passivated to a {@link SessionStore}. The
+     * instance will be replaced by a deserialized copy, so it should not be
+     * closed when it is removed from the HTTP session.
+     */
+    void setPassivated() {
+        passivated = true;
+    }
+
+    /**
+     * Checks whether this instance has been passivated to a
+     * {@link SessionStore} and replaced by a copy.
+     *
+     * @return <code>true</code> if this instance has been passivated,
+     *         otherwise <code>false</code>
+     */
+    boolean isPassivated() {
+        return passivated;
+    }
+
     /**
      * Finds the UI with the corresponding embed id.
      *
@@ -32,11 +32,8 @@ import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.ClientRpc;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonValue;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes {@link ClientRpc client RPC} invocations to JSON.
@@ -62,37 +59,33 @@ public class ClientRpcWriter implements Serializable {
         Collection<ClientMethodInvocation> pendingInvocations = collectPendingRpcCalls(
                 ui.getConnectorTracker().getDirtyVisibleConnectors());
 
-        JsonArray rpcCalls = Json.createArray();
+        writer.write('[');
+        boolean first = true;
         for (ClientMethodInvocation invocation : pendingInvocations) {
-            // add invocation to rpcCalls
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            // write invocation as [connectorId, interface, method, params]
             try {
-                JsonArray invocationJson = Json.createArray();
-                invocationJson.set(0,
+                writer.write('[');
+                JsonStreamWriter.writeString(writer,
                         invocation.getConnector().getConnectorId());
-                invocationJson.set(1, invocation.getInterfaceName());
-                invocationJson.set(2, invocation.getMethodName());
-                JsonArray paramJson = Json.createArray();
-                for (int i = 0; i < invocation
-                        .getParameterTypes().length; ++i) {
-                    Type parameterType = invocation.getParameterTypes()[i];
-                    JsonValue referenceParameter = null;
-                    // TODO Use default values for RPC parameter types
-                    // if (!JsonCodec.isInternalType(parameterType)) {
-                    // try {
-                    // referenceParameter = parameterType.newInstance();
-                    // } catch (Exception e) {
-                    // logger.log(Level.WARNING,
-                    // "Error creating reference object for parameter of type "
-                    // + parameterType.getName());
-                    // }
-                    // }
-                    EncodeResult encodeResult = JsonCodec.encode(
-                            invocation.getParameters()[i], referenceParameter,
-                            parameterType, ui.getConnectorTracker());
-                    paramJson.set(i, encodeResult.getEncodedValue());
+                writer.write(',');
+                JsonStreamWriter.writeString(writer,
+                        invocation.getInterfaceName());
+                writer.write(',');
+                JsonStreamWriter.writeString(writer,
+                        invocation.getMethodName());
+                writer.write(',');
+                String encodedParameters = invocation.getEncodedParameters();
+                if (encodedParameters != null) {
+                    // Encoded once for all recipients of a broadcast
+                    writer.write(encodedParameters);
+                } else {
+                    writeParameters(ui, invocation, writer);
                 }
-                invocationJson.set(3, paramJson);
-                rpcCalls.set(rpcCalls.length(), invocationJson);
+                writer.write(']');
             } catch (JsonException e) {
                 throw new PaintException(
                         "Failed to serialize RPC method call parameters for connector "
@@ -103,7 +96,35 @@ public class ClientRpcWriter implements Serializable {
                         e);
             }
         }
-        writer.write(JsonUtil.stringify(rpcCalls));
+        writer.write(']');
+    }
+
+    private void writeParameters(UI ui, ClientMethodInvocation invocation,
+            Writer writer) throws IOException {
+        writer.write('[');
+        for (int i = 0; i < invocation.getParameterTypes().length; ++i) {
+            Type parameterType = invocation.getParameterTypes()[i];
+            JsonValue referenceParameter = null;
+            // TODO Use default values for RPC parameter types
+            // if (!JsonCodec.isInternalType(parameterType)) {
+            // try {
+            // referenceParameter = parameterType.newInstance();
+            // } catch (Exception e) {
+            // logger.log(Level.WARNING,
+            // "Error creating reference object for parameter of type "
+            // + parameterType.getName());
+            // }
+            // }
+            EncodeResult encodeResult = JsonCodec.encode(
+                    invocation.getParameters()[i], referenceParameter,
+                    parameterType, ui.getConnectorTracker());
+            if (i > 0) {
+                writer.write(',');
+            }
+            JsonStreamWriter.writeValue(writer,
+                    encodeResult.getEncodedValue());
+        }
+        writer.write(']');
     }
 
     /**
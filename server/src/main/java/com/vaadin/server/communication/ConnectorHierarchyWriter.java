@@ -19,7 +19,9 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -34,7 +36,6 @@ import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes a connector hierarchy to JSON.
@@ -63,38 +64,72 @@ public class ConnectorHierarchyWriter implements Serializable {
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
-        JsonObject hierarchyInfo = Json.createObject();
+        // The hierarchy is written directly to the writer. The corresponding
+        // JSON object is only built when assertions are enabled, since it is
+        // then needed for verifying the hierarchy later on.
+        boolean collectHierarchyInfo = false;
+        assert collectHierarchyInfo = true;
+        JsonObject hierarchyInfo = collectHierarchyInfo ? Json.createObject()
+                : null;
+
+        List<String> children = new ArrayList<>();
+        boolean first = true;
+        writer.write('{');
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
+            children.clear();
 
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                    children.add(child.getConnectorId());
                 }
             }
 
             // Omit for leaf nodes with state changes
-            if (children.length() > 0
+            if (!children.isEmpty()
                     || !stateUpdateConnectors.contains(connectorId)) {
-                try {
-                    hierarchyInfo.put(connectorId, children);
-                } catch (JsonException e) {
-                    throw new PaintException(
-                            "Failed to send hierarchy information about "
-                                    + connectorId + " to the client: "
-                                    + e.getMessage(),
-                            e);
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                JsonStreamWriter.writeString(writer, connectorId);
+                writer.write(":[");
+                for (int i = 0; i < children.size(); i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    JsonStreamWriter.writeString(writer, children.get(i));
+                }
+                writer.write(']');
+
+                if (hierarchyInfo != null) {
+                    addHierarchyInfo(hierarchyInfo, connectorId, children);
                 }
             }
         }
+        writer.write('}');
+
         // Dummy assert just for conditionally storing away data that will be
         // used by the real assert later on
         assert storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
+    }
 
-        writer.write(JsonUtil.stringify(hierarchyInfo));
+    private static void addHierarchyInfo(JsonObject hierarchyInfo,
+            String connectorId, List<String> children) throws PaintException {
+        try {
+            JsonArray childrenJson = Json.createArray();
+            for (String child : children) {
+                childrenJson.set(childrenJson.length(), child);
+            }
+            hierarchyInfo.put(connectorId, childrenJson);
+        } catch (JsonException e) {
+            throw new PaintException(
+                    "Failed to send hierarchy information about " + connectorId
+                            + " to the client: " + e.getMessage(),
+                    e);
+        }
     }
 
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
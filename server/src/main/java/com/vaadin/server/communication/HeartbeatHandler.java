@@ -48,6 +48,18 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isHeartbeatRequest(request);
     }
 
+    /**
+     * Heartbeats are handled with the session locked only for reading, since
+     * they do not modify the session apart from the heartbeat timestamp of the
+     * UI.
+     *
+     * @see VaadinSession#lockForReading()
+     */
+    @Override
+    protected boolean isReadOnlyRequest(VaadinRequest request) {
+        return true;
+    }
+
     /**
      * Handles a heartbeat request for the given session. Reads the GET
      * parameter named {@link UIConstants#UI_ID_PARAMETER} to identify the UI.
@@ -58,7 +70,9 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
-        UI ui = session.getService().findUI(request);
+        String uiId = request.getParameter(UIConstants.UI_ID_PARAMETER);
+        UI ui = uiId != null ? session.getUIById(Integer.parseInt(uiId))
+                : null;
         if (ui != null) {
             ui.setLastHeartbeatTimestamp(System.currentTimeMillis());
             // Ensure that the browser does not cache heartbeat responses.
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Writes JSON values directly to a {@link Writer} without first creating a
+ * string of the whole value. Used by the UIDL writers to avoid building large
+ * intermediate trees and strings for each response.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+final class JsonStreamWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef"
+            .toCharArray();
+
+    private JsonStreamWriter() {
+        // Static utils only
+    }
+
+    /**
+     * Writes the given JSON value to the writer. Produces the same output as
+     * {@link elemental.json.impl.JsonUtil#stringify(JsonValue)}, apart from
+     * possible differences in string escaping.
+     *
+     * @param writer
+     *            the writer to write to
+     * @param value
+     *            the value to write, <code>null</code> is written as a JSON
+     *            null
+     * @throws IOException
+     *             if writing fails
+     */
+    static void writeValue(Writer writer, JsonValue value) throws IOException {
+        if (value == null || value.getType() == JsonType.NULL) {
+            writer.write("null");
+        } else if (value.getType() == JsonType.OBJECT) {
+            JsonObject object = (JsonObject) value;
+            writer.write('{');
+            boolean first = true;
+            for (String key : object.keys()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                first = false;
+                writeString(writer, key);
+                writer.write(':');
+                writeValue(writer, object.get(key));
+            }
+            writer.write('}');
+        } else if (value.getType() == JsonType.ARRAY) {
+            JsonArray array = (JsonArray) value;
+            writer.write('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeValue(writer, array.get(i));
+            }
+            writer.write(']');
+        } else if (value.getType() == JsonType.STRING) {
+            writeString(writer, value.asString());
+        } else {
+            // Numbers and booleans are short, reuse the regular formatting
+            writer.write(value.toJson());
+        }
+    }
+
+    /**
+     * Writes the given string as a quoted and escaped JSON string.
+     *
+     * @param writer
+     *            the writer to write to
+     * @param string
+     *            the string to write, not <code>null</code>
+     * @throws IOException
+     *             if writing fails
+     */
+    static void writeString(Writer writer, String string) throws IOException {
+        writer.write('"');
+        int length = string.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c >= ' ' && c != '"' && c != '\\' && c != '\u2028'
+                    && c != '\u2029') {
+                continue;
+            }
+            if (i > start) {
+                writer.write(string, start, i - start);
+            }
+            start = i + 1;
+            switch (c) {
+            case '"':
+                writer.write("\\\"");
+                break;
+            case '\\':
+                writer.write("\\\\");
+                break;
+            case '\n':
+                writer.write("\\n");
+                break;
+            case '\r':
+                writer.write("\\r");
+                break;
+            case '\t':
+                writer.write("\\t");
+                break;
+            case '\b':
+                writer.write("\\b");
+                break;
+            case '\f':
+                writer.write("\\f");
+                break;
+            default:
+                // Other control characters and the JavaScript line
+                // separators
+                writer.write("\\u");
+                writer.write(HEX_DIGITS[(c >> 12) & 0xf]);
+                writer.write(HEX_DIGITS[(c >> 8) & 0xf]);
+                writer.write(HEX_DIGITS[(c >> 4) & 0xf]);
+                writer.write(HEX_DIGITS[c & 0xf]);
+            }
+        }
+        if (start < length) {
+            writer.write(string, start, length - start);
+        }
+        writer.write('"');
+    }
+}
@@ -35,6 +35,8 @@ import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyExcept
 import com.vaadin.server.ServerRpcManager;
 import com.vaadin.server.ServerRpcManager.RpcInvocationException;
 import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.UidlTimingEvent;
+import com.vaadin.server.UidlTimingEvent.Phase;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VariableOwner;
@@ -223,6 +225,11 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
+        UidlTimingEvent timingEvent = request != null
+                ? UidlTimingEvent.get(request)
+                : null;
+        long start = timingEvent != null ? System.nanoTime() : 0;
+
         String changeMessage = getMessage(reader);
 
         if (changeMessage == null || changeMessage.isEmpty()) {
@@ -232,6 +239,12 @@ public class ServerRpcHandler implements Serializable {
 
         RpcRequest rpcRequest = new RpcRequest(changeMessage, request);
 
+        if (timingEvent != null) {
+            long decoded = System.nanoTime();
+            timingEvent.addTime(Phase.RPC_DECODE, decoded - start);
+            start = decoded;
+        }
+
         // Security: double cookie submission pattern unless disabled by
         // property
         if (!VaadinService.isCsrfTokenValid(ui.getSession(),
@@ -274,6 +287,10 @@ public class ServerRpcHandler implements Serializable {
             ui.setLastProcessedClientToServerId(expectedId);
             handleInvocations(ui, rpcRequest.getSyncId(),
                     rpcRequest.getRpcInvocationsData());
+            if (timingEvent != null) {
+                timingEvent.addTime(Phase.RPC_INVOKE,
+                        System.nanoTime() - start);
+            }
         }
 
         if (rpcRequest.isResynchronize()) {
@@ -28,10 +28,8 @@ import com.vaadin.server.PaintException;
 import com.vaadin.shared.communication.SharedState;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes {@link SharedState shared state} changes to JSON.
@@ -59,17 +57,15 @@ public class SharedStateWriter implements Serializable {
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
         Set<String> writtenConnectors = new HashSet<>();
-        JsonObject sharedStates = Json.createObject();
+        // Each state is written as soon as it has been encoded instead of
+        // collecting all states into one object
+        writer.write('{');
         for (ClientConnector connector : dirtyVisibleConnectors) {
             // encode and send shared state
             String connectorId = connector.getConnectorId();
+            JsonObject stateJson;
             try {
-                JsonObject stateJson = connector.encodeState();
-
-                if (stateJson != null && stateJson.keys().length != 0) {
-                    sharedStates.put(connectorId, stateJson);
-                    writtenConnectors.add(connectorId);
-                }
+                stateJson = connector.encodeState();
             } catch (JsonException e) {
                 throw new PaintException(
                         "Failed to serialize shared state for connector "
@@ -77,8 +73,18 @@ public class SharedStateWriter implements Serializable {
                                 + connectorId + "): " + e.getMessage(),
                         e);
             }
+
+            if (stateJson != null && stateJson.keys().length != 0) {
+                if (!writtenConnectors.isEmpty()) {
+                    writer.write(',');
+                }
+                JsonStreamWriter.writeString(writer, connectorId);
+                writer.write(':');
+                JsonStreamWriter.writeValue(writer, stateJson);
+                writtenConnectors.add(connectorId);
+            }
         }
-        writer.write(JsonUtil.stringify(sharedStates));
+        writer.write('}');
 
         return writtenConnectors;
     }
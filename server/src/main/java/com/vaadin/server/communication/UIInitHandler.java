@@ -18,12 +18,14 @@ package com.vaadin.server.communication;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 import com.vaadin.annotations.PreserveOnRefresh;
 import com.vaadin.server.LegacyApplicationUIProvider;
@@ -41,6 +43,7 @@ import com.vaadin.shared.communication.PushMode;
 import com.vaadin.shared.ui.ui.Transport;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.util.EncodeUtil;
 
 import elemental.json.Json;
 import elemental.json.JsonException;
@@ -57,6 +60,12 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
 
     public static final String BROWSER_DETAILS_PARAMETER = "v-browserDetails";
 
+    /**
+     * Responses shorter than this are not compressed, since the gain would not
+     * be worth the extra work.
+     */
+    private static final int MIN_COMPRESSED_LENGTH = 1024;
+
     protected abstract boolean isInitRequest(VaadinRequest request);
 
     @Override
@@ -114,6 +123,11 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         response.setNoCacheHeaders();
 
         byte[] b = json.getBytes(UTF_8);
+        if (b.length >= MIN_COMPRESSED_LENGTH && isCompressionAllowed(request)) {
+            b = gzip(b);
+            response.setHeader("Content-Encoding", "gzip");
+            response.setHeader("Vary", "Accept-Encoding");
+        }
         response.setContentLength(b.length);
 
         OutputStream outputStream = response.getOutputStream();
@@ -124,6 +138,24 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         return true;
     }
 
+    private static boolean isCompressionAllowed(VaadinRequest request) {
+        VaadinService service = request.getService();
+        if (service == null || !service.isUidlCompressionEnabled()) {
+            return false;
+        }
+        return EncodeUtil.isContentEncodingAccepted(
+                request.getHeader("Accept-Encoding"), "gzip");
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                data.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
     private UI getBrowserDetailsUI(VaadinRequest request,
             VaadinSession session) {
         VaadinService vaadinService = request.getService();
@@ -35,6 +35,7 @@ import com.vaadin.server.JsonPaintTarget;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.ClientCache;
 import com.vaadin.server.SystemMessages;
+import com.vaadin.server.UidlTimingEvent;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.ApplicationConstants;
@@ -88,6 +89,8 @@ public class UidlWriter implements Serializable {
         ConnectorTracker uiConnectorTracker = ui.getConnectorTracker();
         getLogger().log(Level.FINE, "* Creating response to client");
 
+        UidlTimingEvent timingEvent = UidlTimingEvent.getCurrent();
+
         while (true) {
             List<ClientConnector> connectorsToProcess = new ArrayList<>();
             for (ClientConnector c : uiConnectorTracker
@@ -122,17 +125,23 @@ public class UidlWriter implements Serializable {
                                 .isClientSideInitialized(connector);
                 processedConnectors.add(connector);
 
+                long start = timingEvent != null ? System.nanoTime() : 0;
                 try {
                     connector.beforeClientResponse(!initialized);
                 } catch (RuntimeException e) {
                     manager.handleConnectorRelatedException(connector, e);
                 }
+                if (timingEvent != null) {
+                    timingEvent.addBeforeClientResponseTime(
+                            connector.getClass(), System.nanoTime() - start);
+                }
             }
         }
 
         getLogger().log(Level.FINE, "Found " + processedConnectors.size()
                 + " dirty connectors to paint");
 
+        long writeStart = timingEvent != null ? System.nanoTime() : 0;
         uiConnectorTracker.setWritingResponse(true);
         try {
 
@@ -323,6 +332,10 @@ public class UidlWriter implements Serializable {
         } finally {
             uiConnectorTracker.setWritingResponse(false);
             uiConnectorTracker.cleanConnectorMap(true);
+            if (timingEvent != null) {
+                timingEvent.addTime(UidlTimingEvent.Phase.WRITE,
+                        System.nanoTime() - writeStart);
+            }
         }
     }
 
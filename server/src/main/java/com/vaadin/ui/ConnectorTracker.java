@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
@@ -36,13 +37,14 @@ import com.vaadin.event.MarkedAsDirtyConnectorEvent;
 import com.vaadin.event.MarkedAsDirtyListener;
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
-import com.vaadin.server.DragAndDropService;
 import com.vaadin.server.GlobalResourceHandler;
 import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.StateSnapshot;
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.communication.ConnectorHierarchyWriter;
+import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.Registration;
 
 import elemental.json.Json;
@@ -98,6 +100,8 @@ public class ConnectorTracker implements Serializable {
 
     private final UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
+    private transient Map<ClientConnector, StateSnapshot> stateSnapshots = new HashMap<>();
+    private boolean compactDiffStateEnabled = false;
 
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
@@ -253,6 +257,7 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        stateSnapshots.clear();
     }
 
     /**
@@ -270,12 +275,11 @@ public class ConnectorTracker implements Serializable {
             return null;
         } else if (connector != null) {
             return connector;
-        } else {
-            DragAndDropService service = uI.getSession()
-                    .getDragAndDropService();
-            if (connectorId.equals(service.getConnectorId())) {
-                return service;
-            }
+        } else if (ApplicationConstants.DRAG_AND_DROP_CONNECTOR_ID
+                .equals(connectorId)) {
+            // Only get the service for its own id, as getting it creates the
+            // service if needed
+            return uI.getSession().getDragAndDropService();
         }
         return null;
     }
@@ -335,6 +339,7 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                stateSnapshots.remove(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
@@ -345,6 +350,7 @@ public class ConnectorTracker implements Serializable {
                 // sent again when/if made visible
                 uninitializedConnectors.add(connector);
                 diffStates.remove(connector);
+                stateSnapshots.remove(connector);
                 assert isRemovalSentToClient(connector) : "Connector "
                         + connector + " (id = " + connector.getConnectorId()
                         + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
@@ -469,6 +475,7 @@ public class ConnectorTracker implements Serializable {
         }
         uninitializedConnectors.remove(connector);
         diffStates.remove(connector);
+        stateSnapshots.remove(connector);
     }
 
     /**
@@ -680,14 +687,118 @@ public class ConnectorTracker implements Serializable {
         return dirtyVisibleConnectors;
     }
 
+    /**
+     * Gets the JSON representation of the shared state last sent to the client
+     * for the given connector. Changes to the returned object are taken into
+     * account when the state is sent the next time.
+     * <p>
+     * If the connector has a compact state snapshot, it is converted to a
+     * JSON diff state by this method.
+     *
+     * @param connector
+     *            the connector to get the diff state for
+     * @return the diff state, or <code>null</code> if no state has been sent
+     *         to the client
+     */
     public JsonObject getDiffState(ClientConnector connector) {
         assert getConnector(connector.getConnectorId()) == connector;
-        return diffStates.get(connector);
+        JsonObject diffState = diffStates.get(connector);
+        if (diffState == null) {
+            StateSnapshot snapshot = stateSnapshots.remove(connector);
+            if (snapshot != null) {
+                // Callers may modify the diff state, so use it instead of the
+                // snapshot until the state is sent again
+                diffState = snapshot.toJson(this);
+                diffStates.put(connector, diffState);
+            }
+        }
+        return diffState;
     }
 
     public void setDiffState(ClientConnector connector, JsonObject diffState) {
         assert getConnector(connector.getConnectorId()) == connector;
         diffStates.put(connector, diffState);
+        stateSnapshots.remove(connector);
+    }
+
+    /**
+     * Gets the compact snapshot of the shared state last sent to the client
+     * for the given connector.
+     * <p>
+     * This method is intended for internal use by the framework.
+     *
+     * @param connector
+     *            the connector to get the snapshot for
+     * @return the snapshot, or <code>null</code> if there is no snapshot for
+     *         the connector
+     * @see #setCompactDiffStateEnabled(boolean)
+     * @since 8.15
+     */
+    public StateSnapshot getStateSnapshot(ClientConnector connector) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        return stateSnapshots.get(connector);
+    }
+
+    /**
+     * Stores a compact snapshot of the shared state sent to the client for the
+     * given connector, replacing any diff state of the connector.
+     * <p>
+     * This method is intended for internal use by the framework.
+     *
+     * @param connector
+     *            the connector to set the snapshot for
+     * @param snapshot
+     *            the snapshot of the sent state, not <code>null</code>
+     * @see #setCompactDiffStateEnabled(boolean)
+     * @since 8.15
+     */
+    public void setStateSnapshot(ClientConnector connector,
+            StateSnapshot snapshot) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        stateSnapshots.put(connector, snapshot);
+        diffStates.remove(connector);
+    }
+
+    /**
+     * Sets whether the shared state sent to the client is tracked using
+     * compact {@link StateSnapshot}s instead of full JSON copies of each
+     * connector's state.
+     * <p>
+     * With compact tracking, unchanged immutable properties such as strings,
+     * numbers and enums are detected without encoding them, and are not
+     * duplicated as JSON in the session. This reduces memory use and the time
+     * spent writing responses for UIs with many connectors. The messages sent
+     * to the client are the same in both modes.
+     * <p>
+     * Compact tracking is disabled by default.
+     *
+     * @param compactDiffStateEnabled
+     *            <code>true</code> to use compact state snapshots,
+     *            <code>false</code> to use JSON diff states
+     * @since 8.15
+     */
+    public void setCompactDiffStateEnabled(boolean compactDiffStateEnabled) {
+        if (this.compactDiffStateEnabled && !compactDiffStateEnabled) {
+            for (Entry<ClientConnector, StateSnapshot> entry : stateSnapshots
+                    .entrySet()) {
+                diffStates.put(entry.getKey(), entry.getValue().toJson(this));
+            }
+            stateSnapshots.clear();
+        }
+        this.compactDiffStateEnabled = compactDiffStateEnabled;
+    }
+
+    /**
+     * Checks whether the shared state sent to the client is tracked using
+     * compact state snapshots.
+     *
+     * @return <code>true</code> if compact state snapshots are used,
+     *         <code>false</code> if JSON diff states are used
+     * @see #setCompactDiffStateEnabled(boolean)
+     * @since 8.15
+     */
+    public boolean isCompactDiffStateEnabled() {
+        return compactDiffStateEnabled;
     }
 
     public boolean isDirty(ClientConnector connector) {
@@ -757,6 +868,13 @@ public class ConnectorTracker implements Serializable {
         for (ClientConnector key : diffStates.keySet()) {
             stringDiffStates.put(key, diffStates.get(key).toString());
         }
+        // Snapshots are restored as regular diff states and compacted again
+        // when the state is sent the next time
+        for (Entry<ClientConnector, StateSnapshot> entry : stateSnapshots
+                .entrySet()) {
+            stringDiffStates.put(entry.getKey(),
+                    entry.getValue().toJson(this).toString());
+        }
         out.writeObject(stringDiffStates);
     }
 
@@ -768,6 +886,7 @@ public class ConnectorTracker implements Serializable {
         // Read String versions of JsonObjects and parse into JsonObjects as
         // JsonObject is not serializable
         diffStates = new HashMap<>();
+        stateSnapshots = new HashMap<>();
         @SuppressWarnings("unchecked")
         Map<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
                 .readObject();
@@ -18,11 +18,13 @@ package com.vaadin.ui;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -73,6 +75,7 @@ import com.vaadin.server.AbstractExtension;
 import com.vaadin.server.EncodeResult;
 import com.vaadin.server.Extension;
 import com.vaadin.server.JsonCodec;
+import com.vaadin.server.SerializableBiConsumer;
 import com.vaadin.server.SerializableComparator;
 import com.vaadin.server.SerializableSupplier;
 import com.vaadin.server.Setter;
@@ -723,6 +726,9 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             column.checkColumnIsAttached();
             if (column.isHidden() != hidden) {
                 column.getState().hidden = hidden;
+                if (!hidden) {
+                    getDataCommunicator().reset();
+                }
                 fireColumnVisibilityChangeEvent(column, hidden, true);
             }
         }
@@ -870,6 +876,15 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
      */
     public static class Column<T, V> extends AbstractExtension {
 
+        /**
+         * The default maximum number of idle components kept for reuse by a
+         * column that recycles its components.
+         *
+         * @see #setComponentPoolSize(int)
+         * @since 8.15
+         */
+        public static final int DEFAULT_COMPONENT_POOL_SIZE = 50;
+
         /**
          * Behavior when parsing nested properties which may contain
          * <code>null</code> values in the property chain.
@@ -909,14 +924,19 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             public void generateData(T item, JsonObject jsonObject) {
                 ColumnState state = getState(false);
 
+                JsonObject obj = getDataObject(jsonObject,
+                        DataCommunicatorConstants.DATA);
+                if (state.hidden) {
+                    // Hidden cells are not rendered, the data is sent when
+                    // the column is shown again
+                    return;
+                }
+
                 String communicationId = getConnectorId();
 
                 assert communicationId != null : "No communication ID set for column "
                         + state.caption;
 
-                JsonObject obj = getDataObject(jsonObject,
-                        DataCommunicatorConstants.DATA);
-
                 obj.put(communicationId, generateRendererValue(item,
                         presentationProvider, state.renderer));
 
@@ -948,11 +968,24 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
                 new HashSet<>(activeComponents.keySet())
                         .forEach(component -> removeComponent(component));
             }
+
+            @Override
+            public boolean isThreadSafe() {
+                // Component columns attach components to the grid
+                return threadSafe && !(getState(
+                        false).renderer instanceof ComponentRenderer);
+            }
         };
 
         private Binding<T, ?> editorBinding;
         private Map<Object, Component> activeComponents = new HashMap<>();
 
+        private SerializableSupplier<? extends Component> componentFactory;
+        private SerializableBiConsumer<Component, T> componentUpdater;
+        private final Deque<Component> componentPool = new ArrayDeque<>();
+        private int componentPoolSize = DEFAULT_COMPONENT_POOL_SIZE;
+        private boolean threadSafe = false;
+
         private String userId;
 
         /**
@@ -1137,6 +1170,11 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
                     throw npe;
                 }
             }
+            if (componentFactory != null
+                    && renderer instanceof ComponentRenderer) {
+                return ((Renderer<Component>) renderer)
+                        .encode(obtainComponent(item));
+            }
             P presentationValue = presentationProvider.apply(value);
 
             // Make Grid track components.
@@ -1162,11 +1200,108 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
 
         private void removeComponent(Object item) {
             Component component = activeComponents.remove(item);
-            if (component != null) {
+            if (component == null) {
+                return;
+            }
+            if (componentFactory != null
+                    && componentPool.size() < componentPoolSize) {
+                // Keep the component attached so that its connector stays
+                // known to the client when it is reused
+                componentPool.push(component);
+            } else {
                 getGrid().removeExtensionComponent(component);
             }
         }
 
+        /**
+         * Gets the component showing the given item in a recycling column,
+         * taking one from the pool or creating a new one if the item has no
+         * component yet. The component is updated with the item in any case.
+         */
+        private Component obtainComponent(T item) {
+            Object id = getGrid().getDataProvider().getId(item);
+            Component component = activeComponents.get(id);
+            if (component == null) {
+                component = componentPool.poll();
+                if (component == null) {
+                    component = componentFactory.get();
+                    getGrid().addExtensionComponent(component);
+                }
+                activeComponents.put(id, component);
+            }
+            componentUpdater.accept(component, item);
+            return component;
+        }
+
+        private void trimComponentPool(int size) {
+            while (componentPool.size() > size) {
+                getGrid().removeExtensionComponent(componentPool.pop());
+            }
+        }
+
+        /**
+         * Makes this column recycle its components. Components are created
+         * with the given factory only when there are no idle components in
+         * the pool, and the given updater is used to bind a component to the
+         * item it shows.
+         *
+         * @param componentFactory
+         *            the factory for new components, not <code>null</code>
+         * @param componentUpdater
+         *            the updater that makes a component show an item, not
+         *            <code>null</code>
+         */
+        @SuppressWarnings("unchecked")
+        private <C extends Component> void setComponentRecycling(
+                SerializableSupplier<C> componentFactory,
+                SerializableBiConsumer<C, T> componentUpdater) {
+            this.componentFactory = Objects.requireNonNull(componentFactory,
+                    "Component factory cannot be null");
+            this.componentUpdater = (SerializableBiConsumer<Component, T>) Objects
+                    .requireNonNull(componentUpdater,
+                            "Component updater cannot be null");
+        }
+
+        /**
+         * Sets the maximum number of idle components kept for reuse by this
+         * column. This only has an effect on columns created with
+         * {@link Grid#addComponentColumn(SerializableSupplier, SerializableBiConsumer)}.
+         * <p>
+         * Idle components stay attached to the Grid, which keeps their state
+         * on the client so that only changed state is sent when they are
+         * reused for another row. Components in excess of the pool size are
+         * detached when the rows showing them are removed from the client.
+         * The default is {@value #DEFAULT_COMPONENT_POOL_SIZE}.
+         *
+         * @param componentPoolSize
+         *            the maximum number of idle components, not negative
+         * @return this column
+         * @since 8.15
+         */
+        public Column<T, V> setComponentPoolSize(int componentPoolSize) {
+            if (componentPoolSize < 0) {
+                throw new IllegalArgumentException(
+                        "Component pool size cannot be negative");
+            }
+            this.componentPoolSize = componentPoolSize;
+            if (getGrid() != null) {
+                trimComponentPool(componentPoolSize);
+            }
+            return this;
+        }
+
+        /**
+         * Gets the maximum number of idle components kept for reuse by this
+         * column.
+         *
+         * @return the maximum number of idle components
+         * @see #setComponentPoolSize(int)
+         * @since 8.15
+         */
+        public int getComponentPoolSize() {
+            return componentPoolSize;
+        }
+
         /**
          * Gets a data object with the given key from the given JsonObject. If
          * there is no object with the key, this method creates a new
@@ -1295,6 +1430,56 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             return presentationProvider;
         }
 
+        /**
+         * Gets the behavior of this column when the value provider throws a
+         * {@link NullPointerException} for a nested <code>null</code> value.
+         *
+         * @return the nested null behavior, not <code>null</code>
+         *
+         * @since 8.15
+         */
+        public NestedNullBehavior getNestedNullBehavior() {
+            return nestedNullBehavior;
+        }
+
+        /**
+         * Sets whether the data of this column can be generated for several
+         * rows at the same time from threads that do not hold the session
+         * lock. This allows the grid to generate the data of this column in
+         * parallel when
+         * {@link DataCommunicator#setDataGenerationParallelism(int)} is used.
+         * <p>
+         * Only set this if the value provider, the presentation provider, the
+         * style generator and the description generator of this column are
+         * thread-safe and do not access the UI. The data of columns using
+         * {@link ComponentRenderer} is always generated on the thread holding
+         * the session lock. Columns are not thread-safe by default.
+         *
+         * @param threadSafe
+         *            {@code true} if the data of this column can be generated
+         *            concurrently, {@code false} otherwise
+         * @return this column
+         * @since 8.15
+         */
+        public Column<T, V> setThreadSafe(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+            return this;
+        }
+
+        /**
+         * Gets whether the data of this column can be generated for several
+         * rows at the same time.
+         *
+         * @see #setThreadSafe(boolean)
+         *
+         * @return {@code true} if the data of this column can be generated
+         *         concurrently, {@code false} otherwise
+         * @since 8.15
+         */
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
+
         /**
          * Sets whether the user can sort this column or not. Whether the column
          * is actually sortable after {@code setSortable(true)} depends on the
@@ -1914,6 +2099,10 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             checkColumnIsAttached();
             if (hidden != isHidden()) {
                 getState().hidden = hidden;
+                if (!hidden) {
+                    // Data is not generated for hidden columns
+                    getGrid().getDataCommunicator().reset();
+                }
                 getGrid().fireColumnVisibilityChangeEvent(this, hidden, false);
             }
             return this;
@@ -3035,6 +3224,42 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
         return addColumn(componentProvider, new ComponentRenderer());
     }
 
+    /**
+     * Adds a column that shows components and reuses the component instances
+     * for different items.
+     * <p>
+     * Instead of creating a new component for every row sent to the client,
+     * components of rows removed from the client are kept in a pool and
+     * updated to show the new items. The pooled components keep their
+     * connectors, so only the changed state of a reused component is sent to
+     * the client. The updater is called each time the data of an item is
+     * sent, also when the same item is refreshed. See
+     * {@link Column#setComponentPoolSize(int)} for limiting the number of
+     * idle components.
+     * <p>
+     * The column does not have meaningful values and is not sortable by
+     * default.
+     *
+     * @param componentFactory
+     *            the factory that creates a new component when there is no
+     *            idle one in the pool, not <code>null</code>
+     * @param componentUpdater
+     *            the updater that makes the given component show the given
+     *            item, not <code>null</code>
+     * @return the new column
+     * @param <V>
+     *            the component type
+     * @since 8.15
+     */
+    public <V extends Component> Column<T, V> addComponentColumn(
+            SerializableSupplier<V> componentFactory,
+            SerializableBiConsumer<V, T> componentUpdater) {
+        Column<T, V> column = addColumn(item -> null, new ComponentRenderer());
+        column.setComponentRecycling(componentFactory, componentUpdater);
+        column.setSortable(false);
+        return column;
+    }
+
     /**
      * Creates a column instance from a value provider, presentation provider
      * and a renderer.
@@ -3129,6 +3354,7 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             assert displayIndex != -1 : "Tried to remove a column which is not included in columnOrder. This should not be possible as all columns should be in columnOrder.";
             columnKeys.remove(columnId);
             columnIds.remove(column.getId());
+            column.trimComponentPool(0);
             column.remove();
             removeDataGenerator(column.getDataGenerator());
             getHeader().removeColumn(columnId);
@@ -162,10 +162,44 @@ public interface PushConfiguration extends Serializable {
      */
     public String getPushUrl();
 
+    /**
+     * Sets the minimum interval between two automatic pushes.
+     * <p>
+     * With {@link PushMode#AUTOMATIC}, changes are by default pushed every
+     * time the session is unlocked. When a background thread updates the UI
+     * many times per second, this causes one message to the client for every
+     * update. With a positive push interval, changes made within the interval
+     * after the previous push are collected and sent together in one message
+     * when the interval has passed. The changes are thus delayed by at most
+     * the push interval.
+     * <p>
+     * The interval is not applied to explicit calls to {@link UI#push()}.
+     *
+     * @since 8.15
+     * @param pushInterval
+     *            the minimum interval between automatic pushes in
+     *            milliseconds, or 0 to push every time the session is unlocked
+     * @throws IllegalArgumentException
+     *             if the interval is negative
+     */
+    public void setPushInterval(int pushInterval);
+
+    /**
+     * Returns the minimum interval between two automatic pushes.
+     *
+     * @see #setPushInterval(int)
+     *
+     * @since 8.15
+     * @return the minimum interval between automatic pushes in milliseconds,
+     *         or 0 if changes are pushed every time the session is unlocked
+     */
+    public int getPushInterval();
+
 }
 
 class PushConfigurationImpl implements PushConfiguration {
     private final UI ui;
+    private int pushInterval = 0;
 
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
@@ -232,6 +266,20 @@ class PushConfigurationImpl implements PushConfiguration {
         return getState(false).pushUrl;
     }
 
+    @Override
+    public void setPushInterval(int pushInterval) {
+        if (pushInterval < 0) {
+            throw new IllegalArgumentException(
+                    "Push interval cannot be negative");
+        }
+        this.pushInterval = pushInterval;
+    }
+
+    @Override
+    public int getPushInterval() {
+        return pushInterval;
+    }
+
     /*
      * (non-Javadoc)
      *
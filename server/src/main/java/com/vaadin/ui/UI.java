@@ -275,7 +275,13 @@ public abstract class UI extends AbstractSingleComponentContainer
      * current time whenever the application receives a heartbeat or UIDL
      * request from the client for this UI.
      */
-    private long lastHeartbeatTimestamp = System.currentTimeMillis();
+    private volatile long lastHeartbeatTimestamp = System.currentTimeMillis();
+
+    /**
+     * Timestamp of the last time changes were pushed to the client, or 0 if
+     * nothing has been pushed.
+     */
+    private long lastPushTimestamp = 0;
 
     private boolean closing = false;
 
@@ -1312,6 +1318,20 @@ public abstract class UI extends AbstractSingleComponentContainer
         lastHeartbeatTimestamp = lastHeartbeat;
     }
 
+    /**
+     * Returns the time changes were last pushed to the client of this UI using
+     * {@link #push()}.
+     *
+     * @see PushConfiguration#setPushInterval(int)
+     *
+     * @return the time of the last push in milliseconds since the epoch, or 0
+     *         if nothing has been pushed
+     * @since 8.15
+     */
+    public long getLastPushTimestamp() {
+        return lastPushTimestamp;
+    }
+
     /**
      * Gets the theme currently in use by this UI.
      *
@@ -1705,6 +1725,7 @@ public abstract class UI extends AbstractSingleComponentContainer
             return;
         }
 
+        lastPushTimestamp = System.currentTimeMillis();
         pushConnection.push();
     }
 
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui.components.grid;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.StreamResource;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.Column;
+import com.vaadin.ui.Grid.Column.NestedNullBehavior;
+import com.vaadin.ui.UI;
+
+/**
+ * Exports the rows of a {@link Grid} as CSV.
+ * <p>
+ * The rows are fetched from the data provider of the grid in chunks of a fixed
+ * size, using the sorting and filtering currently used by the grid. Only the
+ * rows of one chunk are kept in memory at a time, so the memory used does not
+ * depend on the number of rows. The cell texts are produced with the value and
+ * presentation providers of the visible columns, in the order they are shown.
+ * Component columns are exported as empty cells.
+ * <p>
+ * The data provider and the columns are accessed while holding the session
+ * lock of the grid, one chunk at a time. The lock is not held while writing the
+ * output.
+ *
+ * @param <T>
+ *            the grid bean type
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public class GridExporter<T> implements Serializable {
+
+    /**
+     * The default number of rows fetched from the data provider at a time.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    private final Grid<T> grid;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean headerIncluded = true;
+    private char separator = ',';
+    private String charset = StandardCharsets.UTF_8.name();
+
+    /**
+     * Creates a new exporter for the given grid.
+     *
+     * @param grid
+     *            the grid to export, not <code>null</code>
+     */
+    public GridExporter(Grid<T> grid) {
+        this.grid = Objects.requireNonNull(grid, "Grid cannot be null");
+    }
+
+    /**
+     * Sets the number of rows fetched from the data provider at a time. The
+     * default is {@value #DEFAULT_CHUNK_SIZE}.
+     *
+     * @param chunkSize
+     *            the number of rows in a chunk, at least 1
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException(
+                    "Chunk size must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Gets the number of rows fetched from the data provider at a time.
+     *
+     * @return the number of rows in a chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets whether a line with the column captions is written before the
+     * rows. The header is included by default.
+     *
+     * @param headerIncluded
+     *            <code>true</code> to write the column captions,
+     *            <code>false</code> to only write the rows
+     */
+    public void setHeaderIncluded(boolean headerIncluded) {
+        this.headerIncluded = headerIncluded;
+    }
+
+    /**
+     * Gets whether a line with the column captions is written before the
+     * rows.
+     *
+     * @return <code>true</code> if the column captions are written,
+     *         <code>false</code> otherwise
+     */
+    public boolean isHeaderIncluded() {
+        return headerIncluded;
+    }
+
+    /**
+     * Sets the character used to separate the cells of a row. The default is
+     * a comma.
+     *
+     * @param separator
+     *            the separator character
+     */
+    public void setSeparator(char separator) {
+        if (separator == '"' || separator == '\r' || separator == '\n') {
+            throw new IllegalArgumentException(
+                    "The separator cannot be a quote or a line break");
+        }
+        this.separator = separator;
+    }
+
+    /**
+     * Gets the character used to separate the cells of a row.
+     *
+     * @return the separator character
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Sets the charset used to encode the exported text. The default is
+     * UTF-8.
+     *
+     * @param charset
+     *            the charset to use, not <code>null</code>
+     */
+    public void setCharset(Charset charset) {
+        this.charset = Objects.requireNonNull(charset, "Charset cannot be null")
+                .name();
+    }
+
+    /**
+     * Gets the charset used to encode the exported text.
+     *
+     * @return the charset, not <code>null</code>
+     */
+    public Charset getCharset() {
+        return Charset.forName(charset);
+    }
+
+    /**
+     * Writes the rows of the grid as CSV to the given output stream. The
+     * stream is flushed but not closed.
+     *
+     * @param out
+     *            the stream to write to, not <code>null</code>
+     * @throws IOException
+     *             if writing to the stream fails
+     */
+    public void writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(out, getCharset()));
+        ExportCursor cursor = new ExportCursor();
+        StringBuilder chunk = new StringBuilder();
+        while (cursor.next(chunk)) {
+            writer.append(chunk);
+            chunk.setLength(0);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Creates a resource that downloads the rows of the grid as CSV. The rows
+     * are fetched when the resource is downloaded, and the columns visible at
+     * that time are exported.
+     *
+     * @param filename
+     *            the filename of the download, not <code>null</code>
+     * @return a new stream resource, not <code>null</code>
+     */
+    public StreamResource createCsvResource(String filename) {
+        StreamResource resource = new StreamResource(
+                () -> new ExportInputStream(new ExportCursor(), getCharset()),
+                filename);
+        resource.setMIMEType("text/csv; charset=" + charset);
+        resource.setCacheTime(0);
+        return resource;
+    }
+
+    private void runLocked(Runnable runnable) {
+        UI ui = grid.getUI();
+        VaadinSession session = ui != null ? ui.getSession() : null;
+        if (session != null) {
+            session.accessSynchronously(runnable);
+        } else {
+            runnable.run();
+        }
+    }
+
+    private void appendCell(StringBuilder builder, String text) {
+        boolean quote = text.indexOf(separator) != -1
+                || text.indexOf('"') != -1 || text.indexOf('\r') != -1
+                || text.indexOf('\n') != -1;
+        if (quote) {
+            builder.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else {
+            builder.append(text);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, V> String getCellText(Column<T, V> column, T item) {
+        V value;
+        try {
+            value = column.getValueProvider().apply(item);
+        } catch (NullPointerException npe) {
+            if (column.getNestedNullBehavior() == NestedNullBehavior.THROW) {
+                throw npe;
+            }
+            value = null;
+        }
+        Object presentation = ((ValueProvider<V, Object>) column
+                .getPresentationProvider()).apply(value);
+        if (presentation == null || presentation instanceof Component) {
+            return "";
+        }
+        return presentation.toString();
+    }
+
+    /**
+     * Produces the exported text one chunk of rows at a time. The visible
+     * columns are resolved when the cursor is created.
+     */
+    private class ExportCursor implements Serializable {
+        private List<Column<T, ?>> columns;
+        private int offset = 0;
+        private boolean headerWritten = !headerIncluded;
+        private boolean done = false;
+
+        private ExportCursor() {
+            runLocked(() -> columns = grid.getColumns().stream()
+                    .filter(column -> !column.isHidden())
+                    .collect(Collectors.toList()));
+        }
+
+        /**
+         * Appends the next chunk of text to the given builder.
+         *
+         * @return <code>true</code> if text was appended, <code>false</code>
+         *         if there are no more rows
+         */
+        private boolean next(StringBuilder builder) {
+            if (!headerWritten) {
+                headerWritten = true;
+                runLocked(() -> appendHeader(builder));
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            runLocked(() -> {
+                List<T> items = grid.getDataCommunicator()
+                        .fetchItemsWithRange(offset, chunkSize);
+                for (T item : items) {
+                    appendRow(builder, item);
+                }
+                offset += items.size();
+                done = items.size() < chunkSize;
+            });
+            return builder.length() > 0 || !done;
+        }
+
+        private void appendHeader(StringBuilder builder) {
+            for (int i = 0; i < columns.size(); ++i) {
+                if (i > 0) {
+                    builder.append(separator);
+                }
+                String caption = columns.get(i).getCaption();
+                appendCell(builder, caption != null ? caption : "");
+            }
+            builder.append(LINE_SEPARATOR);
+        }
+
+        private void appendRow(StringBuilder builder, T item) {
+            for (int i = 0; i < columns.size(); ++i) {
+                if (i > 0) {
+                    builder.append(separator);
+                }
+                appendCell(builder, getCellText(columns.get(i), item));
+            }
+            builder.append(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * An input stream that encodes the chunks of a cursor as they are read.
+     */
+    private static class ExportInputStream extends InputStream {
+        private final GridExporter<?>.ExportCursor cursor;
+        private final Charset charset;
+        private final StringBuilder chunk = new StringBuilder();
+        private byte[] buffer = new byte[0];
+        private int position = 0;
+
+        private ExportInputStream(GridExporter<?>.ExportCursor cursor,
+                Charset charset) {
+            this.cursor = cursor;
+            this.charset = charset;
+        }
+
+        private boolean fill() {
+            while (position == buffer.length) {
+                chunk.setLength(0);
+                if (!cursor.next(chunk)) {
+                    return false;
+                }
+                buffer = chunk.toString().getBytes(charset);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.length - position;
+        }
+    }
+}
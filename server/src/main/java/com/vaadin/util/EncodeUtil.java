@@ -58,6 +58,60 @@ public final class EncodeUtil {
         return builder.toString();
     }
 
+    /**
+     * Checks whether the given content coding, such as <code>gzip</code> or
+     * <code>br</code>, is acceptable according to the value of an
+     * <code>Accept-Encoding</code> HTTP header as defined in RFC 7231. A
+     * coding is acceptable if it is listed, or if <code>*</code> is listed and
+     * the coding is not, with a quality value greater than zero.
+     *
+     * @param acceptEncoding
+     *            the value of the <code>Accept-Encoding</code> header, or
+     *            <code>null</code> if the header is not present
+     * @param coding
+     *            the content coding to check, not <code>null</code>
+     * @return <code>true</code> if the coding is acceptable,
+     *         <code>false</code> otherwise
+     * @since 8.15
+     */
+    public static boolean isContentEncodingAccepted(String acceptEncoding,
+            String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double quality = -1;
+        double wildcardQuality = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String name = parts[0].trim();
+            double elementQuality = 1;
+            for (int i = 1; i < parts.length; ++i) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && (parameter.charAt(0) == 'q'
+                        || parameter.charAt(0) == 'Q')
+                        && parameter.charAt(1) == '=') {
+                    elementQuality = parseQuality(parameter.substring(2));
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                quality = Math.max(quality, elementQuality);
+            } else if ("*".equals(name)) {
+                wildcardQuality = Math.max(wildcardQuality, elementQuality);
+            }
+        }
+        return quality >= 0 ? quality > 0 : wildcardQuality > 0;
+    }
+
+    private static double parseQuality(String value) {
+        try {
+            double quality = Double.parseDouble(value.trim());
+            return quality >= 0 && quality <= 1 ? quality : 0;
+        } catch (NumberFormatException e) {
+            // Invalid values are not treated as acceptable
+            return 0;
+        }
+    }
+
     private static void appendHexBytes(StringBuilder builder, byte[] bytes) {
         for (byte byteValue : bytes) {
             // mask with 0xFF to compensate for "negative" values
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Utilities for creating executors for framework background work.
+ * <p>
+ * Threads are created as virtual threads when running on a Java version that
+ * supports them, and as daemon platform threads otherwise.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public final class ExecutorUtil {
+
+    private ExecutorUtil() {
+        // Static utils only
+    }
+
+    /**
+     * Creates an executor that runs at most the given number of tasks at the
+     * same time. Additional tasks are queued until a thread becomes available.
+     * Idle threads are discarded after a while.
+     * <p>
+     * The executor should be shut down by the caller when it is no longer
+     * needed.
+     *
+     * @param threadNamePrefix
+     *            the prefix to use for the names of the created threads, not
+     *            <code>null</code>
+     * @param maxThreads
+     *            the maximum number of concurrently running tasks, at least 1
+     * @return a new executor service, not <code>null</code>
+     */
+    public static ExecutorService createBoundedExecutor(
+            String threadNamePrefix, int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException(
+                    "Thread count must be at least 1");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads,
+                maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                createThreadFactory(threadNamePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a thread factory that creates virtual threads if the running
+     * Java version supports them, or daemon platform threads otherwise.
+     *
+     * @param threadNamePrefix
+     *            the prefix to use for the names of the created threads, not
+     *            <code>null</code>
+     * @return a thread factory, not <code>null</code>
+     */
+    public static ThreadFactory createThreadFactory(String threadNamePrefix) {
+        ThreadFactory virtualThreadFactory = createVirtualThreadFactory(
+                threadNamePrefix);
+        if (virtualThreadFactory != null) {
+            return virtualThreadFactory;
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                    threadNamePrefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Checks whether the running Java version supports virtual threads.
+     *
+     * @return <code>true</code> if virtual threads are available,
+     *         <code>false</code> otherwise
+     */
+    public static boolean isVirtualThreadSupported() {
+        return createVirtualThreadFactory("") != null;
+    }
+
+    private static ThreadFactory createVirtualThreadFactory(
+            String threadNamePrefix) {
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory(), available since
+            // Java 21
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(builder, threadNamePrefix, 0L);
+            Method factory = builderType.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            getLogger().log(Level.FINE,
+                    "Virtual threads are not available, using platform threads",
+                    e);
+            return null;
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ExecutorUtil.class.getName());
+    }
+}
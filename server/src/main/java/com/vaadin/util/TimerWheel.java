@@ -0,0 +1,268 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timer wheel for running large numbers of short delayed tasks with
+ * constant time scheduling and cancellation.
+ * <p>
+ * Tasks are put into buckets by their deadline, and a single background
+ * thread advances through the buckets once per tick, running the tasks whose
+ * deadline has passed. Tasks are thus run at most one tick late. The tasks are
+ * run on the timer thread, so they should be short and hand off any blocking
+ * work, e.g. using {@link com.vaadin.server.VaadinSession#access(Runnable)}.
+ * <p>
+ * The timer thread is started when the first task is scheduled and runs until
+ * {@link #stop()} is called.
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public final class TimerWheel {
+
+    /**
+     * A handle for a scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout previous;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not yet been run.
+         *
+         * @return <code>true</code> if the task was cancelled by this call,
+         *         <code>false</code> if it has already been run or cancelled
+         */
+        public boolean cancel() {
+            // Cancelled tasks are removed when the timer thread visits them
+            return cancelled.compareAndSet(false, true);
+        }
+
+        /**
+         * Checks whether the task has been run or cancelled.
+         *
+         * @return <code>true</code> if the task will not be run anymore,
+         *         <code>false</code> otherwise
+         */
+        public boolean isDone() {
+            return cancelled.get();
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        private Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.previous != null) {
+                timeout.previous.next = next;
+            }
+            if (next != null) {
+                next.previous = timeout.previous;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            return next;
+        }
+    }
+
+    private final String threadNamePrefix;
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+
+    // Added by any thread, moved to the buckets by the timer thread
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private volatile long startTime;
+    private volatile boolean stopped;
+    private Thread worker;
+
+    // Only accessed by the timer thread
+    private long tick;
+
+    /**
+     * Creates a new timer wheel.
+     *
+     * @param threadNamePrefix
+     *            the prefix of the name of the timer thread, not
+     *            <code>null</code>
+     * @param tickDuration
+     *            the duration of one tick, i.e. the precision of the timer
+     * @param unit
+     *            the unit of the tick duration, not <code>null</code>
+     * @param wheelSize
+     *            the number of buckets, rounded up to a power of two
+     */
+    public TimerWheel(String threadNamePrefix, long tickDuration,
+            TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException(
+                    "Tick duration must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "Wheel size must be between 1 and 2^30");
+        }
+        this.threadNamePrefix = threadNamePrefix;
+        tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        buckets = new Bucket[size];
+        for (int i = 0; i < size; ++i) {
+            buckets[i] = new Bucket();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Schedules a task to be run on the timer thread after the given delay.
+     *
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @param delay
+     *            the delay after which to run the task
+     * @param unit
+     *            the unit of the delay, not <code>null</code>
+     * @return a handle for cancelling the task, not <code>null</code>
+     * @throws IllegalStateException
+     *             if this timer has been stopped
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("The timer has been stopped");
+        }
+        start();
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay))
+                - startTime;
+        Timeout timeout = new Timeout(task, deadline);
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the timer thread. Tasks that have not yet been run are discarded.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private synchronized void start() {
+        if (worker == null) {
+            startTime = System.nanoTime();
+            worker = ExecutorUtil.createThreadFactory(threadNamePrefix)
+                    .newThread(this::run);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            long sleepNanos = startTime + tickNanos * (tick + 1)
+                    - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            transferNewTimeouts();
+            expireTimeouts(buckets[(int) (tick & mask)]);
+            ++tick;
+        }
+        newTimeouts.clear();
+    }
+
+    private void transferNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.isDone()) {
+                continue;
+            }
+            long targetTick = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (targetTick - tick) / buckets.length;
+            buckets[(int) (targetTick & mask)].add(timeout);
+        }
+    }
+
+    private void expireTimeouts(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            if (timeout.isDone()) {
+                timeout = bucket.remove(timeout);
+            } else if (timeout.remainingRounds > 0) {
+                --timeout.remainingRounds;
+                timeout = timeout.next;
+            } else {
+                Timeout next = bucket.remove(timeout);
+                if (timeout.cancelled.compareAndSet(false, true)) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable t) {
+                        getLogger().log(Level.WARNING,
+                                "Exception in timer task", t);
+                    }
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(TimerWheel.class.getName());
+    }
+}
@@ -0,0 +1,237 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.vaadin.server.KeyMapper;
+
+public class CompactKeyMapperTest {
+
+    private static class Item implements Serializable {
+        private final int id;
+
+        private Item(int id) {
+            this.id = id;
+        }
+    }
+
+    @Test
+    public void keyAndGet() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<>();
+        Object o1 = new Object();
+        Object o2 = new Object();
+
+        String key1 = mapper.key(o1);
+        String key2 = mapper.key(o2);
+
+        assertNotEquals(key1, key2);
+        assertEquals(key1, mapper.key(o1));
+        assertSame(o1, mapper.get(key1));
+        assertSame(o2, mapper.get(key2));
+        assertTrue(mapper.has(o1));
+        assertTrue(mapper.containsKey(key2));
+        assertEquals(2, mapper.size());
+    }
+
+    @Test
+    public void get_unknownOrInvalidKey_returnsNull() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<>();
+        mapper.key(new Object());
+
+        assertNull(mapper.get("42"));
+        assertNull(mapper.get("foo"));
+        assertNull(mapper.get(""));
+        assertNull(mapper.get(null));
+        assertFalse(mapper.containsKey("0"));
+    }
+
+    @Test
+    public void remove_newKeyCreatedWhenAddedAgain() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<>();
+        Object o1 = new Object();
+        String key = mapper.key(o1);
+
+        mapper.remove(o1);
+
+        assertFalse(mapper.has(o1));
+        assertNull(mapper.get(key));
+        assertEquals(0, mapper.size());
+        assertNotEquals(key, mapper.key(o1));
+    }
+
+    @Test
+    public void randomOperations_matchHashMap() {
+        CompactKeyMapper<Item> mapper = new CompactKeyMapper<>(
+                item -> item.id);
+        Map<Integer, String> expectedKeys = new HashMap<>();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            items.add(new Item(i));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; ++i) {
+            Item item = items.get(random.nextInt(items.size()));
+            if (random.nextInt(3) == 0) {
+                mapper.remove(item);
+                expectedKeys.remove(item.id);
+            } else {
+                String key = mapper.key(item);
+                String previous = expectedKeys.putIfAbsent(item.id, key);
+                if (previous != null) {
+                    assertEquals(previous, key);
+                }
+            }
+        }
+
+        assertEquals(expectedKeys.size(), mapper.size());
+        for (Item item : items) {
+            String key = expectedKeys.get(item.id);
+            assertEquals(key != null, mapper.has(item));
+            if (key != null) {
+                assertSame(item, mapper.get(key));
+            }
+        }
+    }
+
+    @Test
+    public void merge_keepsOnlyGivenObjects() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<>();
+        Object o1 = new Object();
+        Object o2 = new Object();
+        Object o3 = new Object();
+        String key1 = mapper.key(o1);
+        String key2 = mapper.key(o2);
+
+        Set<Object> objects = new HashSet<>();
+        objects.add(o2);
+        objects.add(o3);
+        mapper.merge(objects);
+
+        assertFalse(mapper.has(o1));
+        assertNull(mapper.get(key1));
+        assertEquals(key2, mapper.key(o2));
+        assertTrue(mapper.has(o3));
+        assertEquals(2, mapper.size());
+    }
+
+    @Test
+    public void removeAll_emptiesMapper() {
+        CompactKeyMapper<Object> mapper = new CompactKeyMapper<>();
+        Object o1 = new Object();
+        String key = mapper.key(o1);
+        mapper.key(new Object());
+
+        mapper.removeAll();
+
+        assertEquals(0, mapper.size());
+        assertFalse(mapper.has(o1));
+        assertNull(mapper.get(key));
+    }
+
+    @Test
+    public void setIdentifierGetter_keysRemapped() {
+        CompactKeyMapper<Item> mapper = new CompactKeyMapper<>(
+                item -> item.id);
+        Item item = new Item(1);
+        String key = mapper.key(item);
+
+        mapper.setIdentifierGetter(i -> "item" + i.id);
+
+        assertTrue(mapper.has(item));
+        assertEquals(key, mapper.key(item));
+    }
+
+    @Test
+    public void refresh_replacesMappedObject() {
+        CompactKeyMapper<Item> mapper = new CompactKeyMapper<>(
+                item -> item.id);
+        String key = mapper.key(new Item(1));
+        Item updated = new Item(1);
+
+        mapper.refresh(updated);
+
+        assertSame(updated, mapper.get(key));
+    }
+
+    @Test
+    public void serializedSizeSmallerThanKeyMapper() throws IOException {
+        KeyMapper<Item> keyMapper = new KeyMapper<>(item -> item.id);
+        CompactKeyMapper<Item> compactMapper = new CompactKeyMapper<>(
+                item -> item.id);
+        for (int i = 0; i < 10000; ++i) {
+            Item item = new Item(i);
+            keyMapper.key(item);
+            compactMapper.key(item);
+        }
+
+        int keyMapperSize = serializedSize(keyMapper);
+        int compactSize = serializedSize(compactMapper);
+
+        assertTrue("Compact mapper should serialize to a smaller size "
+                + compactSize + " vs " + keyMapperSize,
+                compactSize < keyMapperSize);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void serializeAndDeserialize_mappingsPreserved()
+            throws IOException, ClassNotFoundException {
+        CompactKeyMapper<Item> mapper = new CompactKeyMapper<>(
+                item -> item.id);
+        for (int i = 0; i < 100; ++i) {
+            mapper.key(new Item(i));
+        }
+        String removedKey = mapper.key(new Item(100));
+        mapper.remove(new Item(100));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mapper);
+        }
+        CompactKeyMapper<Item> deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (CompactKeyMapper<Item>) in.readObject();
+        }
+
+        assertEquals(100, deserialized.size());
+        for (int i = 0; i < 100; ++i) {
+            Item item = new Item(i);
+            String key = mapper.key(item);
+            assertEquals(key, deserialized.key(item));
+            assertEquals(i, deserialized.get(key).id);
+        }
+        assertNull(deserialized.get(removedKey));
+        assertNotEquals("New keys should not reuse old ones", removedKey,
+                deserialized.key(new Item(101)));
+    }
+
+    private static int serializedSize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.size();
+    }
+}
@@ -6,7 +6,11 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -316,6 +320,235 @@ public class DataCommunicatorTest {
     }
 
 
+    private static class CountingDataProvider
+            extends ListDataProvider<Object> {
+        private int fetchCount = 0;
+
+        public CountingDataProvider(int itemCount) {
+            super(new ArrayList<>());
+            for (int i = 0; i < itemCount; ++i) {
+                getItems().add(new Object());
+            }
+        }
+
+        @Override
+        public Stream<Object> fetch(
+                Query<Object, SerializablePredicate<Object>> query) {
+            ++fetchCount;
+            return super.fetch(query);
+        }
+    }
+
+    @Test
+    public void fetchExecutor_rowsFetchedInBackgroundAndPushed() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        CountingDataProvider dataProvider = new CountingDataProvider(100);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.beforeClientResponse(true);
+
+        List<Runnable> tasks = new ArrayList<>();
+        communicator.setFetchExecutor(tasks::add);
+        int fetchCount = dataProvider.fetchCount;
+
+        communicator.onRequestRows(40, 20, 0, 40);
+
+        assertEquals("Rows should be fetched by the executor", 1,
+                tasks.size());
+        assertTrue("Rows should not be pushed before they are fetched",
+                communicator.getPushRows().isEmpty());
+
+        tasks.remove(0).run();
+
+        assertEquals(Range.withLength(40, 20), communicator.getPushRows());
+
+        communicator.beforeClientResponse(false);
+
+        assertEquals("Fetched rows should be reused when responding",
+                fetchCount + 1, dataProvider.fetchCount);
+    }
+
+    @Test
+    public void fetchExecutor_nextPagePrefetchedWhenScrolling() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        CountingDataProvider dataProvider = new CountingDataProvider(100);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.beforeClientResponse(true);
+
+        List<Runnable> tasks = new ArrayList<>();
+        communicator.setFetchExecutor(tasks::add);
+
+        communicator.onRequestRows(0, 20, 0, 0);
+        tasks.remove(0).run();
+        communicator.beforeClientResponse(false);
+
+        communicator.onRequestRows(20, 20, 0, 20);
+        assertEquals("Requested and next page should be fetched", 2,
+                tasks.size());
+        tasks.forEach(Runnable::run);
+        tasks.clear();
+        communicator.beforeClientResponse(false);
+        int fetchCount = dataProvider.fetchCount;
+
+        communicator.onRequestRows(40, 20, 0, 40);
+
+        assertEquals("Prefetched page should be pushed immediately",
+                Range.withLength(40, 20), communicator.getPushRows());
+        communicator.beforeClientResponse(false);
+        assertEquals(fetchCount, dataProvider.fetchCount);
+    }
+
+    @Test
+    public void fetchExecutor_filterChangeDiscardsFetchedRows() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        CountingDataProvider dataProvider = new CountingDataProvider(100);
+        SerializableConsumer<SerializablePredicate<Object>> filterSlot = communicator
+                .setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.beforeClientResponse(true);
+
+        List<Runnable> tasks = new ArrayList<>();
+        communicator.setFetchExecutor(tasks::add);
+
+        communicator.onRequestRows(40, 20, 0, 40);
+        filterSlot.accept(item -> true);
+        tasks.remove(0).run();
+        int fetchCount = dataProvider.fetchCount;
+
+        communicator.beforeClientResponse(false);
+
+        assertEquals("Outdated rows should be fetched again", fetchCount + 1,
+                dataProvider.fetchCount);
+    }
+
+    @Test
+    public void fetchExecutor_olderFetchCompletingLast_latestRowsPushed() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        CountingDataProvider dataProvider = new CountingDataProvider(100);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.beforeClientResponse(true);
+
+        List<Runnable> tasks = new ArrayList<>();
+        communicator.setFetchExecutor(tasks::add);
+
+        communicator.onRequestRows(40, 20, 0, 40);
+        communicator.onRequestRows(50, 20, 0, 40);
+        Runnable olderFetch = tasks.remove(0);
+        Runnable latestFetch = tasks.remove(0);
+
+        latestFetch.run();
+        assertEquals(Range.withLength(50, 20), communicator.getPushRows());
+
+        olderFetch.run();
+        assertEquals("Older fetch should not replace the latest rows",
+                Range.withLength(50, 20), communicator.getPushRows());
+    }
+
+    @Test
+    public void fetchExecutor_fetchCompletingAfterDataProviderChange_resetRowsKept() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        CountingDataProvider dataProvider = new CountingDataProvider(100);
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.beforeClientResponse(true);
+
+        List<Runnable> tasks = new ArrayList<>();
+        communicator.setFetchExecutor(tasks::add);
+
+        communicator.onRequestRows(40, 20, 0, 40);
+        communicator.setDataProvider(new CountingDataProvider(100), null);
+        Range resetRows = communicator.getPushRows();
+        tasks.remove(0).run();
+
+        assertEquals("Outdated fetch should not replace the reset rows",
+                resetRows, communicator.getPushRows());
+    }
+
+    private static class ThreadSafeDataGenerator
+            implements DataGenerator<Object> {
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void generateData(Object item, JsonObject jsonObject) {
+            threads.add(Thread.currentThread());
+            jsonObject.put("value", "value" + item);
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    private TestDataCommunicator createParallelCommunicator(UI ui) {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            items.add(i);
+        }
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.setDataProvider(new ListDataProvider<>(items), null);
+        communicator.extend(ui);
+        communicator.setDataGenerationParallelism(4);
+        return communicator;
+    }
+
+    @Test
+    public void dataGenerationParallelism_threadSafeGeneratorsRunInParallel() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = createParallelCommunicator(ui);
+        ThreadSafeDataGenerator threadSafeGenerator = new ThreadSafeDataGenerator();
+        communicator.addDataGenerator(threadSafeGenerator);
+        Thread caller = Thread.currentThread();
+        List<Object> generated = new ArrayList<>();
+        communicator.addDataGenerator((item, jsonObject) -> {
+            assertEquals("Generators that are not thread-safe should run on "
+                    + "the calling thread", caller, Thread.currentThread());
+            assertEquals("value" + item, jsonObject.getString("value"));
+            generated.add(item);
+        });
+
+        communicator.beforeClientResponse(true);
+
+        List<Object> expected = new ArrayList<>();
+        for (int i = 0; i < communicator.getMinPushSize(); ++i) {
+            expected.add(i);
+        }
+        assertEquals("Rows should be generated in order", expected,
+                generated);
+        assertTrue("Data should be generated by several threads",
+                threadSafeGenerator.threads.size() > 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void dataGenerationParallelism_exceptionPropagated() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = createParallelCommunicator(ui);
+        communicator.addDataGenerator(new ThreadSafeDataGenerator() {
+            @Override
+            public void generateData(Object item, JsonObject jsonObject) {
+                if (Integer.valueOf(35).equals(item)) {
+                    throw new IllegalStateException();
+                }
+            }
+        });
+
+        communicator.beforeClientResponse(true);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void requestTooMuchRowsFail() {
         TestDataCommunicator communicator = new TestDataCommunicator();
@@ -2,18 +2,22 @@ package com.vaadin.data.provider;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.server.SerializableComparator;
+import com.vaadin.server.SerializablePredicate;
 import com.vaadin.shared.data.sort.SortDirection;
 
 public class ListDataProviderTest
@@ -233,6 +237,90 @@ public class ListDataProviderTest
         assertSizeWithFilter(0, filteringBy, "oo");
     }
 
+    @Test
+    public void indexed_fetchMatchesNonIndexed() {
+        Comparator<StrBean> comparator = Comparator
+                .comparing(StrBean::getValue)
+                .thenComparing(StrBean::getId);
+        SerializablePredicate<StrBean> filter = item -> item.getId() > 20;
+        Query<StrBean, SerializablePredicate<StrBean>> query = new Query<>(10,
+                30, Collections.emptyList(), comparator, filter);
+
+        List<StrBean> expected = dataProvider.fetch(query)
+                .collect(Collectors.toList());
+        int expectedSize = dataProvider.size(new Query<>(filter));
+
+        dataProvider.setIndexed(true);
+
+        assertEquals(expected,
+                dataProvider.fetch(query).collect(Collectors.toList()));
+        assertEquals(expectedSize, dataProvider.size(new Query<>(filter)));
+    }
+
+    @Test
+    public void indexed_viewReusedBetweenFetches() {
+        AtomicInteger comparisons = new AtomicInteger();
+        Comparator<StrBean> comparator = (a, b) -> {
+            comparisons.incrementAndGet();
+            return Integer.compare(a.getId(), b.getId());
+        };
+        dataProvider.setIndexed(true);
+
+        List<StrBean> firstPage = dataProvider
+                .fetch(new Query<>(0, 10, Collections.emptyList(), comparator,
+                        null))
+                .collect(Collectors.toList());
+        assertTrue(comparisons.get() > 0);
+        comparisons.set(0);
+
+        List<StrBean> secondPage = dataProvider
+                .fetch(new Query<>(10, 10, Collections.emptyList(), comparator,
+                        null))
+                .collect(Collectors.toList());
+
+        assertEquals("Cached view should not be sorted again", 0,
+                comparisons.get());
+        assertEquals(0, firstPage.get(0).getId());
+        assertEquals(10, secondPage.get(0).getId());
+    }
+
+    @Test
+    public void indexed_offsetBeyondSize_emptyResult() {
+        dataProvider.setIndexed(true);
+
+        assertEquals(0, dataProvider.fetch(new Query<>(200, 10,
+                Collections.emptyList(), null, null)).count());
+        assertEquals(10, dataProvider.fetch(new Query<>(90, Integer.MAX_VALUE,
+                Collections.emptyList(), null, null)).count());
+    }
+
+    @Test
+    public void indexed_refreshAll_invalidatesViews() {
+        dataProvider.setIndexed(true);
+        assertEquals(100, sizeWithUnfilteredQuery());
+
+        data.add(new StrBean("Foo", 100, 1));
+
+        assertEquals("Stale view should be used until refreshed", 100,
+                sizeWithUnfilteredQuery());
+
+        dataProvider.refreshAll();
+
+        assertEquals(101, sizeWithUnfilteredQuery());
+        assertEquals(101, dataProvider.size(new Query<>()));
+    }
+
+    @Test
+    public void indexed_setFilter_invalidatesViews() {
+        dataProvider.setIndexed(true);
+        assertEquals(100, dataProvider.size(new Query<>()));
+
+        dataProvider.setFilter(item -> item.getValue().equals("Foo"));
+
+        assertEquals(36, dataProvider.size(new Query<>()));
+        assertEquals(36, sizeWithUnfilteredQuery());
+    }
+
     @Override
     protected void setSortOrder(List<QuerySortOrder> sortOrder,
             Comparator<StrBean> comp) {
@@ -1,6 +1,7 @@
 package com.vaadin.data.provider.hierarchical;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -210,6 +211,62 @@ public class HierarchyMapperWithDataTest {
         verifyFetchIsCorrect(expectedResult, range);
     }
 
+    @Test
+    public void indexAndFetchMatchFlattenedHierarchy() {
+        expand(testData.get(0));
+        expand(testData.get(1));
+        Node lastRoot = roots.get(roots.size() - 1);
+        // Expanded while hidden
+        expand(testData.get(testData.indexOf(lastRoot) + 1));
+        expand(lastRoot);
+        collapse(testData.get(0));
+        expand(testData.get(0));
+        // Child of a collapsed root
+        expand(testData.get(roots.get(1).getNumber() + 1));
+
+        List<Node> flattened = new ArrayList<>();
+        roots.forEach(root -> flatten(root, flattened));
+
+        assertEquals(flattened.size(), mapper.getTreeSize());
+        verifyFetchIsCorrect(flattened, Range.between(0, flattened.size()));
+        verifyFetchIsCorrect(flattened, Range.between(7, 15));
+        for (int i = 0; i < flattened.size(); ++i) {
+            assertEquals("Unexpected index", Integer.valueOf(i),
+                    mapper.getIndexOf(flattened.get(i)).orElse(null));
+        }
+        assertFalse("Hidden node should not have an index",
+                mapper.getIndexOf(testData.get(roots.get(1).getNumber() + 2))
+                        .isPresent());
+    }
+
+    @Test
+    public void fetchChildrenOfExpandedNode() {
+        Node root = roots.get(1);
+        expand(root);
+        Node parent = testData.get(testData.indexOf(root) + 1);
+        expand(parent);
+
+        List<Node> children = new ArrayList<>();
+        flatten(root, children);
+        children.remove(0);
+
+        assertEquals(children, mapper.fetchItems(root, Range.between(0, 100))
+                .collect(Collectors.toList()));
+        assertEquals(children.subList(2, 5),
+                mapper.fetchItems(root, Range.between(2, 5))
+                        .collect(Collectors.toList()));
+        assertEquals(0, mapper.fetchItems(roots.get(0), Range.between(0, 10))
+                .count());
+    }
+
+    private void flatten(Node node, List<Node> result) {
+        result.add(node);
+        if (mapper.isExpanded(node)) {
+            testData.stream().filter(n -> Objects.equals(n.getParent(), node))
+                    .forEach(child -> flatten(child, result));
+        }
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
@@ -62,6 +62,23 @@ public class HierarchyMapperWithNumerousDataTest {
         checkMapSize();
     }
 
+    /**
+     * Index lookups and range fetches should not flatten the whole hierarchy
+     * on each call.
+     */
+    @Test(timeout = 1000)
+    public void findIndexAndFetchRepeatedly() {
+        expand(testData.get(0));
+        for (int i = 1; i <= 1000; ++i) {
+            Node node = testData.get(PARENT_COUNT - i);
+            assertEquals(Integer.valueOf(PARENT_COUNT - i),
+                    mapper.getIndexOf(node).orElse(null));
+            assertEquals(node, mapper
+                    .fetchItems(Range.withLength(PARENT_COUNT - i, 1))
+                    .findFirst().orElse(null));
+        }
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
@@ -0,0 +1,106 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.ClientRpcWriter;
+import com.vaadin.shared.communication.ClientRpc;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+public class ClientRpcBroadcastTest {
+
+    public interface TestRpc extends ClientRpc {
+        void update(String text, int count);
+
+        void reset();
+    }
+
+    private UI ui;
+    private Label label1;
+    private Label label2;
+
+    @Before
+    public void setup() {
+        VaadinSession session = new AlwaysLockedVaadinSession(
+                Mockito.mock(VaadinService.class));
+        ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        session.addUI(ui);
+        label1 = new Label("1");
+        label2 = new Label("2");
+        ui.setContent(new VerticalLayout(label1, label2));
+    }
+
+    @Test
+    public void create_parametersEncodedOnce() {
+        ClientRpcBroadcast broadcast = ClientRpcBroadcast
+                .create(TestRpc.class, rpc -> rpc.update("foo", 42));
+
+        assertEquals(
+                "com.vaadin.server.ClientRpcBroadcastTest.TestRpc",
+                broadcast.getInterfaceName());
+        assertEquals("update", broadcast.getMethodName());
+        assertEquals("[\"foo\",42]", broadcast.getEncodedParameters());
+    }
+
+    @Test
+    public void create_noParameters() {
+        ClientRpcBroadcast broadcast = ClientRpcBroadcast
+                .create(TestRpc.class, TestRpc::reset);
+
+        assertEquals("reset", broadcast.getMethodName());
+        assertEquals("[]", broadcast.getEncodedParameters());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_noMethodCalled_throws() {
+        ClientRpcBroadcast.create(TestRpc.class, rpc -> {
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_twoMethodsCalled_throws() {
+        ClientRpcBroadcast.create(TestRpc.class, rpc -> {
+            rpc.reset();
+            rpc.reset();
+        });
+    }
+
+    @Test
+    public void addTo_encodedParametersSharedAndWritten() throws IOException {
+        ClientRpcBroadcast broadcast = ClientRpcBroadcast
+                .create(TestRpc.class, rpc -> rpc.update("foo", 42));
+        // Clear the initial changes
+        ui.getConnectorTracker().markAllConnectorsClean();
+
+        broadcast.addTo(label1);
+        broadcast.addTo(label2);
+
+        List<ClientMethodInvocation> calls1 = label1.retrievePendingRpcCalls();
+        List<ClientMethodInvocation> calls2 = label2.retrievePendingRpcCalls();
+        assertEquals(1, calls1.size());
+        assertEquals(1, calls2.size());
+        assertSame(calls1.get(0).getEncodedParameters(),
+                calls2.get(0).getEncodedParameters());
+
+        broadcast.addTo(label1);
+        StringWriter writer = new StringWriter();
+        new ClientRpcWriter().write(ui, writer);
+        assertTrue(writer.toString(), writer.toString().contains("[\""
+                + label1.getConnectorId()
+                + "\",\"com.vaadin.server.ClientRpcBroadcastTest.TestRpc\",\"update\",[\"foo\",42]]"));
+    }
+}
@@ -1,15 +1,32 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class DownloadStreamTest {
     private String filename = "A å日.png";
@@ -19,6 +36,9 @@ public class DownloadStreamTest {
             + ".png";
     private DownloadStream stream;
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void setup() {
         stream = new DownloadStream(mock(InputStream.class), "", filename);
@@ -36,4 +56,180 @@ public class DownloadStreamTest {
                 contains(
                         String.format("filename*=utf-8''%s", encodedFileName)));
     }
+
+    @Test
+    public void fileStream_writtenCompletely() throws IOException {
+        byte[] content = createContent(100000);
+        DownloadStream fileStream = createFileStream(content);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinResponse response = createResponse(out);
+
+        fileStream.writeResponse(mock(VaadinRequest.class), response);
+
+        assertArrayEquals(content, out.toByteArray());
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        verify(response, never()).setStatus(anyInt());
+    }
+
+    @Test
+    public void fileStreamSubclass_bytesReadThroughSubclass()
+            throws IOException {
+        byte[] content = createContent(10000);
+        File file = folder.newFile();
+        Files.write(file.toPath(), content);
+        InputStream inverting = new FileInputStream(file) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                for (int i = off; i < off + read; ++i) {
+                    b[i] = (byte) ~b[i];
+                }
+                return read;
+            }
+        };
+        DownloadStream stream = new DownloadStream(inverting, "", "file.bin");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        stream.writeResponse(mock(VaadinRequest.class), createResponse(out));
+
+        byte[] expected = new byte[content.length];
+        for (int i = 0; i < content.length; ++i) {
+            expected[i] = (byte) ~content[i];
+        }
+        assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void fileStream_range_partialContent() throws IOException {
+        byte[] content = createContent(100000);
+        DownloadStream fileStream = createFileStream(content);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinResponse response = createResponse(out);
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getHeader("Range")).thenReturn("bytes=50000-59999");
+
+        fileStream.writeResponse(request, response);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 50000, 60000),
+                out.toByteArray());
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 50000-59999/100000");
+        verify(response).setHeader("Content-Length", "10000");
+    }
+
+    @Test
+    public void inputStream_suffixRange_partialContent() throws IOException {
+        byte[] content = createContent(1000);
+        DownloadStream byteStream = new DownloadStream(
+                new ByteArrayInputStream(content), "", "file.bin");
+        byteStream.setParameter("Content-Length", "1000");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinResponse response = createResponse(out);
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getHeader("Range")).thenReturn("bytes=-100");
+
+        byteStream.writeResponse(request, response);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 900, 1000),
+                out.toByteArray());
+        verify(response).setHeader("Content-Range", "bytes 900-999/1000");
+    }
+
+    @Test
+    public void unknownLength_rangeIgnored() throws IOException {
+        byte[] content = createContent(1000);
+        DownloadStream byteStream = new DownloadStream(
+                new ByteArrayInputStream(content), "", "file.bin");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinResponse response = createResponse(out);
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getHeader("Range")).thenReturn("bytes=0-9");
+
+        byteStream.writeResponse(request, response);
+
+        assertArrayEquals(content, out.toByteArray());
+        verify(response, never()).setHeader(eq("Accept-Ranges"),
+                anyString());
+    }
+
+    @Test
+    public void changedIfRange_fullContent() throws IOException {
+        byte[] content = createContent(1000);
+        DownloadStream fileStream = createFileStream(content);
+        fileStream.setParameter("ETag", "\"current\"");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinResponse response = createResponse(out);
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getHeader("Range")).thenReturn("bytes=0-9");
+        when(request.getHeader("If-Range")).thenReturn("\"previous\"");
+
+        fileStream.writeResponse(request, response);
+
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    public void unsatisfiableRange() throws IOException {
+        DownloadStream fileStream = createFileStream(createContent(1000));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        VaadinResponse response = createResponse(out);
+        VaadinRequest request = mock(VaadinRequest.class);
+        when(request.getHeader("Range")).thenReturn("bytes=1000-");
+
+        fileStream.writeResponse(request, response);
+
+        assertEquals(0, out.size());
+        verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */1000");
+    }
+
+    @Test
+    public void parseByteRange() {
+        assertArrayEquals(new long[] { 0, 9 },
+                DownloadStream.parseByteRange("bytes=0-9", 100));
+        assertArrayEquals(new long[] { 50, 99 },
+                DownloadStream.parseByteRange("bytes=50-", 100));
+        assertArrayEquals(new long[] { 90, 99 },
+                DownloadStream.parseByteRange("bytes=-10", 100));
+        assertArrayEquals(new long[] { 0, 99 },
+                DownloadStream.parseByteRange("bytes=-200", 100));
+        assertArrayEquals(new long[] { 90, 99 },
+                DownloadStream.parseByteRange("bytes=90-500", 100));
+        assertArrayEquals(new long[0],
+                DownloadStream.parseByteRange("bytes=100-200", 100));
+        assertArrayEquals(new long[0],
+                DownloadStream.parseByteRange("bytes=-0", 100));
+
+        assertNull(DownloadStream.parseByteRange("bytes=0-9,20-29", 100));
+        assertNull(DownloadStream.parseByteRange("bytes=9-0", 100));
+        assertNull(DownloadStream.parseByteRange("bytes=a-b", 100));
+        assertNull(DownloadStream.parseByteRange("items=0-9", 100));
+    }
+
+    private DownloadStream createFileStream(byte[] content)
+            throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content);
+        DownloadStream fileStream = new DownloadStream(
+                new FileInputStream(file), "", "file.bin");
+        fileStream.setParameter("Content-Length",
+                String.valueOf(content.length));
+        return fileStream;
+    }
+
+    private static VaadinResponse createResponse(ByteArrayOutputStream out)
+            throws IOException {
+        VaadinResponse response = mock(VaadinResponse.class);
+        when(response.getOutputStream()).thenReturn(out);
+        return response;
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
 }
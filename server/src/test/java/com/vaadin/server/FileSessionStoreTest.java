@@ -0,0 +1,60 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storeLoadAndRemove() throws IOException {
+        FileSessionStore store = new FileSessionStore(folder.getRoot());
+        byte[] data = { 1, 2, 3 };
+
+        store.store("key-1", out -> out.write(data));
+        assertEquals(1, folder.getRoot().list().length);
+
+        byte[] loaded = new byte[3];
+        try (InputStream in = store.load("key-1")) {
+            assertEquals(3, in.read(loaded));
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(data, loaded);
+
+        store.remove("key-1");
+        assertNull(store.load("key-1"));
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void store_failedWrite_noFilesLeft() throws IOException {
+        FileSessionStore store = new FileSessionStore(folder.getRoot());
+        try {
+            store.store("key", out -> {
+                out.write(1);
+                throw new IOException("Failed");
+            });
+            fail("Exception should be propagated");
+        } catch (IOException expected) {
+            // Expected
+        }
+        assertNull(store.load("key"));
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidKey_throws() throws IOException {
+        new FileSessionStore(folder.getRoot()).load("../key");
+    }
+}
@@ -1,6 +1,8 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Type;
@@ -89,6 +91,42 @@ public class JSONSerializerTest {
                 .decodeInternalType(UidlValue.class, true, inputArray, null);
     }
 
+    public static class FieldAndPropertyBean {
+        public String field;
+        public int primitiveField;
+        private String property;
+
+        public String getProperty() {
+            return property;
+        }
+
+        public void setProperty(String property) {
+            this.property = property;
+        }
+    }
+
+    @Test
+    public void testBeanPropertyAccessors() throws Exception {
+        FieldAndPropertyBean bean = new FieldAndPropertyBean();
+        bean.field = "field";
+        bean.primitiveField = 42;
+        bean.setProperty("property");
+
+        JsonValue encoded = JsonCodec
+                .encode(bean, null, FieldAndPropertyBean.class, null)
+                .getEncodedValue();
+        FieldAndPropertyBean decoded = (FieldAndPropertyBean) JsonCodec
+                .decodeInternalOrCustomType(FieldAndPropertyBean.class,
+                        encoded, null);
+
+        assertEquals("field", decoded.field);
+        assertEquals(42, decoded.primitiveField);
+        assertEquals("property", decoded.getProperty());
+        assertSame("Properties should be cached",
+                JsonCodec.getProperties(FieldAndPropertyBean.class),
+                JsonCodec.getProperties(FieldAndPropertyBean.class));
+    }
+
     private void ensureDecodedCorrectly(Object original, JsonValue encoded,
             Type type) throws Exception {
         Object serverSideDecoded = JsonCodec.decodeInternalOrCustomType(type,
@@ -0,0 +1,149 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.util.TimerWheel;
+
+public class PushSchedulerTest {
+
+    private static class CountingUI extends MockUI {
+        private final AtomicInteger pushes = new AtomicInteger();
+        private final AtomicInteger accesses = new AtomicInteger();
+        private volatile long lastPushTimestamp;
+
+        private CountingUI(VaadinSession session) {
+            super(session);
+        }
+
+        @Override
+        public void push() {
+            pushes.incrementAndGet();
+            lastPushTimestamp = System.currentTimeMillis();
+        }
+
+        @Override
+        public long getLastPushTimestamp() {
+            return lastPushTimestamp;
+        }
+
+        @Override
+        public Future<Void> access(Runnable runnable) {
+            // The scheduler only needs the session to be locked and unlocked
+            accesses.incrementAndGet();
+            return null;
+        }
+    }
+
+    private MockVaadinServletService service;
+    private MockVaadinSession session;
+    private TimerWheel timerWheel;
+    private List<Runnable> handedOff;
+    private PushScheduler scheduler;
+    private CountingUI ui;
+
+    @Before
+    public void setup() throws Exception {
+        service = new MockVaadinServletService();
+        service.init();
+        session = new MockVaadinSession(service);
+        timerWheel = new TimerWheel("test-timer-", 10, TimeUnit.MILLISECONDS,
+                64);
+        handedOff = Collections.synchronizedList(new ArrayList<>());
+        scheduler = new PushScheduler(timerWheel, handedOff::add);
+
+        session.lock();
+        try {
+            ui = new CountingUI(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+            session.addUI(ui);
+            ui.getPushConfiguration().setPushInterval(500);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        timerWheel.stop();
+        service.destroy();
+    }
+
+    private void pushChanges() {
+        session.lock();
+        try {
+            ui.markAsDirty();
+            scheduler.push(ui);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private void awaitHandOff() throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 10000;
+        while (handedOff.isEmpty() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void push_intervalPassed_pushedImmediately() {
+        pushChanges();
+
+        assertEquals(1, ui.pushes.get());
+        assertEquals(0, handedOff.size());
+    }
+
+    @Test
+    public void push_withinInterval_coalescedAndHandedOff()
+            throws InterruptedException {
+        pushChanges();
+        pushChanges();
+        pushChanges();
+
+        assertEquals("Changes within the interval should not be pushed yet",
+                1, ui.pushes.get());
+
+        awaitHandOff();
+        // Give the timer a chance to hand off a duplicate push
+        Thread.sleep(200);
+        assertEquals("One delayed push should be handed to the executor", 1,
+                handedOff.size());
+        assertEquals("The timer thread should not access the UI", 0,
+                ui.accesses.get());
+
+        handedOff.remove(0).run();
+        assertEquals(1, ui.accesses.get());
+
+        // No longer waiting for the delayed push once it has been flushed
+        pushChanges();
+        assertEquals(2, ui.pushes.get());
+    }
+
+    @Test
+    public void push_timerStopped_laterPushesNotBlocked()
+            throws InterruptedException {
+        pushChanges();
+        timerWheel.stop();
+
+        // Cannot be scheduled since the timer has been stopped
+        pushChanges();
+
+        Thread.sleep(600);
+        pushChanges();
+        assertEquals("The UI should not wait for a push that never happens",
+                2, ui.pushes.get());
+    }
+}
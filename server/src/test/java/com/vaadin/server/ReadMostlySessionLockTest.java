@@ -0,0 +1,139 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ReadMostlySessionLockTest {
+
+    private final ReadMostlySessionLock lock = new ReadMostlySessionLock();
+
+    @Test
+    public void lockRead_multipleReadersAtTheSameTime() throws Exception {
+        CountDownLatch bothLocked = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicBoolean failed = new AtomicBoolean();
+
+        for (int i = 0; i < 2; ++i) {
+            new Thread(() -> {
+                lock.lockRead();
+                try {
+                    bothLocked.countDown();
+                    if (!bothLocked.await(5, TimeUnit.SECONDS)) {
+                        failed.set(true);
+                    }
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                } finally {
+                    lock.unlockRead();
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertFalse("Readers should not block each other", failed.get());
+    }
+
+    @Test
+    public void lockRead_waitsForExclusiveLock() throws Exception {
+        CountDownLatch readLocked = new CountDownLatch(1);
+
+        lock.lock();
+        try {
+            new Thread(() -> {
+                lock.lockRead();
+                readLocked.countDown();
+                lock.unlockRead();
+            }).start();
+
+            assertFalse(readLocked.await(100, TimeUnit.MILLISECONDS));
+        } finally {
+            lock.unlock();
+        }
+        assertTrue(readLocked.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tryLock_failsWhileReadLocked() throws Exception {
+        lock.lockRead();
+        try {
+            AtomicBoolean locked = new AtomicBoolean(true);
+            Thread thread = new Thread(() -> locked.set(lock.tryLock()));
+            thread.start();
+            thread.join();
+
+            assertFalse(locked.get());
+            assertFalse(lock.isLocked());
+        } finally {
+            lock.unlockRead();
+        }
+
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        lock.unlock();
+    }
+
+    @Test
+    public void lock_reentrant() {
+        lock.lock();
+        lock.lock();
+        assertEquals(2, lock.getHoldCount());
+        lock.unlock();
+        lock.unlock();
+
+        assertFalse(lock.isLocked());
+        lock.lockRead();
+        assertTrue(lock.isReadLockedByCurrentThread());
+        lock.unlockRead();
+    }
+
+    @Test
+    public void lockRead_nested_releasedByOutermostUnlock() throws Exception {
+        lock.lockRead();
+        lock.lockRead();
+        lock.unlockRead();
+
+        assertTrue("Outer hold should still be active",
+                lock.isReadLockedByCurrentThread());
+        AtomicBoolean locked = new AtomicBoolean(true);
+        Thread thread = new Thread(() -> locked.set(lock.tryLock()));
+        thread.start();
+        thread.join();
+        assertFalse(locked.get());
+
+        lock.unlockRead();
+
+        assertFalse(lock.isReadLockedByCurrentThread());
+        assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        lock.unlock();
+    }
+
+    @Test
+    public void lockRead_exclusiveLockHeld_noop() {
+        lock.lock();
+        try {
+            lock.lockRead();
+            assertFalse(lock.isReadLockedByCurrentThread());
+            lock.unlockRead();
+            assertTrue(lock.isHeldByCurrentThread());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void unlockRead_notLocked_throws() {
+        lock.unlockRead();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void newCondition_throws() {
+        lock.newCondition();
+    }
+}
@@ -0,0 +1,155 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+
+public class SessionAccessExecutorTest {
+
+    private MockVaadinServletService service;
+    private MockVaadinSession session;
+    private SessionAccessExecutor executor;
+
+    @Before
+    public void setup() throws Exception {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_SESSION_ACCESS_THREADS, "2");
+        service = new MockVaadinServletService(configuration);
+        service.init();
+        session = new MockVaadinSession(service);
+        executor = service.getSessionAccessExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void noThreadsConfigured_noExecutor() throws Exception {
+        MockVaadinServletService defaultService = new MockVaadinServletService();
+        defaultService.init();
+
+        assertNull(defaultService.getSessionAccessExecutor());
+    }
+
+    @Test
+    public void access_runByExecutorThread() throws Exception {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        Future<Void> future = session
+                .access(() -> threads.add(Thread.currentThread()));
+        future.get(5, TimeUnit.SECONDS);
+
+        assertNotNull(executor);
+        assertEquals(1, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+        assertEquals(0, executor.getQueuedTaskCount());
+        assertEquals(1, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void access_sessionLocked_notRunByLockingThread()
+            throws Exception {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        Future<Void> future;
+
+        session.lock();
+        try {
+            future = session.access(() -> threads.add(Thread.currentThread()));
+            service.runPendingAccessTasks(session);
+
+            assertFalse(future.isDone());
+            assertEquals(1, executor.getQueuedTaskCount());
+        } finally {
+            session.unlock();
+        }
+        future.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, threads.size());
+        assertNotSame(Thread.currentThread(), threads.get(0));
+    }
+
+    @Test
+    public void access_manyTasks_allRunInOrder() throws Exception {
+        int taskCount = SessionAccessExecutor.BATCH_SIZE * 5 + 1;
+        AtomicInteger nextTask = new AtomicInteger();
+        List<Integer> failures = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(taskCount);
+
+        for (int i = 0; i < taskCount; ++i) {
+            int task = i;
+            session.access(() -> {
+                if (nextTask.getAndIncrement() != task) {
+                    failures.add(task);
+                }
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Tasks run out of order: " + failures,
+                failures.isEmpty());
+        assertEquals(taskCount, executor.getCompletedTaskCount());
+        assertTrue(executor.getMaxWaitTime(
+                TimeUnit.NANOSECONDS) >= executor
+                        .getAverageWaitTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void access_sessionLockedByOtherThread_otherSessionsNotBlocked()
+            throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            session.lock();
+            try {
+                locked.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // Unlock
+            } finally {
+                session.unlock();
+            }
+        });
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // More runs for the busy session than there are executor threads
+        List<Future<Void>> busyFutures = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            busyFutures.add(session.access(() -> {
+            }));
+            Thread.sleep(50);
+        }
+        MockVaadinSession otherSession = new MockVaadinSession(service);
+        Future<Void> otherFuture = otherSession.access(() -> {
+        });
+
+        otherFuture.get(5, TimeUnit.SECONDS);
+        assertFalse(busyFutures.get(0).isDone());
+
+        release.countDown();
+        holder.join();
+        for (Future<Void> future : busyFutures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.SessionMemoryReport.DataCommunicatorUsage;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+public class SessionMemoryReportTest {
+
+    private VaadinSession session;
+    private UI ui;
+    private Label label;
+    private Grid<String> grid;
+
+    @Before
+    public void setup() {
+        session = new AlwaysLockedVaadinSession(
+                Mockito.mock(VaadinService.class));
+        ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        session.addUI(ui);
+
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add("item " + i);
+        }
+        label = new Label("label");
+        grid = new Grid<>();
+        grid.addColumn(item -> item);
+        grid.setItems(items);
+        ui.setContent(new VerticalLayout(label, grid));
+    }
+
+    @Test
+    public void report_containsUIAndConnectors() {
+        SessionMemoryReport report = session.getMemoryReport();
+
+        assertEquals(1, report.getUIEstimates().size());
+        long uiEstimate = report.getUIEstimates().get(1);
+        assertTrue(uiEstimate > 0);
+        assertEquals(uiEstimate, report.getTotalEstimate());
+
+        assertEquals(Integer.valueOf(1), report.getConnectorTypeCounts()
+                .get(Label.class.getName()));
+        assertEquals(Integer.valueOf(1), report.getConnectorTypeCounts()
+                .get(Grid.class.getName()));
+        long typeTotal = report.getConnectorTypeEstimates().values().stream()
+                .mapToLong(Long::longValue).sum();
+        assertEquals(report.getTotalEstimate(), typeTotal
+                + SessionMemoryReport.shallowSize(ConnectorTracker.class));
+    }
+
+    @Test
+    public void diffState_includedAfterStateIsSent() {
+        SessionMemoryReport before = session.getMemoryReport();
+        assertEquals(0, before.getDiffStateCount());
+
+        label.encodeState();
+        SessionMemoryReport after = session.getMemoryReport();
+
+        assertEquals(1, after.getDiffStateCount());
+        assertTrue(after.getDiffStateEstimate() > 0);
+        assertEquals(before.getTotalEstimate() + after.getDiffStateEstimate(),
+                after.getTotalEstimate());
+    }
+
+    @Test
+    public void dataCommunicator_activeDataReported() {
+        grid.getDataCommunicator().beforeClientResponse(true);
+
+        SessionMemoryReport report = session.getMemoryReport();
+
+        assertEquals(1, report.getDataCommunicators().size());
+        DataCommunicatorUsage usage = report.getDataCommunicators().get(0);
+        assertEquals(Grid.class.getName(), usage.getType());
+        assertEquals(1, usage.getUIId());
+        assertEquals(grid.getDataCommunicator().getActiveDataCount(),
+                usage.getActiveDataCount());
+        assertTrue(usage.getActiveDataCount() > 0);
+        assertTrue(usage.getEstimate() > 0);
+
+        assertEquals(Long.valueOf(usage.getActiveDataCount()),
+                report.getMetrics().get(SessionMemoryReport.METRIC_PREFIX
+                        + "datacommunicators.active"));
+        assertEquals(Long.valueOf(report.getTotalEstimate()), report
+                .getMetrics().get(SessionMemoryReport.METRIC_PREFIX + "bytes"));
+    }
+}
@@ -0,0 +1,252 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.vaadin.server.SessionPassivator.PassivatedSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+
+public class SessionPassivatorTest {
+
+    private static class InMemoryWrappedSession implements WrappedSession {
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return 1800;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return attributes.keySet();
+        }
+
+        @Override
+        public void invalidate() {
+            attributes.clear();
+        }
+
+        @Override
+        public String getId() {
+            return "session";
+        }
+
+        @Override
+        public long getCreationTime() {
+            return 0;
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return 0;
+        }
+
+        @Override
+        public boolean isNew() {
+            return false;
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SessionStore store;
+    private MockVaadinServletService service;
+    private WrappedSession wrappedSession;
+    private ReentrantLock lock;
+    private VaadinSession session;
+    private SessionPassivator passivator;
+
+    @Before
+    public void setup() throws Exception {
+        store = new FileSessionStore(folder.getRoot());
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        // Passivation is triggered manually by the tests
+        configuration.setApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_SESSION_PASSIVATION_DELAY, "3600");
+        service = new MockVaadinServletService(configuration) {
+            @Override
+            protected SessionStore createSessionStore() {
+                return store;
+            }
+        };
+        service.init();
+
+        wrappedSession = new InMemoryWrappedSession();
+        lock = new ReentrantLock();
+        service.setSessionLock(wrappedSession, lock);
+
+        session = new VaadinSession(service);
+        lock.lock();
+        try {
+            service.storeSession(session, wrappedSession);
+            session.setAttribute("foo", "bar");
+        } finally {
+            lock.unlock();
+        }
+
+        passivator = new SessionPassivator(service, store, 1000);
+    }
+
+    @After
+    public void tearDown() {
+        passivator.shutdown();
+        service.destroy();
+    }
+
+    private VaadinRequest createRequest() {
+        Map<String, Object> attributes = new HashMap<>();
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getWrappedSession(false))
+                .thenReturn(wrappedSession);
+        Mockito.doAnswer(invocation -> attributes.put(
+                (String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(request)
+                .setAttribute(Mockito.anyString(), Mockito.any());
+        Mockito.when(request.getAttribute(Mockito.anyString()))
+                .thenAnswer(invocation -> attributes
+                        .get(invocation.getArguments()[0]));
+        return request;
+    }
+
+    private Object getStoredSession() {
+        return wrappedSession.getAttribute(service.getSessionAttributeName());
+    }
+
+    @Test
+    public void idleSession_passivatedAndActivated() {
+        long now = System.currentTimeMillis();
+        passivator.requestEnd(createRequest());
+
+        passivator.passivateIdleSessions(now);
+        assertSame("Session should not be passivated before the delay",
+                session, getStoredSession());
+
+        passivator.passivateIdleSessions(now + 2000);
+        assertTrue(getStoredSession() instanceof PassivatedSession);
+        assertEquals(1, folder.getRoot().list().length);
+
+        lock.lock();
+        try {
+            VaadinSession activated = service.loadSession(wrappedSession);
+
+            assertNotSame(session, activated);
+            assertSame(activated, getStoredSession());
+            assertEquals(session.getCsrfToken(), activated.getCsrfToken());
+            assertEquals("bar", activated.getAttribute("foo"));
+        } finally {
+            lock.unlock();
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void requestInProgress_notPassivated() {
+        VaadinRequest request = createRequest();
+        passivator.requestStart(request);
+
+        passivator.passivateIdleSessions(System.currentTimeMillis() + 2000);
+        assertSame(session, getStoredSession());
+
+        passivator.requestEnd(request);
+        passivator.passivateIdleSessions(System.currentTimeMillis() + 2000);
+        assertTrue(getStoredSession() instanceof PassivatedSession);
+    }
+
+    @Test
+    public void lockedSession_notPassivated() throws Exception {
+        passivator.requestEnd(createRequest());
+
+        lock.lock();
+        try {
+            Thread thread = new Thread(() -> passivator
+                    .passivateIdleSessions(System.currentTimeMillis() + 2000));
+            thread.start();
+            thread.join();
+        } finally {
+            lock.unlock();
+        }
+        assertSame(session, getStoredSession());
+    }
+
+    @Test
+    public void missingStoredSession_loadedAsNull() throws Exception {
+        passivator.requestEnd(createRequest());
+        passivator.passivateIdleSessions(System.currentTimeMillis() + 2000);
+        String key = ((PassivatedSession) getStoredSession()).getKey();
+        store.remove(key);
+
+        lock.lock();
+        try {
+            assertNull(service.loadSession(wrappedSession));
+        } finally {
+            lock.unlock();
+        }
+        assertNull(getStoredSession());
+    }
+
+    @Test
+    public void serializedPlaceholderUnbound_storedSessionRemoved()
+            throws Exception {
+        passivator.requestEnd(createRequest());
+        passivator.passivateIdleSessions(System.currentTimeMillis() + 2000);
+        assertEquals(1, folder.getRoot().list().length);
+
+        // E.g. the HTTP session is serialized on restart and expires later
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(getStoredSession());
+        }
+        PassivatedSession deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (PassivatedSession) in.readObject();
+        }
+        deserialized.valueUnbound(new HttpSessionBindingEvent(
+                Mockito.mock(HttpSession.class),
+                service.getSessionAttributeName()));
+
+        assertEquals(0, folder.getRoot().list().length);
+    }
+}
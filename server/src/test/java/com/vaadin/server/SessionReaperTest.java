@@ -0,0 +1,174 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.UI;
+import com.vaadin.util.TimerWheel;
+
+public class SessionReaperTest {
+
+    private MockDeploymentConfiguration configuration;
+    private MockVaadinServletService service;
+    private MockVaadinSession session;
+    private WrappedSession wrappedSession;
+    private TimerWheel timerWheel;
+    private SessionReaper reaper;
+
+    @Before
+    public void setup() throws Exception {
+        configuration = new MockDeploymentConfiguration();
+        service = new MockVaadinServletService(configuration);
+        service.init();
+
+        wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getId()).thenReturn("session");
+        Mockito.when(wrappedSession.getMaxInactiveInterval()).thenReturn(1800);
+        session = new MockVaadinSession(service);
+        Mockito.when(
+                wrappedSession.getAttribute(service.getSessionAttributeName()))
+                .thenReturn(session);
+        session.refreshTransients(wrappedSession, service);
+
+        timerWheel = new TimerWheel("test-timer-", 10, TimeUnit.MILLISECONDS,
+                64);
+        reaper = new SessionReaper(service, timerWheel);
+    }
+
+    @After
+    public void tearDown() {
+        reaper.shutdown();
+        timerWheel.stop();
+        service.destroy();
+    }
+
+    private UI addUI(int id) {
+        UI ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), id, null);
+        session.addUI(ui);
+        return ui;
+    }
+
+    private int getUICount() {
+        session.lock();
+        try {
+            return session.getUIs().size();
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void nextCleanupTime_earliestHeartbeatTimeout() {
+        configuration.setHeartbeatInterval(10);
+        session.lock();
+        try {
+            UI ui1 = addUI(1);
+            UI ui2 = addUI(2);
+            ui1.setLastHeartbeatTimestamp(5000);
+            ui2.setLastHeartbeatTimestamp(2000);
+
+            assertEquals(2000 + 31000, service.getNextCleanupTime(session));
+            assertEquals(31000, service.getInitialCleanupDelay(session));
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void nextCleanupTime_noTimeouts() {
+        configuration.setHeartbeatInterval(-1);
+        session.lock();
+        try {
+            addUI(1);
+
+            assertEquals(Long.MAX_VALUE, service.getNextCleanupTime(session));
+            assertTrue(service.getInitialCleanupDelay(session) < 0);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void track_inactiveUIClosedWithoutRequests() throws Exception {
+        // Checked after the minimum delay of one second
+        configuration.setHeartbeatInterval(0);
+        UI inactive;
+        UI active;
+        session.lock();
+        try {
+            inactive = addUI(1);
+            active = addUI(2);
+            inactive.setLastHeartbeatTimestamp(0);
+            active.setLastHeartbeatTimestamp(Long.MAX_VALUE / 2);
+            reaper.track(session);
+        } finally {
+            session.unlock();
+        }
+
+        long timeout = System.currentTimeMillis() + 10000;
+        while (getUICount() > 1 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(50);
+        }
+
+        session.lock();
+        try {
+            assertEquals(1, session.getUIs().size());
+            assertTrue(session.getUIs().contains(active));
+            assertTrue(inactive.isClosing());
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void check_passivatedSession_notCleanedUp() {
+        configuration.setHeartbeatInterval(0);
+        session.lock();
+        try {
+            UI inactive = addUI(1);
+            inactive.setLastHeartbeatTimestamp(0);
+            session.setPassivated();
+
+            reaper.check(session);
+
+            assertEquals(1, session.getUIs().size());
+            assertFalse(inactive.isClosing());
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void check_replacedSession_notCleanedUp() {
+        configuration.setHeartbeatInterval(0);
+        // E.g. a passivated session that has been activated again
+        Mockito.when(
+                wrappedSession.getAttribute(service.getSessionAttributeName()))
+                .thenReturn(new MockVaadinSession(service));
+        session.lock();
+        try {
+            UI inactive = addUI(1);
+            inactive.setLastHeartbeatTimestamp(0);
+
+            reaper.check(session);
+
+            assertEquals(1, session.getUIs().size());
+            assertFalse(inactive.isClosing());
+            Mockito.verify(wrappedSession, Mockito.never())
+                    .removeAttribute(Mockito.anyString());
+        } finally {
+            session.unlock();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.vaadin.shared.ui.ContentMode;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+
+import elemental.json.JsonObject;
+
+public class StateSnapshotTest {
+
+    private static class Fixture {
+        private final UI ui = new MockUI();
+        private final Label label = new Label("label");
+        private final TextField field = new TextField("caption", "value");
+
+        private Fixture(boolean compact) {
+            ui.getConnectorTracker().setCompactDiffStateEnabled(compact);
+            ui.setContent(new HorizontalLayout(label, field));
+        }
+
+        private JsonObject encodeLabel() {
+            return label.encodeState();
+        }
+
+        private JsonObject encodeField() {
+            return field.encodeState();
+        }
+    }
+
+    private static void assertJsonEquals(JsonObject expected,
+            JsonObject actual) {
+        assertTrue("Expected " + expected.toJson() + " but was "
+                + actual.toJson(), JsonCodec.jsonEquals(expected, actual));
+    }
+
+    @Test
+    public void compactMode_sameMessagesAsRegularMode() {
+        Fixture regular = new Fixture(false);
+        Fixture compact = new Fixture(true);
+
+        for (Fixture fixture : new Fixture[] { regular, compact }) {
+            fixture.encodeLabel();
+            fixture.encodeField();
+        }
+        assertNotNull(compact.ui.getConnectorTracker()
+                .getStateSnapshot(compact.label));
+
+        Consumer<Fixture> changes = fixture -> {
+            fixture.label.setValue("changed");
+            fixture.label.setContentMode(ContentMode.HTML);
+            fixture.label.addStyleName("style");
+            fixture.field.setCaption(null);
+            fixture.field.setMaxLength(10);
+            fixture.field.setWidth("100px");
+        };
+        changes.accept(regular);
+        changes.accept(compact);
+
+        JsonObject labelChanges = compact.encodeLabel();
+        assertJsonEquals(regular.encodeLabel(), labelChanges);
+        assertEquals("changed", labelChanges.getString("text"));
+        assertTrue(labelChanges.hasKey("styles"));
+
+        JsonObject fieldChanges = compact.encodeField();
+        assertJsonEquals(regular.encodeField(), fieldChanges);
+        assertTrue(fieldChanges.hasKey("caption"));
+        assertFalse(fieldChanges.hasKey("text"));
+
+        // Nothing changed since the last encode
+        assertEquals(0, compact.encodeLabel().keys().length);
+        assertEquals(0, compact.encodeField().keys().length);
+    }
+
+    @Test
+    public void compactMode_initialStateSameAsRegularMode() {
+        Fixture regular = new Fixture(false);
+        Fixture compact = new Fixture(true);
+
+        assertJsonEquals(regular.encodeLabel(), compact.encodeLabel());
+        assertJsonEquals(regular.encodeField(), compact.encodeField());
+    }
+
+    @Test
+    public void compactMode_inPlaceCollectionChangeDetected() {
+        Fixture compact = new Fixture(true);
+        compact.label.addStyleName("first");
+        compact.encodeLabel();
+
+        compact.label.addStyleName("second");
+
+        assertTrue(compact.encodeLabel().hasKey("styles"));
+    }
+
+    @Test
+    public void compactMode_diffStateModificationsUsed() {
+        Fixture compact = new Fixture(true);
+        ConnectorTracker tracker = compact.ui.getConnectorTracker();
+        compact.encodeField();
+
+        // Client has changed the value, e.g. by typing
+        JsonObject diffState = tracker.getDiffState(compact.field);
+        assertEquals("value", diffState.getString("text"));
+        diffState.put("text", "typed");
+        assertNull(tracker.getStateSnapshot(compact.field));
+
+        // Server value should be sent back to the client
+        assertEquals("value", compact.encodeField().getString("text"));
+        assertNotNull(tracker.getStateSnapshot(compact.field));
+    }
+
+    @Test
+    public void disableCompactMode_snapshotsConvertedToDiffStates() {
+        Fixture compact = new Fixture(true);
+        ConnectorTracker tracker = compact.ui.getConnectorTracker();
+        compact.encodeLabel();
+
+        tracker.setCompactDiffStateEnabled(false);
+
+        assertNull(tracker.getStateSnapshot(compact.label));
+        assertEquals("label",
+                tracker.getDiffState(compact.label).getString("text"));
+        assertEquals(0, compact.encodeLabel().keys().length);
+    }
+}
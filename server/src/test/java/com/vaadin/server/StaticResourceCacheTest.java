@@ -0,0 +1,305 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class StaticResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ByteArrayOutputStream written;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Before
+    public void setUp() throws IOException {
+        written = new ByteArrayOutputStream();
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getMethod()).thenReturn("GET");
+        response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        written.write(b);
+                    }
+                });
+    }
+
+    @Test
+    public void load_entryCachedAndServed() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        byte[] content = createContent(100);
+        URL url = createFile("styles.css", content);
+
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/styles.css",
+                url, "text/css");
+
+        assertSame(entry, cache.get("/VAADIN/styles.css"));
+        cache.write(entry, request, response, false);
+        assertArrayEquals(content, written.toByteArray());
+        Mockito.verify(response).setContentType("text/css");
+        Mockito.verify(response).setContentLength(100);
+        Mockito.verify(response).setHeader("ETag", entry.getETag());
+    }
+
+    @Test
+    public void load_tooLargeResource_notCached() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(4000);
+        URL url = createFile("large.js", createContent(2000));
+
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+        assertNull(cache.get("/VAADIN/large.js"));
+    }
+
+    @Test
+    public void load_tooLargeResource_notReadAgain() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(4000);
+        URL url = createFile("large.js", createContent(2000));
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+
+        // Would fit now, but the resource is not read again
+        createFile("large.js", createContent(100));
+
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+        assertNull(cache.get("/VAADIN/large.js"));
+    }
+
+    @Test
+    public void load_tooLargeWithVariant_notCachedOrReadAgain()
+            throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(4000);
+        URL url = createFile("app.cache.js", createContent(600));
+        createFile("app.cache.js.gz", createContent(600));
+
+        assertNull(cache.load("/VAADIN/app.cache.js", url, null));
+
+        new File(folder.getRoot(), "app.cache.js.gz").delete();
+
+        assertNull(cache.load("/VAADIN/app.cache.js", url, null));
+        assertNull(cache.get("/VAADIN/app.cache.js"));
+    }
+
+    @Test
+    public void clear_tooLargeResourceLoadedAgain() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(4000);
+        URL url = createFile("large.js", createContent(2000));
+        assertNull(cache.load("/VAADIN/large.js", url, null));
+        createFile("large.js", createContent(100));
+
+        cache.clear();
+
+        assertNotNull(cache.load("/VAADIN/large.js", url, null));
+    }
+
+    @Test
+    public void load_leastRecentlyUsedEvicted() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(2500);
+        cache.load("/VAADIN/a.js", createFile("a.js", createContent(600)),
+                null);
+        cache.load("/VAADIN/b.js", createFile("b.js", createContent(600)),
+                null);
+        cache.load("/VAADIN/c.js", createFile("c.js", createContent(600)),
+                null);
+        // Use a so that b becomes the least recently used
+        cache.get("/VAADIN/a.js");
+
+        cache.load("/VAADIN/d.js", createFile("d.js", createContent(600)),
+                null);
+        cache.load("/VAADIN/e.js", createFile("e.js", createContent(600)),
+                null);
+
+        assertNotNull(cache.get("/VAADIN/a.js"));
+        assertNull(cache.get("/VAADIN/b.js"));
+        assertEquals(2400, cache.getSize());
+    }
+
+    @Test
+    public void write_acceptsGzip_compressedOnFirstUse() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        byte[] content = createContent(10000);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js",
+                createFile("app.js", content), null);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate");
+
+        cache.write(entry, request, response, true);
+
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(response).setHeader(Mockito.eq("ETag"),
+                Mockito.matches("\".*-gzip\""));
+        assertArrayEquals(content, gunzip(written.toByteArray()));
+        assertEquals(10000 + written.size(), cache.getSize());
+    }
+
+    @Test
+    public void write_precompressedBrotli_servedWhenAccepted()
+            throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        byte[] brotli = new byte[] { 1, 2, 3 };
+        URL url = createFile("app.js", createContent(2000));
+        createFile("app.js.br", brotli);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js", url,
+                null);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate, br");
+
+        cache.write(entry, request, response, true);
+
+        Mockito.verify(response).setHeader("Content-Encoding", "br");
+        assertArrayEquals(brotli, written.toByteArray());
+    }
+
+    @Test
+    public void write_encodingsRejectedWithZeroQuality_uncompressed()
+            throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        byte[] content = createContent(10000);
+        URL url = createFile("app.js", content);
+        createFile("app.js.br", new byte[] { 1, 2, 3 });
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js", url,
+                null);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip;q=0, br;q=0, identity");
+
+        cache.write(entry, request, response, true);
+
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertArrayEquals(content, written.toByteArray());
+        assertEquals("Content should not be compressed when gzip is rejected",
+                10000 + 3, cache.getSize());
+    }
+
+    @Test
+    public void write_matchingETag_notModified() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js",
+                createFile("app.js", createContent(100)), null);
+        Mockito.when(request.getHeader("If-None-Match"))
+                .thenReturn("\"other\", " + entry.getETag());
+
+        cache.write(entry, request, response, false);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    public void write_range_partialContent() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        byte[] content = createContent(2000);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js",
+                createFile("app.js", content), null);
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=100-199");
+        Mockito.when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+        cache.write(entry, request, response, true);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        Mockito.verify(response).setHeader("Content-Range",
+                "bytes 100-199/2000");
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200),
+                written.toByteArray());
+    }
+
+    @Test
+    public void write_rangeHeadRequest_noBody() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js",
+                createFile("app.js", createContent(2000)), null);
+        Mockito.when(request.getMethod()).thenReturn("HEAD");
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=100-199");
+
+        cache.write(entry, request, response, false);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        Mockito.verify(response).setContentLength(100);
+        assertEquals(0, written.size());
+    }
+
+    @Test
+    public void write_rangeWithChangedIfRange_fullContent() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        byte[] content = createContent(2000);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js",
+                createFile("app.js", content), null);
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=100-199");
+        Mockito.when(request.getHeader("If-Range")).thenReturn("\"old\"");
+
+        cache.write(entry, request, response, false);
+
+        assertArrayEquals(content, written.toByteArray());
+    }
+
+    @Test
+    public void write_unsatisfiableRange() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = cache.load("/VAADIN/app.js",
+                createFile("app.js", createContent(100)), null);
+        Mockito.when(request.getHeader("Range")).thenReturn("bytes=100-");
+
+        cache.write(entry, request, response, false);
+
+        Mockito.verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        Mockito.verify(response).setHeader("Content-Range", "bytes */100");
+        assertEquals(0, written.size());
+    }
+
+    private URL createFile(String name, byte[] content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content);
+        return file.toURI().toURL();
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            content[i] = (byte) ('a' + i % 7);
+        }
+        return content;
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+}
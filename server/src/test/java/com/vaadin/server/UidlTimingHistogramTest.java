@@ -0,0 +1,187 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.UidlTimingEvent.Phase;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Label;
+
+public class UidlTimingHistogramTest {
+
+    private VaadinService service;
+
+    @Before
+    public void setUp() {
+        service = Mockito.mock(VaadinService.class);
+    }
+
+    @Test
+    public void event_timesAccumulated() {
+        UidlTimingEvent event = new UidlTimingEvent(service);
+        event.addTime(Phase.LOCK_WAIT, TimeUnit.MILLISECONDS.toNanos(2));
+        event.addTime(Phase.LOCK_WAIT, TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(5, event.getTime(Phase.LOCK_WAIT, TimeUnit.MILLISECONDS));
+        assertEquals(0, event.getTime(Phase.WRITE, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void event_beforeClientResponseTimesPerConnectorClass() {
+        UidlTimingEvent event = new UidlTimingEvent(service);
+        event.addBeforeClientResponseTime(Button.class, 100);
+        event.addBeforeClientResponseTime(Button.class, 50);
+        event.addBeforeClientResponseTime(Label.class, 10);
+
+        Map<Class<? extends ClientConnector>, Long> times = event
+                .getBeforeClientResponseTimes();
+        assertEquals(2, times.size());
+        assertEquals(Long.valueOf(150), times.get(Button.class));
+        assertEquals(Long.valueOf(10), times.get(Label.class));
+        assertEquals(160, event.getTime(Phase.BEFORE_CLIENT_RESPONSE,
+                TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void histogram_timesCountedInExponentialBuckets() {
+        UidlTimingHistogram histogram = new UidlTimingHistogram();
+
+        histogram.uidlRequestHandled(createEvent(0, 0));
+        histogram.uidlRequestHandled(createEvent(1, 3));
+        histogram.uidlRequestHandled(createEvent(1000, 1500));
+
+        long[] expectedWrite = new long[UidlTimingHistogram.BUCKET_COUNT];
+        expectedWrite[0] = 1; // 0 us
+        expectedWrite[1] = 1; // 1 us
+        expectedWrite[10] = 1; // 1000 us
+        assertArrayEquals(expectedWrite, histogram.getCounts(Phase.WRITE));
+
+        long[] expectedTotal = new long[UidlTimingHistogram.BUCKET_COUNT];
+        expectedTotal[0] = 1; // 0 us
+        expectedTotal[2] = 1; // 3 us
+        expectedTotal[11] = 1; // 1500 us
+        assertArrayEquals(expectedTotal, histogram.getTotalCounts());
+
+        assertEquals(3, histogram.getRequestCount());
+        assertEquals(3, histogram.getCounts(Phase.LOCK_WAIT)[0]);
+    }
+
+    @Test
+    public void histogram_longTimesCountedInLastBucket() {
+        UidlTimingHistogram histogram = new UidlTimingHistogram();
+
+        long day = TimeUnit.DAYS.toMicros(1);
+        histogram.uidlRequestHandled(createEvent(day, day));
+
+        long[] counts = histogram.getTotalCounts();
+        assertEquals(1, counts[UidlTimingHistogram.BUCKET_COUNT - 1]);
+    }
+
+    @Test
+    public void histogram_bucketBounds() {
+        assertEquals(1, UidlTimingHistogram.getBucketUpperBound(0,
+                TimeUnit.MICROSECONDS));
+        assertEquals(1024, UidlTimingHistogram.getBucketUpperBound(10,
+                TimeUnit.MICROSECONDS));
+        assertEquals(Long.MAX_VALUE, UidlTimingHistogram.getBucketUpperBound(
+                UidlTimingHistogram.BUCKET_COUNT - 1, TimeUnit.MICROSECONDS));
+
+        // A time equal to a bound goes in the next bucket
+        for (int i = 0; i < UidlTimingHistogram.BUCKET_COUNT - 1; ++i) {
+            UidlTimingHistogram histogram = new UidlTimingHistogram();
+            long bound = UidlTimingHistogram.getBucketUpperBound(i,
+                    TimeUnit.MICROSECONDS);
+            histogram.uidlRequestHandled(createEvent(bound - 1, bound));
+            assertEquals(1, histogram.getCounts(Phase.WRITE)[i]);
+            assertEquals(1, histogram.getTotalCounts()[i + 1]);
+        }
+    }
+
+    @Test
+    public void histogram_reset() {
+        UidlTimingHistogram histogram = new UidlTimingHistogram();
+        histogram.uidlRequestHandled(createEvent(10, 20));
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getRequestCount());
+        for (long count : histogram.getCounts(Phase.WRITE)) {
+            assertEquals(0, count);
+        }
+    }
+
+    @Test
+    public void addUidlTimingListener_eventFiredForUidlRequests()
+            throws Exception {
+        MockVaadinServletService realService = new MockVaadinServletService();
+        realService.init();
+        UidlTimingHistogram histogram = new UidlTimingHistogram();
+        realService.addUidlTimingListener(histogram);
+
+        VaadinRequest request = createRequest(
+                "/" + ApplicationConstants.UIDL_PATH + "/");
+        realService.requestStart(request, Mockito.mock(VaadinResponse.class));
+        assertNotNull(UidlTimingEvent.get(request));
+        realService.requestEnd(request, null, null);
+
+        assertEquals(1, histogram.getRequestCount());
+    }
+
+    @Test
+    public void addUidlTimingListener_otherRequestsNotTimed() throws Exception {
+        MockVaadinServletService realService = new MockVaadinServletService();
+        realService.init();
+        realService.addUidlTimingListener(event -> {
+            throw new AssertionError("Should not be called");
+        });
+
+        VaadinRequest request = createRequest("/HEARTBEAT/");
+        realService.requestStart(request, Mockito.mock(VaadinResponse.class));
+        assertNull(UidlTimingEvent.get(request));
+        realService.requestEnd(request, null, null);
+    }
+
+    @Test
+    public void noListeners_uidlRequestNotTimed() throws Exception {
+        MockVaadinServletService realService = new MockVaadinServletService();
+        realService.init();
+
+        VaadinRequest request = createRequest(
+                "/" + ApplicationConstants.UIDL_PATH + "/");
+        realService.requestStart(request, Mockito.mock(VaadinResponse.class));
+        assertNull(UidlTimingEvent.get(request));
+        realService.requestEnd(request, null, null);
+    }
+
+    private VaadinRequest createRequest(String pathInfo) {
+        VaadinServletRequest request = Mockito.mock(VaadinServletRequest.class);
+        Map<String, Object> attributes = new HashMap<>();
+        Mockito.when(request.getPathInfo()).thenReturn(pathInfo);
+        Mockito.doAnswer(invocation -> {
+            Object[] args = invocation.getArguments();
+            attributes.put((String) args[0], args[1]);
+            return null;
+        }).when(request).setAttribute(Mockito.anyString(), Mockito.any());
+        Mockito.when(request.getAttribute(Mockito.anyString())).thenAnswer(
+                invocation -> attributes.get(invocation.getArguments()[0]));
+        return request;
+    }
+
+    private UidlTimingEvent createEvent(long writeMicros, long totalMicros) {
+        UidlTimingEvent event = new UidlTimingEvent(service);
+        event.addTime(Phase.WRITE, TimeUnit.MICROSECONDS.toNanos(writeMicros));
+        event.setTotalTime(TimeUnit.MICROSECONDS.toNanos(totalMicros));
+        return event;
+    }
+}
@@ -3,18 +3,29 @@ package com.vaadin.server;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpSessionBindingEvent;
 
 import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.easymock.EasyMock;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.communication.HeartbeatHandler;
+import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.UI;
 import com.vaadin.util.CurrentInstance;
 
 public class VaadinServiceTest {
@@ -223,4 +234,78 @@ public class VaadinServiceTest {
         Mockito.when(vaadinSession.getService()).thenReturn(service);
         return session;
     }
+
+    @Test
+    public void heartbeat_sharedLockHeldByOtherThread_handledWithoutWaiting()
+            throws Exception {
+        MockVaadinServletService service = new MockVaadinServletService();
+        service.init();
+        ReadMostlySessionLock lock = new ReadMostlySessionLock();
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getAttribute(service.getLockAttributeName()))
+                .thenReturn(lock);
+        VaadinSession session = new VaadinSession(service);
+        session.refreshTransients(wrappedSession, service);
+        Mockito.when(
+                wrappedSession.getAttribute(service.getSessionAttributeName()))
+                .thenReturn(session);
+
+        UI ui = new MockUI(session);
+        session.lock();
+        try {
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+        long lastHeartbeat = System.currentTimeMillis() - 1000;
+        ui.setLastHeartbeatTimestamp(lastHeartbeat);
+
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo())
+                .thenReturn("/" + ApplicationConstants.HEARTBEAT_PATH + "/");
+        Mockito.when(request.getWrappedSession()).thenReturn(wrappedSession);
+        Mockito.when(request.getWrappedSession(Mockito.anyBoolean()))
+                .thenReturn(wrappedSession);
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn("1");
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+
+        // E.g. a connector resource download of another browser tab
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            lock.lockRead();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                // Release the lock
+            } finally {
+                lock.unlockRead();
+            }
+        });
+        reader.start();
+        locked.await();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> heartbeat = executor.submit(() -> {
+                service.requestStart(request, response);
+                VaadinSession found = service.findVaadinSession(request);
+                new HeartbeatHandler().handleRequest(found, request, response);
+                service.requestEnd(request, response, found);
+                return null;
+            });
+            // Would time out if any step took the exclusive lock
+            heartbeat.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            reader.join();
+            service.destroy();
+        }
+
+        assertTrue(ui.getLastHeartbeatTimestamp() > lastHeartbeat);
+    }
 }
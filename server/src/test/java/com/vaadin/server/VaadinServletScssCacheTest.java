@@ -0,0 +1,211 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.ServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinServlet.ScssCacheEntry;
+
+public class VaadinServletScssCacheTest {
+
+    private static final String CSS = "/VAADIN/themes/test/styles.css";
+    private static final String SCSS = "/VAADIN/themes/test/styles.scss";
+
+    @FunctionalInterface
+    private interface Compiler {
+        ScssCacheEntry compile() throws IOException;
+    }
+
+    private static class StubScssServlet extends VaadinServlet {
+        private transient volatile Compiler compiler;
+
+        @Override
+        ScssCacheEntry loadOrCompileScss(String filename, String scssFilename,
+                ServletContext sc, boolean loadPersisted) throws IOException {
+            return compiler.compile();
+        }
+
+        private ScssCacheEntry createEntry(String css, boolean valid) {
+            return new ScssCacheEntry(SCSS, css, Collections.emptyList()) {
+                @Override
+                public boolean isStillValid() {
+                    return valid;
+                }
+            };
+        }
+    }
+
+    private StubScssServlet servlet;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        servlet = new StubScssServlet();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ScssCacheEntry get(VaadinServlet servlet) throws IOException {
+        return servlet.getScssCacheEntry(CSS, SCSS, null);
+    }
+
+    private Future<ScssCacheEntry> getInBackground() {
+        return executor.submit(() -> get(servlet));
+    }
+
+    private Future<ScssCacheEntry> getInBackgroundAndWaitForCompilation()
+            throws InterruptedException {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        Future<ScssCacheEntry> request = executor.submit(() -> {
+            thread.set(Thread.currentThread());
+            return get(servlet);
+        });
+        long timeout = System.currentTimeMillis() + 10000;
+        while (thread.get() == null
+                || thread.get().getState() != Thread.State.WAITING) {
+            if (System.currentTimeMillis() > timeout) {
+                fail("The request did not wait for the ongoing compilation");
+            }
+            Thread.sleep(10);
+        }
+        return request;
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Test
+    public void concurrentRequests_compilationShared() throws Exception {
+        ScssCacheEntry entry = servlet.createEntry("a", true);
+        AtomicInteger compilations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        servlet.compiler = () -> {
+            compilations.incrementAndGet();
+            started.countDown();
+            await(finish);
+            return entry;
+        };
+
+        Future<ScssCacheEntry> first = getInBackground();
+        await(started);
+        Future<ScssCacheEntry> second = getInBackgroundAndWaitForCompilation();
+        finish.countDown();
+
+        assertSame(entry, first.get(10, TimeUnit.SECONDS));
+        assertSame(entry, second.get(10, TimeUnit.SECONDS));
+        assertSame(entry, get(servlet));
+        assertEquals(1, compilations.get());
+    }
+
+    @Test
+    public void outdatedEntry_servedWhileRecompiling() throws Exception {
+        ScssCacheEntry outdated = servlet.createEntry("old", false);
+        servlet.compiler = () -> outdated;
+        assertSame(outdated, get(servlet));
+
+        ScssCacheEntry fresh = servlet.createEntry("new", true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        servlet.compiler = () -> {
+            started.countDown();
+            await(finish);
+            return fresh;
+        };
+        Future<ScssCacheEntry> recompiling = getInBackground();
+        await(started);
+
+        assertSame("Outdated css should be served without waiting", outdated,
+                get(servlet));
+
+        finish.countDown();
+        assertSame(fresh, recompiling.get(10, TimeUnit.SECONDS));
+        assertSame(fresh, get(servlet));
+    }
+
+    @Test
+    public void compilationFails_exceptionPropagatedToWaitingRequests()
+            throws Exception {
+        IOException failure = new IOException("Compilation failed");
+        AtomicInteger compilations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        servlet.compiler = () -> {
+            compilations.incrementAndGet();
+            started.countDown();
+            await(finish);
+            throw failure;
+        };
+
+        Future<ScssCacheEntry> first = getInBackground();
+        await(started);
+        Future<ScssCacheEntry> second = getInBackgroundAndWaitForCompilation();
+        finish.countDown();
+
+        for (Future<ScssCacheEntry> request : Arrays.asList(first, second)) {
+            try {
+                request.get(10, TimeUnit.SECONDS);
+                fail("The compilation failure should be thrown");
+            } catch (ExecutionException e) {
+                // Not wrapped in a CompletionException
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, compilations.get());
+
+        // Compiled again by the next request
+        ScssCacheEntry entry = servlet.createEntry("a", true);
+        servlet.compiler = () -> entry;
+        assertSame(entry, get(servlet));
+    }
+
+    @Test
+    public void deserializedServlet_compilesScss() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(servlet);
+        }
+        StubScssServlet deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (StubScssServlet) in.readObject();
+        }
+        ScssCacheEntry entry = deserialized.createEntry("a", true);
+        deserialized.compiler = () -> entry;
+
+        assertSame(entry, get(deserialized));
+    }
+}
@@ -0,0 +1,115 @@
+package com.vaadin.server.communication;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+
+public class CommitJsonResponseTest {
+
+    private VaadinService service;
+    private VaadinRequest request;
+    private VaadinResponse response;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void setup() throws IOException {
+        service = Mockito.mock(VaadinService.class);
+        request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+        response = Mockito.mock(VaadinResponse.class);
+        output = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+    }
+
+    private static String createJson(int length) {
+        StringBuilder json = new StringBuilder("{\"data\":\"");
+        while (json.length() < length) {
+            json.append("abc");
+        }
+        return json.append("\"}").toString();
+    }
+
+    @Test
+    public void compressionEnabledAndAccepted_gzipped() throws IOException {
+        Mockito.when(service.isUidlCompressionEnabled()).thenReturn(true);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate");
+        String json = createJson(10000);
+
+        UIInitHandler.commitJsonResponse(request, response, json);
+
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setContentLength(output.size());
+        try (InputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(output.toByteArray()))) {
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, read);
+            }
+            assertEquals(json, new String(decompressed.toByteArray(), UTF_8));
+        }
+    }
+
+    @Test
+    public void compressionNotAccepted_plain() throws IOException {
+        Mockito.when(service.isUidlCompressionEnabled()).thenReturn(true);
+        String json = createJson(10000);
+
+        UIInitHandler.commitJsonResponse(request, response, json);
+
+        Mockito.verify(response, Mockito.never()).setHeader(
+                Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertArrayEquals(json.getBytes(UTF_8), output.toByteArray());
+    }
+
+    @Test
+    public void compressionRejectedWithZeroQuality_plain() throws IOException {
+        Mockito.when(service.isUidlCompressionEnabled()).thenReturn(true);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip;q=0, deflate");
+        String json = createJson(10000);
+
+        UIInitHandler.commitJsonResponse(request, response, json);
+
+        Mockito.verify(response, Mockito.never()).setHeader(
+                Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertArrayEquals(json.getBytes(UTF_8), output.toByteArray());
+    }
+
+    @Test
+    public void compressionDisabled_plain() throws IOException {
+        Mockito.when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        String json = createJson(10000);
+
+        UIInitHandler.commitJsonResponse(request, response, json);
+
+        assertArrayEquals(json.getBytes(UTF_8), output.toByteArray());
+    }
+
+    @Test
+    public void shortResponse_plain() throws IOException {
+        Mockito.when(service.isUidlCompressionEnabled()).thenReturn(true);
+        Mockito.when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+        String json = createJson(100);
+
+        UIInitHandler.commitJsonResponse(request, response, json);
+
+        assertArrayEquals(json.getBytes(UTF_8), output.toByteArray());
+    }
+}
@@ -0,0 +1,50 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    @Test
+    public void writeValue_sameAsStringify() throws IOException {
+        JsonObject object = Json.createObject();
+        object.put("string", "foo");
+        object.put("number", 42);
+        object.put("decimal", 1.5);
+        object.put("boolean", true);
+        object.put("null", Json.createNull());
+        JsonArray array = Json.createArray();
+        array.set(0, "bar");
+        array.set(1, Json.createObject());
+        array.set(2, Json.createArray());
+        object.put("array", array);
+
+        assertEquals(JsonUtil.stringify(object), write(object));
+    }
+
+    @Test
+    public void writeString_specialCharactersEscaped() throws IOException {
+        String string = "a\"b\\c\nd\te\u0001f\u2028";
+        String written = write(Json.create(string));
+
+        assertEquals("\"a\\\"b\\\\c\\nd\\te\\u0001f\\u2028\"", written);
+        JsonArray parsed = JsonUtil.parse("[" + written + "]");
+        assertEquals(string, parsed.getString(0));
+    }
+
+    private static String write(JsonValue value) throws IOException {
+        StringWriter writer = new StringWriter();
+        JsonStreamWriter.writeValue(writer, value);
+        return writer.toString();
+    }
+}
@@ -2,6 +2,8 @@ package com.vaadin.tests.components.grid;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -76,6 +78,80 @@ public class GridComponentRendererTest {
                 null, testComponent.getParent());
     }
 
+    @Test
+    public void recyclingColumn_componentReusedForNewItem() {
+        List<Label> created = new ArrayList<>();
+        Grid<Person> recyclingGrid = createRecyclingGrid(PERSON, created);
+        recyclingGrid.getDataCommunicator().beforeClientResponse(true);
+        assertEquals(1, created.size());
+        Label label = created.get(0);
+        String connectorId = label.getConnectorId();
+        assertEquals(PERSON.getFirstName(), label.getValue());
+
+        Person other = Person.createTestPerson2();
+        recyclingGrid.setItems(other);
+        assertSame("Pooled component should stay attached", recyclingGrid,
+                label.getParent());
+        recyclingGrid.getDataCommunicator().beforeClientResponse(true);
+
+        assertEquals("No new component should be created", 1,
+                created.size());
+        assertEquals(other.getFirstName(), label.getValue());
+        assertEquals(connectorId, label.getConnectorId());
+    }
+
+    @Test
+    public void recyclingColumn_refresh_componentUpdated() {
+        Person person = Person.createTestPerson1();
+        List<Label> created = new ArrayList<>();
+        Grid<Person> recyclingGrid = createRecyclingGrid(person, created);
+        recyclingGrid.getDataCommunicator().beforeClientResponse(true);
+
+        person.setFirstName("Changed");
+        recyclingGrid.getDataProvider().refreshItem(person);
+        recyclingGrid.getDataCommunicator().beforeClientResponse(false);
+
+        assertEquals(1, created.size());
+        assertEquals("Changed", created.get(0).getValue());
+    }
+
+    @Test
+    public void recyclingColumn_poolFull_componentDetached() {
+        List<Label> created = new ArrayList<>();
+        Grid<Person> recyclingGrid = createRecyclingGrid(PERSON, created);
+        recyclingGrid.getColumns().get(0).setComponentPoolSize(0);
+        recyclingGrid.getDataCommunicator().beforeClientResponse(true);
+
+        recyclingGrid.setItems(Person.createTestPerson2());
+
+        assertNull(created.get(0).getParent());
+    }
+
+    @Test
+    public void recyclingColumn_removeColumn_pooledComponentsDetached() {
+        List<Label> created = new ArrayList<>();
+        Grid<Person> recyclingGrid = createRecyclingGrid(PERSON, created);
+        recyclingGrid.getDataCommunicator().beforeClientResponse(true);
+        recyclingGrid.setItems(Person.createTestPerson2());
+
+        recyclingGrid.removeColumn(recyclingGrid.getColumns().get(0));
+
+        assertNull(created.get(0).getParent());
+    }
+
+    private Grid<Person> createRecyclingGrid(Person person,
+            List<Label> created) {
+        Grid<Person> recyclingGrid = new Grid<>();
+        recyclingGrid.setItems(person);
+        recyclingGrid.addComponentColumn(() -> {
+            Label label = new Label();
+            created.add(label);
+            return label;
+        }, (label, item) -> label.setValue(item.getFirstName()));
+        new MockUI().setContent(recyclingGrid);
+        return recyclingGrid;
+    }
+
     private void generateDataForClient(boolean initial) {
         grid.getDataCommunicator().beforeClientResponse(initial);
         if (testComponent != null) {
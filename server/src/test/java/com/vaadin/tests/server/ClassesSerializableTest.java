@@ -68,6 +68,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             "com\\.vaadin\\.server\\.communication\\.DateSerializer", //
             "com\\.vaadin\\.server\\.communication\\.JSONSerializer", //
+            "com\\.vaadin\\.server\\.communication\\.JsonStreamWriter", //
             "com\\.vaadin\\.ui\\.declarative\\.DesignContext", //
             // and its inner classes do not need to be serializable
             "com\\.vaadin\\.v7\\.util\\.SerializerHelper", // fully static
@@ -93,7 +94,15 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection.*", //
             "com\\.vaadin\\.ui\\.components\\.colorpicker\\.ColorUtil", //
             "com\\.vaadin\\.util\\.ConnectorHelper", //
+            "com\\.vaadin\\.util\\.ExecutorUtil", //
+            "com\\.vaadin\\.util\\.TimerWheel(\\$.*)?", //
+            "com\\.vaadin\\.server\\.PushScheduler", //
+            "com\\.vaadin\\.server\\.SessionAccessExecutor", //
+            "com\\.vaadin\\.server\\.SessionReaper", //
+            "com\\.vaadin\\.server\\.StaticResourceCache(\\$.*)?", //
+            "com\\.vaadin\\.server\\.SessionPassivator(\\$TrackedSession|\\$ServiceObjectInputStream)?", //
             "com\\.vaadin\\.server\\.VaadinSession\\$FutureAccess", //
+            "com\\.vaadin\\.ui\\.components\\.grid\\.GridExporter\\$ExportInputStream", //
             "com\\.vaadin\\.external\\..*", //
             "com\\.vaadin\\.util\\.WeakValueMap.*", //
             "com\\.vaadin\\.themes\\.valoutil\\.BodyStyleName", //
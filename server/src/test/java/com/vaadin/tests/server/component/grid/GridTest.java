@@ -717,6 +717,41 @@ public class GridTest {
         assertSingleSortProperty(objectColumn, "foo");
     }
 
+    @Test
+    public void hiddenColumn_noDataGenerated() {
+        lengthColumn.setHidden(true);
+
+        JsonObject rowData = getRowData(grid, "abc");
+
+        assertEquals(3, rowData.keys().length);
+        assertFalse(getValues(rowData).contains("3"));
+    }
+
+    @Test
+    public void allColumnsHidden_dataObjectGenerated() {
+        grid.getColumns().forEach(column -> column.setHidden(true));
+
+        JsonObject rowData = getRowData(grid, "abc");
+
+        assertEquals(0, rowData.keys().length);
+    }
+
+    @Test
+    public void hiddenColumnShown_dataGenerated() {
+        lengthColumn.setHidden(true);
+        lengthColumn.setHidden(false);
+
+        JsonObject rowData = getRowData(grid, "abc");
+
+        assertEquals(4, rowData.keys().length);
+        assertTrue(getValues(rowData).contains("3"));
+    }
+
+    private static Set<String> getValues(JsonObject rowData) {
+        return Stream.of(rowData.keys()).map(rowData::getString)
+                .collect(Collectors.toSet());
+    }
+
     private static void assertSingleSortProperty(Column<?, ?> column,
             String expectedProperty) {
         QuerySortOrder[] sortOrders = column
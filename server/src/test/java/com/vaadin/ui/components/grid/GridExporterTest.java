@@ -0,0 +1,109 @@
+package com.vaadin.ui.components.grid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.provider.DataProvider;
+import com.vaadin.server.StreamResource;
+import com.vaadin.shared.data.sort.SortDirection;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.Column;
+import com.vaadin.ui.Label;
+
+public class GridExporterTest {
+
+    private Grid<Integer> grid;
+    private Column<Integer, Integer> valueColumn;
+    private GridExporter<Integer> exporter;
+
+    @Before
+    public void setUp() {
+        grid = new Grid<>();
+        grid.setItems(3, 1, 2);
+        valueColumn = grid.addColumn(i -> i).setCaption("Value");
+        grid.addColumn(i -> "Item, \"" + i + "\"").setCaption("Text");
+        exporter = new GridExporter<>(grid);
+    }
+
+    @Test
+    public void writeCsv_headerAndEscapedRows() throws IOException {
+        assertEquals(
+                "Value,Text\r\n3,\"Item, \"\"3\"\"\"\r\n"
+                        + "1,\"Item, \"\"1\"\"\"\r\n2,\"Item, \"\"2\"\"\"\r\n",
+                writeCsv());
+    }
+
+    @Test
+    public void writeCsv_gridSortingAndHiddenColumns() throws IOException {
+        grid.sort(valueColumn, SortDirection.DESCENDING);
+        grid.getColumns().get(1).setHidden(true);
+        exporter.setHeaderIncluded(false);
+
+        assertEquals("3\r\n2\r\n1\r\n", writeCsv());
+    }
+
+    @Test
+    public void writeCsv_componentColumnsEmpty() throws IOException {
+        grid.removeColumn(grid.getColumns().get(1));
+        grid.addComponentColumn(i -> new Label()).setCaption("Component");
+        exporter.setSeparator(';');
+
+        assertEquals("Value;Component\r\n3;\r\n1;\r\n2;\r\n", writeCsv());
+    }
+
+    @Test
+    public void writeCsv_fetchedInChunks() throws IOException {
+        List<Integer> items = new ArrayList<>();
+        IntStream.range(0, 25).forEach(items::add);
+        AtomicInteger fetchCount = new AtomicInteger();
+        grid.setDataProvider(DataProvider.fromCallbacks(query -> {
+            fetchCount.incrementAndGet();
+            assertEquals(10, query.getLimit());
+            return items.stream().skip(query.getOffset())
+                    .limit(query.getLimit());
+        }, query -> items.size()));
+        exporter.setChunkSize(10);
+        exporter.setHeaderIncluded(false);
+
+        String csv = writeCsv();
+
+        assertEquals(3, fetchCount.get());
+        assertEquals(25, csv.split("\r\n").length);
+    }
+
+    @Test
+    public void csvResource_streamsRows() throws IOException {
+        exporter.setChunkSize(1);
+        StreamResource resource = exporter.createCsvResource("export.csv");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = resource.getStreamSource().getStream()) {
+            byte[] buffer = new byte[3];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+
+        assertEquals(writeCsv(),
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertEquals("export.csv", resource.getFilename());
+    }
+
+    private String writeCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writeCsv(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
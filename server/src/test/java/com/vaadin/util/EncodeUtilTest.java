@@ -1,6 +1,8 @@
 package com.vaadin.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -15,4 +17,24 @@ public class EncodeUtilTest {
         assertEquals("A" + "%20" + "%c3%a5" + "%e6%97%a5",
                 EncodeUtil.rfc5987Encode("A å日"));
     }
+
+    @Test
+    public void isContentEncodingAccepted() {
+        assertTrue(EncodeUtil.isContentEncodingAccepted("gzip", "gzip"));
+        assertTrue(EncodeUtil.isContentEncodingAccepted("deflate, GZIP;q=0.5",
+                "gzip"));
+        assertTrue(EncodeUtil.isContentEncodingAccepted("*", "br"));
+        assertTrue(EncodeUtil.isContentEncodingAccepted("br;q=1.0", "br"));
+
+        assertFalse(EncodeUtil.isContentEncodingAccepted(null, "gzip"));
+        assertFalse(EncodeUtil.isContentEncodingAccepted("", "gzip"));
+        assertFalse(EncodeUtil.isContentEncodingAccepted("gzip;q=0", "gzip"));
+        assertFalse(EncodeUtil.isContentEncodingAccepted("br, gzip; q=0.0",
+                "gzip"));
+        assertFalse(EncodeUtil.isContentEncodingAccepted("*, br;q=0", "br"));
+        assertFalse(EncodeUtil.isContentEncodingAccepted("*;q=0", "gzip"));
+        assertFalse(EncodeUtil.isContentEncodingAccepted("x-gzipped", "gzip"));
+        assertFalse(
+                EncodeUtil.isContentEncodingAccepted("gzip;q=foo", "gzip"));
+    }
 }
@@ -0,0 +1,103 @@
+package com.vaadin.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vaadin.util.TimerWheel.Timeout;
+
+public class TimerWheelTest {
+
+    private final TimerWheel timer = new TimerWheel("test-timer-", 1,
+            TimeUnit.MILLISECONDS, 8);
+
+    @After
+    public void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    public void schedule_runAfterDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] runTime = new long[1];
+
+        Timeout timeout = timer.schedule(() -> {
+            runTime[0] = System.nanoTime();
+            latch.countDown();
+        }, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(runTime[0] - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(timeout.isDone());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void schedule_delayLongerThanWheel_runInDeadlineOrder()
+            throws InterruptedException {
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+
+        timer.schedule(() -> {
+            order.add(3);
+            latch.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+        timer.schedule(() -> {
+            order.add(1);
+            latch.countDown();
+        }, 2, TimeUnit.MILLISECONDS);
+        timer.schedule(() -> {
+            order.add(2);
+            latch.countDown();
+        }, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(3, order.size());
+        assertEquals(Integer.valueOf(1), order.get(0));
+        assertEquals(Integer.valueOf(2), order.get(1));
+        assertEquals(Integer.valueOf(3), order.get(2));
+    }
+
+    @Test
+    public void cancel_taskNotRun() throws InterruptedException {
+        List<String> runs = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        Timeout cancelled = timer.schedule(() -> runs.add("cancelled"), 10,
+                TimeUnit.MILLISECONDS);
+        timer.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.isDone());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(runs.isEmpty());
+    }
+
+    @Test
+    public void failingTask_otherTasksRun() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        timer.schedule(() -> {
+            throw new RuntimeException("Expected");
+        }, 1, TimeUnit.MILLISECONDS);
+        timer.schedule(latch::countDown, 5, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void schedule_afterStop_throws() {
+        timer.stop();
+        timer.schedule(() -> {
+        }, 1, TimeUnit.MILLISECONDS);
+    }
+}
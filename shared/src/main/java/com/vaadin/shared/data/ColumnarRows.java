@@ -0,0 +1,266 @@
+/*
+ * Copyright 2000-2022 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.shared.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Encodes a page of row objects as per-column value arrays and back.
+ * <p>
+ * Rows sent by a data communicator usually have the same keys, e.g. the row
+ * key and a nested object with one value per grid column. In the columnar
+ * form, each such key is sent only once together with an array of the values
+ * of all rows. Top level keys and keys of nested objects that are present in
+ * every row become columns, while keys only present in some rows are sent in
+ * a sparse object per row.
+ *
+ * @see DataCommunicatorClientRpc#setColumnarData(int, JsonObject)
+ *
+ * @author Vaadin Ltd
+ * @since 8.15
+ */
+public final class ColumnarRows implements Serializable {
+
+    /** Number of rows. */
+    private static final String ROW_COUNT = "n";
+    /** Keys with an object value in every row. */
+    private static final String OBJECTS = "o";
+    /** Paths of the columns, as arrays of one or two keys. */
+    private static final String COLUMNS = "c";
+    /** Value arrays, one for each column. */
+    private static final String VALUES = "v";
+    /** Remaining values of each row, or null if there are none. */
+    private static final String REST = "r";
+
+    private ColumnarRows() {
+        // Static utils only
+    }
+
+    /**
+     * Encodes the given rows into the columnar form.
+     *
+     * @param rows
+     *            an array of row objects, not <code>null</code>
+     * @return the columnar form of the rows, not <code>null</code>
+     */
+    public static JsonObject encode(JsonArray rows) {
+        int rowCount = rows.length();
+
+        // Top level key -> common child keys, or null for a plain value
+        Map<String, Set<String>> columns = new LinkedHashMap<>();
+        if (rowCount > 0) {
+            JsonObject first = rows.getObject(0);
+            for (String key : first.keys()) {
+                JsonValue value = first.get(key);
+                columns.put(key, isObject(value)
+                        ? new LinkedHashSet<>(
+                                Arrays.asList(((JsonObject) value).keys()))
+                        : null);
+            }
+            for (int i = 1; i < rowCount; i++) {
+                retainCommon(columns, rows.getObject(i));
+            }
+        }
+
+        JsonArray objects = Json.createArray();
+        JsonArray paths = Json.createArray();
+        JsonArray values = Json.createArray();
+        for (Map.Entry<String, Set<String>> entry : columns.entrySet()) {
+            String key = entry.getKey();
+            Set<String> children = entry.getValue();
+            if (children == null) {
+                paths.set(paths.length(), createPath(key, null));
+                values.set(values.length(), Json.createArray());
+            } else {
+                objects.set(objects.length(), key);
+                for (String child : children) {
+                    paths.set(paths.length(), createPath(key, child));
+                    values.set(values.length(), Json.createArray());
+                }
+            }
+        }
+
+        JsonArray rest = Json.createArray();
+        boolean hasRest = false;
+        for (int i = 0; i < rowCount; i++) {
+            JsonObject row = rows.getObject(i);
+            JsonObject rowRest = null;
+            int column = 0;
+            for (String key : row.keys()) {
+                JsonValue value = row.get(key);
+                if (!columns.containsKey(key)) {
+                    rowRest = put(rowRest, key, value);
+                    continue;
+                }
+                Set<String> children = columns.get(key);
+                if (children == null) {
+                    continue;
+                }
+                JsonObject object = (JsonObject) value;
+                for (String child : object.keys()) {
+                    if (!children.contains(child)) {
+                        JsonObject restObject = rowRest != null
+                                && rowRest.hasKey(key) ? rowRest.getObject(key)
+                                        : null;
+                        rowRest = put(rowRest, key,
+                                put(restObject, child, object.get(child)));
+                    }
+                }
+            }
+            for (Map.Entry<String, Set<String>> entry : columns
+                    .entrySet()) {
+                JsonValue value = row.get(entry.getKey());
+                if (entry.getValue() == null) {
+                    JsonArray array = values.getArray(column++);
+                    array.set(array.length(), value);
+                } else {
+                    JsonObject object = (JsonObject) value;
+                    for (String child : entry.getValue()) {
+                        JsonValue childValue = object.get(child);
+                        JsonArray array = values.getArray(column++);
+                        array.set(array.length(), childValue);
+                    }
+                }
+            }
+            if (rowRest != null) {
+                hasRest = true;
+                rest.set(i, rowRest);
+            } else {
+                rest.set(i, Json.createNull());
+            }
+        }
+
+        JsonObject result = Json.createObject();
+        result.put(ROW_COUNT, rowCount);
+        result.put(OBJECTS, objects);
+        result.put(COLUMNS, paths);
+        result.put(VALUES, values);
+        if (hasRest) {
+            result.put(REST, rest);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes rows from the columnar form created by
+     * {@link #encode(JsonArray)}.
+     *
+     * @param data
+     *            the columnar form of the rows, not <code>null</code>
+     * @return an array of row objects, not <code>null</code>
+     */
+    public static JsonArray decode(JsonObject data) {
+        int rowCount = (int) data.getNumber(ROW_COUNT);
+        JsonArray objects = data.getArray(OBJECTS);
+        JsonArray paths = data.getArray(COLUMNS);
+        JsonArray values = data.getArray(VALUES);
+        JsonArray rest = data.hasKey(REST) ? data.getArray(REST) : null;
+
+        JsonArray rows = Json.createArray();
+        for (int i = 0; i < rowCount; i++) {
+            JsonObject row = Json.createObject();
+            for (int j = 0; j < objects.length(); j++) {
+                row.put(objects.getString(j), Json.createObject());
+            }
+            for (int j = 0; j < paths.length(); j++) {
+                JsonArray path = paths.getArray(j);
+                JsonValue value = values.getArray(j).get(i);
+                if (path.length() == 1) {
+                    row.put(path.getString(0), value);
+                } else {
+                    row.getObject(path.getString(0)).put(path.getString(1),
+                            value);
+                }
+            }
+            if (rest != null && !isNull(rest.get(i))) {
+                JsonObject rowRest = rest.getObject(i);
+                for (String key : rowRest.keys()) {
+                    JsonValue value = rowRest.get(key);
+                    if (row.hasKey(key) && isObject(value)) {
+                        // Children missing from some rows of a common object
+                        JsonObject object = row.getObject(key);
+                        JsonObject restObject = (JsonObject) value;
+                        for (String child : restObject.keys()) {
+                            JsonValue childValue = restObject.get(child);
+                            object.put(child, childValue);
+                        }
+                    } else {
+                        row.put(key, value);
+                    }
+                }
+            }
+            rows.set(i, row);
+        }
+        return rows;
+    }
+
+    private static void retainCommon(Map<String, Set<String>> columns,
+            JsonObject row) {
+        columns.entrySet().removeIf(entry -> {
+            if (!row.hasKey(entry.getKey())) {
+                return true;
+            }
+            JsonValue value = row.get(entry.getKey());
+            Set<String> children = entry.getValue();
+            if (children == null) {
+                return isObject(value);
+            }
+            if (!isObject(value)) {
+                return true;
+            }
+            JsonObject object = (JsonObject) value;
+            children.removeIf(child -> !object.hasKey(child));
+            return false;
+        });
+    }
+
+    private static JsonArray createPath(String key, String child) {
+        JsonArray path = Json.createArray();
+        path.set(0, key);
+        if (child != null) {
+            path.set(1, child);
+        }
+        return path;
+    }
+
+    private static JsonObject put(JsonObject object, String key,
+            JsonValue value) {
+        if (object == null) {
+            object = Json.createObject();
+        }
+        object.put(key, value);
+        return object;
+    }
+
+    private static boolean isObject(JsonValue value) {
+        return value != null && value.getType() == JsonType.OBJECT;
+    }
+
+    private static boolean isNull(JsonValue value) {
+        return value == null || value.getType() == JsonType.NULL;
+    }
+}
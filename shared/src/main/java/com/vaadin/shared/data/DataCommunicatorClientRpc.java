@@ -18,6 +18,7 @@ package com.vaadin.shared.data;
 import com.vaadin.shared.communication.ClientRpc;
 
 import elemental.json.JsonArray;
+import elemental.json.JsonObject;
 
 /**
  * RPC interface used by DataProvider to send data to the client-side.
@@ -48,6 +49,19 @@ public interface DataCommunicatorClientRpc extends ClientRpc {
      */
     void setData(int firstIndex, JsonArray data);
 
+    /**
+     * Sets the data of the client-side DataSource like
+     * {@link #setData(int, JsonArray)}, with the rows encoded in columnar form
+     * by {@link ColumnarRows#encode(JsonArray)}.
+     *
+     * @param firstIndex
+     *            first index to update
+     * @param data
+     *            the new data in columnar form
+     * @since 8.15
+     */
+    void setColumnarData(int firstIndex, JsonObject data);
+
     /**
      * Updates an array of objects based on their identifying key.
      *
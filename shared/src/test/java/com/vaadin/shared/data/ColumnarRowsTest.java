@@ -0,0 +1,153 @@
+package com.vaadin.shared.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+public class ColumnarRowsTest {
+
+    @Test
+    public void commonKeys_encodedAsColumns() {
+        JsonArray rows = Json.createArray();
+        for (int i = 0; i < 3; i++) {
+            JsonObject row = Json.createObject();
+            row.put("k", "key" + i);
+            JsonObject data = Json.createObject();
+            data.put("1", "name" + i);
+            data.put("2", i);
+            row.put("d", data);
+            rows.set(i, row);
+        }
+
+        JsonObject encoded = ColumnarRows.encode(rows);
+
+        assertEquals(3, encoded.getArray("c").length());
+        assertEquals("key2", encoded.getArray("v").getArray(0).getString(2));
+        assertEquals("name1", encoded.getArray("v").getArray(1).getString(1));
+        assertFalse("No row specific values", encoded.hasKey("r"));
+        assertRoundTrip(rows);
+    }
+
+    @Test
+    public void sparseKeys_encodedPerRow() {
+        JsonArray rows = Json.createArray();
+        for (int i = 0; i < 4; i++) {
+            JsonObject row = Json.createObject();
+            row.put("k", "key" + i);
+            JsonObject data = Json.createObject();
+            data.put("1", "name" + i);
+            if (i % 2 == 0) {
+                data.put("2", "extra" + i);
+                row.put("s", true);
+                JsonObject styles = Json.createObject();
+                styles.put("1", "highlight");
+                row.put("cellstyles", styles);
+            }
+            row.put("d", data);
+            rows.set(i, row);
+        }
+
+        JsonObject encoded = ColumnarRows.encode(rows);
+
+        // k and d/1
+        assertEquals(2, encoded.getArray("c").length());
+        assertTrue(encoded.hasKey("r"));
+        assertRoundTrip(rows);
+    }
+
+    @Test
+    public void mixedValueTypes_roundTrip() {
+        JsonArray rows = Json.createArray();
+        JsonObject first = Json.createObject();
+        first.put("k", "a");
+        first.put("x", Json.createObject());
+        first.put("y", Json.createNull());
+        rows.set(0, first);
+        JsonObject second = Json.createObject();
+        second.put("k", "b");
+        second.put("x", "not an object");
+        second.put("y", Json.createArray());
+        rows.set(1, second);
+
+        assertRoundTrip(rows);
+    }
+
+    @Test
+    public void emptyCommonObject_keptInRows() {
+        JsonArray rows = Json.createArray();
+        for (int i = 0; i < 2; i++) {
+            JsonObject row = Json.createObject();
+            row.put("k", "key" + i);
+            row.put("d", Json.createObject());
+            rows.set(i, row);
+        }
+
+        assertRoundTrip(rows);
+    }
+
+    @Test
+    public void noRows_roundTrip() {
+        assertRoundTrip(Json.createArray());
+    }
+
+    @Test
+    public void wideRows_smallerThanRowObjects() {
+        JsonArray rows = Json.createArray();
+        for (int i = 0; i < 50; i++) {
+            JsonObject row = Json.createObject();
+            row.put("k", String.valueOf(i));
+            JsonObject data = Json.createObject();
+            for (int column = 0; column < 20; column++) {
+                data.put(String.valueOf(100 + column), i * column);
+            }
+            row.put("d", data);
+            rows.set(i, row);
+        }
+
+        int rowLength = rows.toJson().length();
+        int columnarLength = ColumnarRows.encode(rows).toJson().length();
+
+        assertTrue("Columnar form should be smaller: " + columnarLength
+                + " vs " + rowLength, columnarLength < rowLength * 0.7);
+    }
+
+    private static void assertRoundTrip(JsonArray rows) {
+        JsonArray decoded = ColumnarRows.decode(ColumnarRows.encode(rows));
+        assertJsonEquals(rows, decoded);
+    }
+
+    private static void assertJsonEquals(JsonValue expected,
+            JsonValue actual) {
+        assertEquals(expected.getType(), actual.getType());
+        if (expected.getType() == JsonType.OBJECT) {
+            JsonObject expectedObject = (JsonObject) expected;
+            JsonObject actualObject = (JsonObject) actual;
+            assertEquals(new HashSet<>(Arrays.asList(expectedObject.keys())),
+                    new HashSet<>(Arrays.asList(actualObject.keys())));
+            for (String key : expectedObject.keys()) {
+                assertJsonEquals(expectedObject.get(key),
+                        actualObject.get(key));
+            }
+        } else if (expected.getType() == JsonType.ARRAY) {
+            JsonArray expectedArray = (JsonArray) expected;
+            JsonArray actualArray = (JsonArray) actual;
+            assertEquals(expectedArray.length(), actualArray.length());
+            for (int i = 0; i < expectedArray.length(); i++) {
+                assertJsonEquals(expectedArray.get(i), actualArray.get(i));
+            }
+        } else {
+            assertEquals(expected.toJson(), actual.toJson());
+        }
+    }
+}